@@ -0,0 +1,76 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.journal.BookSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of a book with {@code RESTING_ORDERS} resting orders spread over 2 x 2000 price levels: writing it, which walks
+ * the book and encodes its orders straight into the memory mapped file (done by the
+ * {@link com.mfruhrmann.orderbooks.journal.PeriodicSnapshotter} on its shadow book), and loading it into a new book on
+ * restart.
+ */
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0, jvmArgs = "-Xmx3g")
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BookSnapshotBenchmark {
+
+    public static final int RESTING_ORDERS = 10_000_000;
+    private static final int LEVELS_PER_SIDE = 2000;
+
+    private TickLadderOrderBook orderBook;
+    private Path snapshotFile;
+
+    @Setup(Level.Trial)
+    public void doSetup() throws IOException {
+        long ts = 1_700_000_000_000_000_000L;
+        orderBook = new TickLadderOrderBook(1, 1024, RESTING_ORDERS);
+        for (int i = 0; i < RESTING_ORDERS; i++) {
+            int level = i % LEVELS_PER_SIDE;
+            boolean buy = (i & 1) == 0;
+            double price = buy ? 10_000 - level : 10_001 + level;
+            orderBook.addOrder(new ImmutableOrder(i, buy ? OrderBook.Side.BUY : OrderBook.Side.SELL, OrderBook.OrderType.LIMIT, ts, price, 1 + i % 7));
+        }
+        snapshotFile = Files.createTempFile("order-book", ".snapshot");
+        BookSnapshot.capture(orderBook, 0).writeTo(snapshotFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Benchmark
+    public Path write_tickLadderOrderBook() throws IOException {
+        BookSnapshot.capture(orderBook, 0).writeTo(snapshotFile);
+        return snapshotFile;
+    }
+
+    @Benchmark
+    public TickLadderOrderBook load_tickLadderOrderBook() throws IOException {
+        TickLadderOrderBook restoredOrderBook = new TickLadderOrderBook(1, 1024, RESTING_ORDERS);
+        BookSnapshot.readFrom(snapshotFile).restore(restoredOrderBook);
+        return restoredOrderBook;
+    }
+}
@@ -0,0 +1,118 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.engine.MatchingEngine;
+import com.mfruhrmann.orderbooks.gateway.ClientGateway;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.sequencer.ParkingWaitStrategy;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of many client sessions sending orders to a few books. Every invocation starts {@code sessions} sessions that
+ * split the same number of orders between them. {@code DIRECT} sessions call the synchronized books themselves,
+ * {@code GATEWAY} sessions go through the matching shards of a {@link ClientGateway} and wait for each response before sending the
+ * next order, {@code GATEWAY_PIPELINED} sessions send all their orders and only wait for the last response. All
+ * run their sessions on {@link ClientGateway#newSessionExecutor()}, virtual threads on Java 21 and a platform thread per
+ * session before. Scores are orders per second.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ClientGatewayBenchmark {
+
+    public static final int ORDERS_SIZE = 1 << 16;
+    private static final int INSTRUMENTS = 4;
+
+    public enum Path {
+        DIRECT,
+        GATEWAY,
+        GATEWAY_PIPELINED
+    }
+
+    @Param({"16", "256", "4096"})
+    private int sessions;
+
+    @Param({"DIRECT", "GATEWAY", "GATEWAY_PIPELINED"})
+    private Path path;
+
+    private OrderBook.Order[] orders;
+    private OrderBook[] orderBooks;
+    private ExecutorService sessionExecutor;
+    private ClientGateway clientGateway;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+        OrderManager orderManager = new OrderManager();
+        // a session sells and buys in turn at the same price, the books are empty again after every invocation
+        orders = new OrderBook.Order[ORDERS_SIZE];
+        for (int i = 0; i < ORDERS_SIZE; i++) {
+            orders[i] = orderManager.createOrder(i % 2 == 0 ? OrderBook.Side.SELL : OrderBook.Side.BUY, OrderBook.OrderType.LIMIT, 100, 1);
+        }
+        orderBooks = new OrderBook[INSTRUMENTS];
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            orderBooks[i] = new TickLadderOrderBook(1, 1024);
+        }
+        sessionExecutor = ClientGateway.newSessionExecutor();
+        clientGateway = new ClientGateway(new MatchingEngine(INSTRUMENTS, 1024, new ParkingWaitStrategy(),
+                instrumentId -> new TickLadderOrderBook(1, 1024)), sessionExecutor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientGateway.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_SIZE)
+    public void addOrders() {
+        int ordersPerSession = ORDERS_SIZE / sessions;
+        CompletableFuture<?>[] sessionEnds = new CompletableFuture<?>[sessions];
+        for (int session = 0; session < sessions; session++) {
+            int instrument = session % INSTRUMENTS;
+            int from = session * ordersPerSession;
+            int to = from + ordersPerSession;
+            sessionEnds[session] = switch (path) {
+                case DIRECT -> CompletableFuture.runAsync(() -> {
+                    for (int i = from; i < to; i++) {
+                        orderBooks[instrument].addOrder(orders[i]);
+                    }
+                }, sessionExecutor);
+                case GATEWAY -> clientGateway.startSession(gateway -> {
+                    for (int i = from; i < to; i++) {
+                        gateway.addOrder(instrument, orders[i]).join();
+                    }
+                });
+                case GATEWAY_PIPELINED -> clientGateway.startSession(gateway -> {
+                    CompletableFuture<Long> last = null;
+                    for (int i = from; i < to; i++) {
+                        last = gateway.addOrder(instrument, orders[i]);
+                    }
+                    // the ring of a shard keeps the order of a session, the last response comes last
+                    last.join();
+                });
+            };
+        }
+        CompletableFuture.allOf(sessionEnds).join();
+    }
+}
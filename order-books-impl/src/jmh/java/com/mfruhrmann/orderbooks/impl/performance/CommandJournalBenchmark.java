@@ -0,0 +1,107 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.journal.CommandJournal;
+import com.mfruhrmann.orderbooks.journal.JournalReader;
+import com.mfruhrmann.orderbooks.journal.JournalingOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of journaling: the same flow as {@link OrderBookAddOrdersBenchmark} added to a plain book and to a book that
+ * journals every command first, plus the speed of rebuilding a book from that journal. Scores are commands per second.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class CommandJournalBenchmark {
+
+    public static final int ORDERS_SIZE = 1_000_000;
+
+    private List<OrderBook.Order> orders;
+    private Path journalFile;
+    private Path replayedJournalFile;
+    private CommandJournal commandJournal;
+
+    @Setup(Level.Trial)
+    public void doSetup() throws IOException {
+        OrderManager orderManager = new OrderManager();
+        orders = IntStream.range(0, ORDERS_SIZE)
+                .mapToObj(x -> orderManager.createOrder(OrderBook.Side.values()[(x + 1) % 2], OrderBook.OrderType.LIMIT, 100 + (x % 10) - 5, 1))
+                .toList();
+        journalFile = Files.createTempFile("order-book", ".journal");
+        replayedJournalFile = Files.createTempFile("order-book-replay", ".journal");
+        Files.delete(replayedJournalFile);
+        try (CommandJournal commandJournal = new CommandJournal(replayedJournalFile)) {
+            OrderBook orderBook = new JournalingOrderBook(new TickLadderOrderBook(1, 1024), commandJournal);
+            orders.forEach(orderBook::addOrder);
+        }
+    }
+
+    /**
+     * Opening the journal maps and touches its first chunk, like at the start of the day that stays out of the measurement.
+     */
+    @Setup(Level.Invocation)
+    public void newJournal() throws IOException {
+        Files.deleteIfExists(journalFile);
+        commandJournal = new CommandJournal(journalFile);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeJournal() throws IOException {
+        commandJournal.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(journalFile);
+        Files.deleteIfExists(replayedJournalFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_SIZE)
+    public OrderBook addOrders_tickLadderOrderBook() {
+        OrderBook orderBook = new TickLadderOrderBook(1, 1024);
+        orders.forEach(orderBook::addOrder);
+        return orderBook;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_SIZE)
+    public OrderBook addOrders_journalingTickLadderOrderBook() {
+        OrderBook orderBook = new JournalingOrderBook(new TickLadderOrderBook(1, 1024), commandJournal);
+        orders.forEach(orderBook::addOrder);
+        return orderBook;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_SIZE)
+    public OrderBook replay_tickLadderOrderBook() throws IOException {
+        OrderBook orderBook = new TickLadderOrderBook(1, 1024);
+        new JournalReader(replayedJournalFile).replay(orderBook);
+        return orderBook;
+    }
+}
@@ -0,0 +1,67 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.OffHeapOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A book with a large number of resting orders spread over 1000 levels per side. {@code fullGc} times a full
+ * collection while the book is alive, which has to trace every resting order of an on-heap book, {@code addAndCancel}
+ * is the steady state of adding and cancelling an order behind the resting ones.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0, jvmArgsAppend = "-Xmx3g")
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class LargeBookBenchmark {
+
+    @Param({"basic", "offHeap"})
+    private String implementation;
+
+    @Param({"2000000"})
+    private int restingOrders;
+
+    private final OrderManager orderManager = new OrderManager();
+    private OrderBook orderBook;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+        orderBook = implementation.equals("basic") ? new BasicOrderBook(1) : new OffHeapOrderBook(1, restingOrders);
+        for (int i = 0; i < restingOrders; i++) {
+            orderBook.addOrder(orderManager.createOrder(i % 2 == 0 ? OrderBook.Side.BUY : OrderBook.Side.SELL, OrderBook.OrderType.LIMIT,
+                    i % 2 == 0 ? 9_999 - i % 1_000 : 10_001 + i % 1_000, 10));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void fullGc() {
+        System.gc();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public OrderBook.CancelStatus addAndCancel() {
+        OrderBook.Order order = orderManager.createOrder(OrderBook.Side.BUY, OrderBook.OrderType.LIMIT, 9_999 - round++ % 1_000, 10);
+        orderBook.addOrder(order);
+        return orderBook.cancelOrder(order.id());
+    }
+}
@@ -0,0 +1,93 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.engine.MatchingEngine;
+import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.sequencer.YieldingWaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scaling curve of the {@link MatchingEngine}: producers on all available cores send orders for {@code INSTRUMENTS}
+ * instruments spread over 1 to N shards. With enough cores for producers and shards the throughput should grow close
+ * to linearly with the number of shards.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MatchingEngineScalingBenchmark {
+
+    public static final int INSTRUMENTS = 1024;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private MatchingEngine matchingEngine;
+    private OrderBook[] orderBooks;
+
+    @Setup(Level.Iteration)
+    public void doSetup() {
+        matchingEngine = new MatchingEngine(shards, 1024, new YieldingWaitStrategy(), instrumentId -> new TickLadderOrderBook(1, 1024));
+        orderBooks = new OrderBook[INSTRUMENTS];
+        for (int instrumentId = 0; instrumentId < INSTRUMENTS; instrumentId++) {
+            orderBooks[instrumentId] = matchingEngine.orderBook(instrumentId);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        matchingEngine.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        private static final AtomicInteger PRODUCER_IDS = new AtomicInteger();
+        private static final long TS = 1_700_000_000_000_000_000L;
+
+        private long nextId;
+        private int x;
+        private int instrument;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            int producerId = PRODUCER_IDS.incrementAndGet();
+            nextId = (long) producerId << 40;
+            instrument = producerId * 7;
+        }
+
+        OrderBook.Order nextOrder() {
+            x++;
+            return new ImmutableOrder(nextId++, OrderBook.Side.values()[x % 2], OrderBook.OrderType.LIMIT, TS, 100 + (x % 10) - 5, 1);
+        }
+
+        int nextInstrument() {
+            instrument = (instrument + 1) & (INSTRUMENTS - 1);
+            return instrument;
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long addOrder(Producer producer) {
+        return orderBooks[producer.nextInstrument()].addOrder(producer.nextOrder());
+    }
+}
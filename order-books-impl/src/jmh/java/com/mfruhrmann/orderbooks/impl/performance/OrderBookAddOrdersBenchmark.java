@@ -4,6 +4,7 @@ import com.mfruhrmann.orderbooks.api.OrderBook;
 import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
 import com.mfruhrmann.orderbooks.impl.BasicOrderBookArrayDeque;
 import com.mfruhrmann.orderbooks.impl.ListBasedOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
 import com.mfruhrmann.orderbooks.utils.OrderManager;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -81,6 +82,12 @@ public class OrderBookAddOrdersBenchmark {
         ordersForTradeMatching.forEach(orderBook::addOrder);
     }
 
+    @Benchmark
+    public void addOrders_tickLadderOrderBook(OrdersState ordersState, Blackhole blackhole) {
+        OrderBook orderBook = new TickLadderOrderBook(1, 1024);
+        ordersForTradeMatching.forEach(orderBook::addOrder);
+    }
+
     @Benchmark
     public void basicOrder_LevelStacking(OrdersState ordersState, Blackhole blackhole) {
         OrderBook orderBook = new BasicOrderBook();
@@ -100,4 +107,10 @@ public class OrderBookAddOrdersBenchmark {
         ordersForLevelStacking.forEach(orderBook::addOrder);
     }
 
+    @Benchmark
+    public void tickLadderOrderBook_LevelStacking(OrdersState ordersState, Blackhole blackhole) {
+        OrderBook orderBook = new TickLadderOrderBook(1, 1024);
+        ordersForLevelStacking.forEach(orderBook::addOrder);
+    }
+
 }
@@ -0,0 +1,102 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The flow of {@link OrderBookAddOrdersBenchmark} entered one order at a time and in batches of {@code batchSize} through
+ * {@link OrderBook#addOrders}. A trade listener is registered, so trades are timestamped. Scores are orders per second.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class OrderBookBatchBenchmark {
+
+    public static final int ORDERS_SIZE = 1_048_576;
+
+    @Param({"1", "16", "128", "1024"})
+    public int batchSize;
+
+    private OrderBook.Order[] orders;
+    private OrderBook.Order[][] batches;
+    private long[] orderIds;
+    private long tradedSize;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+        OrderManager orderManager = new OrderManager();
+        orders = new OrderBook.Order[ORDERS_SIZE];
+        for (int x = 0; x < ORDERS_SIZE; x++) {
+            orders[x] = orderManager.createOrder(OrderBook.Side.values()[(x + 1) % 2], OrderBook.OrderType.LIMIT, 100 + (x % 10) - 5, 1);
+        }
+        batches = new OrderBook.Order[ORDERS_SIZE / batchSize][];
+        for (int i = 0; i < batches.length; i++) {
+            batches[i] = Arrays.copyOfRange(orders, i * batchSize, (i + 1) * batchSize);
+        }
+        orderIds = new long[batchSize];
+    }
+
+    private OrderBook withTradeListener(OrderBook orderBook) {
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> tradedSize += size);
+        return orderBook;
+    }
+
+    private OrderBook addOneByOne(OrderBook orderBook) {
+        for (OrderBook.Order order : orders) {
+            orderBook.addOrder(order);
+        }
+        return orderBook;
+    }
+
+    private OrderBook addInBatches(OrderBook orderBook) {
+        for (OrderBook.Order[] batch : batches) {
+            orderBook.addOrders(batch, batchSize, orderIds);
+        }
+        return orderBook;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_SIZE)
+    public OrderBook addOrder_basicOrderBook() {
+        return addOneByOne(withTradeListener(new BasicOrderBook()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_SIZE)
+    public OrderBook addOrders_basicOrderBook() {
+        return addInBatches(withTradeListener(new BasicOrderBook()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_SIZE)
+    public OrderBook addOrder_tickLadderOrderBook() {
+        return addOneByOne(withTradeListener(new TickLadderOrderBook(1, 1024)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_SIZE)
+    public OrderBook addOrders_tickLadderOrderBook() {
+        return addInBatches(withTradeListener(new TickLadderOrderBook(1, 1024)));
+    }
+}
@@ -0,0 +1,99 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBookArrayDeque;
+import com.mfruhrmann.orderbooks.impl.ListBasedOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Cancel heavy flow: every operation cancels a random order from a single deep price level and adds it back to the end
+ * of the queue, so the depth of the level stays constant. With intrusive level queues the cost should stay flat
+ * as {@code levelDepth} grows, deque based levels have to scan the level to find the order.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class OrderBookCancelOrdersBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int levelDepth;
+
+    private List<OrderBook.Order> restingOrders;
+    private int[] cancelSequence;
+    private int nextCancel;
+
+    private OrderBook basicOrderBook;
+    private OrderBook basicOrderBookArrayDeque;
+    private OrderBook listBasedOrderBook;
+    private OrderBook tickLadderOrderBook;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+        OrderManager orderManager = new OrderManager();
+        restingOrders = IntStream.range(0, levelDepth)
+                .mapToObj(x -> orderManager.createOrder(OrderBook.Side.BUY, OrderBook.OrderType.LIMIT, 100, 1))
+                .toList();
+
+        Random random = new Random(42);
+        cancelSequence = random.ints(1 << 16, 0, levelDepth).toArray();
+
+        basicOrderBook = fill(new BasicOrderBook());
+        basicOrderBookArrayDeque = fill(new BasicOrderBookArrayDeque());
+        listBasedOrderBook = fill(new ListBasedOrderBook(1));
+        tickLadderOrderBook = fill(new TickLadderOrderBook(1, 1024));
+    }
+
+    private OrderBook fill(OrderBook orderBook) {
+        restingOrders.forEach(orderBook::addOrder);
+        return orderBook;
+    }
+
+    private OrderBook.CancelStatus cancelAndReAdd(OrderBook orderBook) {
+        OrderBook.Order order = restingOrders.get(cancelSequence[nextCancel++ & (cancelSequence.length - 1)]);
+        OrderBook.CancelStatus cancelStatus = orderBook.cancelOrder(order.id());
+        orderBook.addOrder(order);
+        return cancelStatus;
+    }
+
+    @Benchmark
+    public OrderBook.CancelStatus cancelOrder_basicOrderBook() {
+        return cancelAndReAdd(basicOrderBook);
+    }
+
+    @Benchmark
+    public OrderBook.CancelStatus cancelOrder_basicOrderBookArrayDeque() {
+        return cancelAndReAdd(basicOrderBookArrayDeque);
+    }
+
+    @Benchmark
+    public OrderBook.CancelStatus cancelOrder_listBasedOrderBook() {
+        return cancelAndReAdd(listBasedOrderBook);
+    }
+
+    @Benchmark
+    public OrderBook.CancelStatus cancelOrder_tickLadderOrderBook() {
+        return cancelAndReAdd(tickLadderOrderBook);
+    }
+}
@@ -0,0 +1,108 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command latency when several threads share one book, the way gateway threads would without a sequencer in front of
+ * it. Every writer replays its own cyclic {@link Scenario} flow with its own order ids, the flows of the writers cross
+ * each other. The {@code writersWithMarketData} group adds a thread sampling the top levels of both sides in between.
+ * <p>
+ * Only the implementations that guard every call with their monitor are listed.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Group)
+public class OrderBookContentionBenchmark {
+
+    public static final int WRITERS = 2;
+
+    private static final int COMMANDS = 1 << 16;
+    private static final int LEVELS = 10;
+
+    @Param({"BASIC", "TICK_LADDER", "OFF_HEAP"})
+    private OrderBookImplementation implementation;
+
+    private OrderBook orderBook;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+        orderBook = implementation.create();
+    }
+
+    @State(Scope.Thread)
+    public static class WriterState {
+
+        @Param({"MIXED", "POWER_LAW"})
+        private Scenario scenario;
+
+        @Param({"42"})
+        private long seed;
+
+        private OrderFlow orderFlow;
+        private int command;
+
+        @Setup(Level.Trial)
+        public void doSetup(ThreadParams threadParams) {
+            int thread = threadParams.getThreadIndex();
+            orderFlow = scenario.orderFlow(seed + thread, COMMANDS, (thread + 1L) << 40, true);
+        }
+
+        long next(OrderBook orderBook) {
+            if (command == orderFlow.size()) {
+                command = 0;
+            }
+            return orderFlow.apply(orderBook, command++);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MarketDataState {
+
+        private final double[] prices = new double[LEVELS];
+        private final long[] quantities = new long[LEVELS];
+        private boolean bids;
+    }
+
+    @Benchmark
+    @Group("writers")
+    @GroupThreads(WRITERS)
+    public long writers_writer(WriterState writerState) {
+        return writerState.next(orderBook);
+    }
+
+    @Benchmark
+    @Group("writersWithMarketData")
+    @GroupThreads(WRITERS)
+    public long writersWithMarketData_writer(WriterState writerState) {
+        return writerState.next(orderBook);
+    }
+
+    @Benchmark
+    @Group("writersWithMarketData")
+    @GroupThreads(1)
+    public long writersWithMarketData_reader(MarketDataState marketDataState) {
+        marketDataState.bids = !marketDataState.bids;
+        return orderBook.snapshotTopLevels(LEVELS, marketDataState.bids ? OrderBook.Side.BUY : OrderBook.Side.SELL,
+                marketDataState.prices, marketDataState.quantities);
+    }
+}
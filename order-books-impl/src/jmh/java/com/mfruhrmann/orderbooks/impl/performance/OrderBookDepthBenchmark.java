@@ -0,0 +1,76 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampling the top 10 ask levels of a book with 100 levels per side, copied into primitive arrays with
+ * {@link OrderBook#snapshotTopLevels} compared to the boxed map of all levels from {@link OrderBook#getAskLevels()}.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class OrderBookDepthBenchmark {
+
+    private static final int LEVELS = 10;
+
+    private final double[] prices = new double[LEVELS];
+    private final long[] quantities = new long[LEVELS];
+
+    private OrderBook basicOrderBook;
+    private OrderBook tickLadderOrderBook;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+        basicOrderBook = withLevels(new BasicOrderBook());
+        tickLadderOrderBook = withLevels(new TickLadderOrderBook(1, 1024));
+    }
+
+    private static OrderBook withLevels(OrderBook orderBook) {
+        OrderManager orderManager = new OrderManager();
+        for (int level = 0; level < 100; level++) {
+            orderBook.addOrder(orderManager.createOrder(OrderBook.Side.BUY, OrderBook.OrderType.LIMIT, 999 - level, 10));
+            orderBook.addOrder(orderManager.createOrder(OrderBook.Side.SELL, OrderBook.OrderType.LIMIT, 1001 + level, 10));
+        }
+        return orderBook;
+    }
+
+    @Benchmark
+    public long snapshotTopLevels_basicOrderBook() {
+        return basicOrderBook.snapshotTopLevels(LEVELS, OrderBook.Side.SELL, prices, quantities) + quantities[LEVELS - 1];
+    }
+
+    @Benchmark
+    public long snapshotTopLevels_tickLadderOrderBook() {
+        return tickLadderOrderBook.snapshotTopLevels(LEVELS, OrderBook.Side.SELL, prices, quantities) + quantities[LEVELS - 1];
+    }
+
+    @Benchmark
+    public Map<Double, Double> getAskLevels_basicOrderBook() {
+        return basicOrderBook.getAskLevels();
+    }
+
+    @Benchmark
+    public Map<Double, Double> getAskLevels_tickLadderOrderBook() {
+        return tickLadderOrderBook.getAskLevels();
+    }
+}
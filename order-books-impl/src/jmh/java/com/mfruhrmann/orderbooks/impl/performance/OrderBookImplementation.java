@@ -0,0 +1,47 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBookArrayDeque;
+import com.mfruhrmann.orderbooks.impl.ListBasedOrderBook;
+import com.mfruhrmann.orderbooks.impl.OffHeapOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+
+/**
+ * The order book implementations a benchmark can pick with {@code @Param}, all with a price step of 1. Pass
+ * {@code -p implementation=BASIC,OFF_HEAP} on the command line to narrow a run down.
+ */
+public enum OrderBookImplementation {
+    BASIC {
+        @Override
+        public OrderBook create() {
+            return new BasicOrderBook(1);
+        }
+    },
+    ARRAY_DEQUE {
+        @Override
+        public OrderBook create() {
+            return new BasicOrderBookArrayDeque();
+        }
+    },
+    LIST_BASED {
+        @Override
+        public OrderBook create() {
+            return new ListBasedOrderBook(1);
+        }
+    },
+    TICK_LADDER {
+        @Override
+        public OrderBook create() {
+            return new TickLadderOrderBook(1, 1024);
+        }
+    },
+    OFF_HEAP {
+        @Override
+        public OrderBook create() {
+            return new OffHeapOrderBook(1, 1 << 16);
+        }
+    };
+
+    public abstract OrderBook create();
+}
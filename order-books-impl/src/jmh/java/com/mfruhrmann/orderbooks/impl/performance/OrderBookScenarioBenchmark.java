@@ -0,0 +1,65 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of single commands (add, cancel, amend) of a seeded {@link Scenario} flow, reported as percentiles. Every
+ * implementation replays exactly the same flow, starting from the same book. When the flow runs out the book is built
+ * again from the initial orders inside the next call, which shows up in the maximum only.
+ * <p>
+ * The baselines {@code ARRAY_DEQUE} and {@code LIST_BASED} are left out by default, they only cope with the simple
+ * patterns of {@link OrderBookAddOrdersBenchmark} and lose track of levels once a crossing order sweeps through several
+ * of them.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class OrderBookScenarioBenchmark {
+
+    private static final int COMMANDS = 1 << 20;
+
+    @Param({"BASIC", "TICK_LADDER", "OFF_HEAP"})
+    private OrderBookImplementation implementation;
+
+    @Param({"MIXED", "SWEEP", "DEEP_BOOK", "WIDE_BOOK", "POWER_LAW"})
+    private Scenario scenario;
+
+    @Param({"42"})
+    private long seed;
+
+    private OrderFlow orderFlow;
+    private OrderBook orderBook;
+    private int command;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+        orderFlow = scenario.orderFlow(seed, COMMANDS, 1, false);
+        orderBook = orderFlow.restInitialOrders(implementation.create());
+    }
+
+    @Benchmark
+    public long replay() {
+        if (command == orderFlow.size()) {
+            orderBook = orderFlow.restInitialOrders(implementation.create());
+            command = 0;
+        }
+        return orderFlow.apply(orderBook, command++);
+    }
+}
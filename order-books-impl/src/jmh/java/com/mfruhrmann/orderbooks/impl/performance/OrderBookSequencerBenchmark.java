@@ -0,0 +1,112 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.sequencer.BusySpinWaitStrategy;
+import com.mfruhrmann.orderbooks.sequencer.ParkingWaitStrategy;
+import com.mfruhrmann.orderbooks.sequencer.SequencedOrderBook;
+import com.mfruhrmann.orderbooks.sequencer.WaitStrategy;
+import com.mfruhrmann.orderbooks.sequencer.YieldingWaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi producer order entry: {@code PRODUCERS} threads add orders to one book at the same time, either directly into the
+ * synchronized {@link BasicOrderBook} or through the ring of a {@link SequencedOrderBook} that feeds a single matching thread.
+ * The wait strategy only applies to the sequenced books.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class OrderBookSequencerBenchmark {
+
+    public static final int PRODUCERS = 4;
+
+    @Param({"BUSY_SPIN", "YIELD", "PARK"})
+    public String waitStrategy;
+
+    private OrderBook synchronizedBasicOrderBook;
+    private SequencedOrderBook sequencedBasicOrderBook;
+    private SequencedOrderBook sequencedTickLadderOrderBook;
+
+    @Setup(Level.Iteration)
+    public void doSetup() {
+        synchronizedBasicOrderBook = new BasicOrderBook();
+        sequencedBasicOrderBook = new SequencedOrderBook(new BasicOrderBook(), 1024, waitStrategy());
+        sequencedTickLadderOrderBook = new SequencedOrderBook(new TickLadderOrderBook(1, 1024), 1024, waitStrategy());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        sequencedBasicOrderBook.close();
+        sequencedTickLadderOrderBook.close();
+    }
+
+    private WaitStrategy waitStrategy() {
+        return switch (waitStrategy) {
+            case "BUSY_SPIN" -> new BusySpinWaitStrategy();
+            case "YIELD" -> new YieldingWaitStrategy();
+            default -> new ParkingWaitStrategy();
+        };
+    }
+
+    /**
+     * Each producer creates its own orders from a separate id range, crossing the spread often enough to keep the book small.
+     */
+    @State(Scope.Thread)
+    public static class Producer {
+        private static final AtomicInteger PRODUCER_IDS = new AtomicInteger();
+        private static final long TS = 1_700_000_000_000_000_000L;
+
+        private long nextId;
+        private int x;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            nextId = (long) PRODUCER_IDS.incrementAndGet() << 40;
+        }
+
+        OrderBook.Order nextOrder() {
+            x++;
+            return new ImmutableOrder(nextId++, OrderBook.Side.values()[x % 2], OrderBook.OrderType.LIMIT, TS, 100 + (x % 10) - 5, 1);
+        }
+    }
+
+    @Benchmark
+    @Threads(PRODUCERS)
+    public long addOrder_synchronizedBasicOrderBook(Producer producer) {
+        return synchronizedBasicOrderBook.addOrder(producer.nextOrder());
+    }
+
+    @Benchmark
+    @Threads(PRODUCERS)
+    public long addOrder_sequencedBasicOrderBook(Producer producer) {
+        return sequencedBasicOrderBook.addOrder(producer.nextOrder());
+    }
+
+    @Benchmark
+    @Threads(PRODUCERS)
+    public long addOrder_sequencedTickLadderOrderBook(Producer producer) {
+        return sequencedTickLadderOrderBook.addOrder(producer.nextOrder());
+    }
+}
@@ -0,0 +1,116 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.metrics.OrderBookMetrics;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady state flow on a book that keeps its shape: every round rests a buy order, fills it partially and then fully,
+ * rests a sell order and cancels it again. All orders are created upfront, so run it with {@code -prof gc} and
+ * {@code gc.alloc.rate.norm} shows how many bytes the book itself allocates per round (0 for the pooled tick ladder,
+ * also when trades are published to a {@link OrderBook.TradeEventListener} or {@link OrderBookMetrics} are recorded).
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class OrderBookSteadyStateBenchmark {
+
+    private static final int ROUNDS = 1024;
+    private static final int ORDERS_PER_ROUND = 4;
+
+    private OrderBook.Order[] orders;
+    private int round;
+
+    private OrderBook basicOrderBook;
+    private OrderBook tickLadderOrderBook;
+    private OrderBook tickLadderOrderBookWithTradeEvents;
+    private OrderBook tickLadderOrderBookWithMetrics;
+    private OrderBook tickLadderOrderBookWithSampledMetrics;
+    private long tradedSize;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+        OrderManager orderManager = new OrderManager();
+        orders = new OrderBook.Order[ROUNDS * ORDERS_PER_ROUND];
+        for (int i = 0; i < ROUNDS; i++) {
+            orders[i * ORDERS_PER_ROUND] = orderManager.createOrder(OrderBook.Side.BUY, OrderBook.OrderType.LIMIT, 99, 2);
+            orders[i * ORDERS_PER_ROUND + 1] = orderManager.createOrder(OrderBook.Side.SELL, OrderBook.OrderType.LIMIT, 99, 1);
+            orders[i * ORDERS_PER_ROUND + 2] = orderManager.createOrder(OrderBook.Side.SELL, OrderBook.OrderType.LIMIT, 99, 1);
+            orders[i * ORDERS_PER_ROUND + 3] = orderManager.createOrder(OrderBook.Side.SELL, OrderBook.OrderType.LIMIT, 101, 1);
+        }
+
+        basicOrderBook = withDepth(new BasicOrderBook(), orderManager);
+        tickLadderOrderBook = withDepth(new TickLadderOrderBook(1, 1024), orderManager);
+        tickLadderOrderBookWithTradeEvents = withDepth(new TickLadderOrderBook(1, 1024), orderManager);
+        tickLadderOrderBookWithTradeEvents.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> tradedSize += size);
+        TickLadderOrderBook withMetrics = new TickLadderOrderBook(1, 1024);
+        withMetrics.setMetrics(new OrderBookMetrics());
+        tickLadderOrderBookWithMetrics = withDepth(withMetrics, orderManager);
+        TickLadderOrderBook withSampledMetrics = new TickLadderOrderBook(1, 1024);
+        withSampledMetrics.setMetrics(new OrderBookMetrics(16));
+        tickLadderOrderBookWithSampledMetrics = withDepth(withSampledMetrics, orderManager);
+    }
+
+    /**
+     * Levels away from the touch that are never traded, so the flow runs on a book that is not empty.
+     */
+    private static OrderBook withDepth(OrderBook orderBook, OrderManager orderManager) {
+        for (int level = 1; level <= 5; level++) {
+            orderBook.addOrder(orderManager.createOrder(OrderBook.Side.BUY, OrderBook.OrderType.LIMIT, 95 - level, 10));
+            orderBook.addOrder(orderManager.createOrder(OrderBook.Side.SELL, OrderBook.OrderType.LIMIT, 105 + level, 10));
+        }
+        return orderBook;
+    }
+
+    private OrderBook.CancelStatus round(OrderBook orderBook) {
+        int first = (round++ & (ROUNDS - 1)) * ORDERS_PER_ROUND;
+        orderBook.addOrder(orders[first]);
+        orderBook.addOrder(orders[first + 1]);
+        orderBook.addOrder(orders[first + 2]);
+        orderBook.addOrder(orders[first + 3]);
+        return orderBook.cancelOrder(orders[first + 3].id());
+    }
+
+    @Benchmark
+    public OrderBook.CancelStatus steadyState_basicOrderBook() {
+        return round(basicOrderBook);
+    }
+
+    @Benchmark
+    public OrderBook.CancelStatus steadyState_tickLadderOrderBook() {
+        return round(tickLadderOrderBook);
+    }
+
+    @Benchmark
+    public OrderBook.CancelStatus steadyState_tickLadderOrderBookWithTradeEvents() {
+        return round(tickLadderOrderBookWithTradeEvents);
+    }
+
+    @Benchmark
+    public OrderBook.CancelStatus steadyState_tickLadderOrderBookWithMetrics() {
+        return round(tickLadderOrderBookWithMetrics);
+    }
+
+    @Benchmark
+    public OrderBook.CancelStatus steadyState_tickLadderOrderBookWithSampledMetrics() {
+        return round(tickLadderOrderBookWithSampledMetrics);
+    }
+}
@@ -2,6 +2,8 @@ package com.mfruhrmann.orderbooks.impl.performance;
 
 import com.mfruhrmann.orderbooks.api.time.TimeSource;
 import com.mfruhrmann.orderbooks.impl.performance.time.FakeTimeSource;
+import com.mfruhrmann.orderbooks.impl.time.CachedClockTimeSource;
+import com.mfruhrmann.orderbooks.impl.time.SystemEpochNanosTimeSource;
 import com.mfruhrmann.orderbooks.impl.time.SystemMillisTImesource;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -11,6 +13,7 @@ import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -31,6 +34,13 @@ public class OrderBookTimeSource {
     static Clock tickClock = Clock.tickMillis(ZoneId.systemDefault());
     TimeSource fakeTimeSource = new FakeTimeSource();
     TimeSource systemMillistimeSource = new SystemMillisTImesource();
+    TimeSource systemEpochNanosTimeSource = new SystemEpochNanosTimeSource();
+    CachedClockTimeSource cachedClockTimeSource = new CachedClockTimeSource(100, TimeUnit.MICROSECONDS);
+
+    @TearDown
+    public void tearDown() {
+        cachedClockTimeSource.close();
+    }
 
     @Benchmark
     public void instant(OrdersState ordersState, Blackhole blackhole) {
@@ -47,6 +57,16 @@ public class OrderBookTimeSource {
         blackhole.consume(systemMillistimeSource.getCurrentTime());
     }
 
+    @Benchmark
+    public void systemEpochNanos(OrdersState ordersState, Blackhole blackhole) {
+        blackhole.consume(systemEpochNanosTimeSource.getCurrentTime());
+    }
+
+    @Benchmark
+    public void cachedClock(OrdersState ordersState, Blackhole blackhole) {
+        blackhole.consume(cachedClockTimeSource.getCurrentTime());
+    }
+
     @Benchmark
     public void fakeTimeSource(OrdersState ordersState, Blackhole blackhole) {
         blackhole.consume(fakeTimeSource.getCurrentTime());
@@ -0,0 +1,96 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One writer keeps changing the top of the book while {@code READERS} strategy threads poll it. The {@code seqLock} group
+ * reads through {@link OrderBook#getTopOrderBook()}, which does not take the monitor of the book, the {@code monitor} group
+ * reads the same book while holding its monitor, the way a synchronized getter would.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Group)
+public class OrderBookTopOfBookBenchmark {
+
+    public static final int READERS = 3;
+
+    private static final int ROUNDS = 1024;
+
+    private OrderBook.Order[] orders;
+    private int round;
+
+    private OrderBook tickLadderOrderBook;
+
+    @Setup(Level.Iteration)
+    public void doSetup() {
+        OrderManager orderManager = new OrderManager();
+        orders = new OrderBook.Order[ROUNDS * 2];
+        for (int i = 0; i < ROUNDS; i++) {
+            orders[i * 2] = orderManager.createOrder(OrderBook.Side.BUY, OrderBook.OrderType.LIMIT, 100 + (i % 3), 1);
+            orders[i * 2 + 1] = orderManager.createOrder(OrderBook.Side.SELL, OrderBook.OrderType.LIMIT, 104 - (i % 3), 1);
+        }
+        tickLadderOrderBook = new TickLadderOrderBook(1, 1024);
+        round = 0;
+    }
+
+    /**
+     * Rests a bid and an ask that improve the top and cancels them again, so every call publishes four new tops.
+     */
+    private OrderBook.CancelStatus changeTop() {
+        int first = (round++ & (ROUNDS - 1)) * 2;
+        tickLadderOrderBook.addOrder(orders[first]);
+        tickLadderOrderBook.addOrder(orders[first + 1]);
+        tickLadderOrderBook.cancelOrder(orders[first].id());
+        return tickLadderOrderBook.cancelOrder(orders[first + 1].id());
+    }
+
+    @Benchmark
+    @Group("seqLock")
+    @GroupThreads(1)
+    public OrderBook.CancelStatus seqLock_writer() {
+        return changeTop();
+    }
+
+    @Benchmark
+    @Group("seqLock")
+    @GroupThreads(READERS)
+    public OrderBook.TopOrderBook seqLock_reader() {
+        return tickLadderOrderBook.getTopOrderBook();
+    }
+
+    @Benchmark
+    @Group("monitor")
+    @GroupThreads(1)
+    public OrderBook.CancelStatus monitor_writer() {
+        return changeTop();
+    }
+
+    @Benchmark
+    @Group("monitor")
+    @GroupThreads(READERS)
+    public OrderBook.TopOrderBook monitor_reader() {
+        synchronized (tickLadderOrderBook) {
+            return tickLadderOrderBook.getTopOrderBook();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Order flow of a {@link Scenario}, generated upfront from a seed so every implementation and every run sees exactly
+ * the same commands. The initial orders build the book before the flow starts, the commands are then applied one at a
+ * time with {@link #apply(OrderBook, int)}.
+ */
+public final class OrderFlow {
+
+    private static final byte ADD = 0;
+    private static final byte CANCEL = 1;
+    private static final byte AMEND = 2;
+
+    private final OrderBook.Order[] initialOrders;
+    private final byte[] commands;
+    private final OrderBook.Order[] orders;
+    private final long[] orderIds;
+    private final int[] newSizes;
+    private final double[] newPrices;
+
+    private OrderFlow(Builder builder) {
+        this.initialOrders = Arrays.copyOf(builder.initialOrders, builder.initialCount);
+        this.commands = Arrays.copyOf(builder.commands, builder.count);
+        this.orders = Arrays.copyOf(builder.orders, builder.count);
+        this.orderIds = Arrays.copyOf(builder.orderIds, builder.count);
+        this.newSizes = Arrays.copyOf(builder.newSizes, builder.count);
+        this.newPrices = Arrays.copyOf(builder.newPrices, builder.count);
+    }
+
+    public int size() {
+        return commands.length;
+    }
+
+    /**
+     * Fills a new book with the initial orders.
+     */
+    public OrderBook restInitialOrders(OrderBook orderBook) {
+        for (OrderBook.Order order : initialOrders) {
+            orderBook.addOrder(order);
+        }
+        return orderBook;
+    }
+
+    /**
+     * @return a value depending on the outcome of the command, for the blackhole
+     */
+    public long apply(OrderBook orderBook, int command) {
+        return switch (commands[command]) {
+            case ADD -> orderBook.addOrder(orders[command]);
+            case CANCEL -> orderBook.cancelOrder(orderIds[command]).ordinal();
+            default -> orderBook.amendOrder(orderIds[command], newSizes[command], newPrices[command]).ordinal();
+        };
+    }
+
+    /**
+     * Collects the commands of a flow and keeps track of the orders it expects to rest, so cancels and amends refer to
+     * orders that were added before. Orders filled in the meantime make them miss, the way they do in real flow.
+     * <p>
+     * A cyclic flow adds its initial orders as commands and ends by cancelling every order still live, so it can be
+     * replayed over and over on the same book without reusing an order id that is still resting.
+     */
+    static final class Builder {
+
+        private static final long TS = 1_700_000_000_000_000_000L;
+
+        final SplittableRandom random;
+        private final boolean cyclic;
+        private long nextOrderId;
+
+        private OrderBook.Order[] initialOrders = new OrderBook.Order[1024];
+        private int initialCount;
+
+        private byte[] commands = new byte[1024];
+        private OrderBook.Order[] orders = new OrderBook.Order[1024];
+        private long[] orderIds = new long[1024];
+        private int[] newSizes = new int[1024];
+        private double[] newPrices = new double[1024];
+        private int count;
+
+        private long[] liveIds = new long[1024];
+        private double[] livePrices = new double[1024];
+        private int liveCount;
+
+        Builder(long seed, long firstOrderId, boolean cyclic) {
+            this.random = new SplittableRandom(seed);
+            this.nextOrderId = firstOrderId;
+            this.cyclic = cyclic;
+        }
+
+        int count() {
+            return count;
+        }
+
+        void rest(OrderBook.Side side, double price, int size) {
+            if (cyclic) {
+                add(side, price, size);
+                return;
+            }
+            OrderBook.Order order = newOrder(side, price, size);
+            if (initialCount == initialOrders.length) {
+                initialOrders = Arrays.copyOf(initialOrders, initialCount << 1);
+            }
+            initialOrders[initialCount++] = order;
+        }
+
+        void add(OrderBook.Side side, double price, int size) {
+            OrderBook.Order order = newOrder(side, price, size);
+            int command = nextCommand(ADD);
+            orders[command] = order;
+        }
+
+        void cancelRandom() {
+            if (liveCount == 0) {
+                return;
+            }
+            int command = nextCommand(CANCEL);
+            orderIds[command] = removeLive(random.nextInt(liveCount));
+        }
+
+        /**
+         * Changes the size of a random live order, in a move by {@code maxTicks} or less also its price.
+         */
+        void amendRandom(int newSize, int maxTicks) {
+            if (liveCount == 0) {
+                return;
+            }
+            int live = random.nextInt(liveCount);
+            int command = nextCommand(AMEND);
+            orderIds[command] = liveIds[live];
+            newSizes[command] = newSize;
+            if (maxTicks == 0) {
+                newPrices[command] = Double.NaN;
+            } else {
+                livePrices[live] += random.nextBoolean() ? random.nextInt(1, maxTicks + 1) : -random.nextInt(1, maxTicks + 1);
+                newPrices[command] = livePrices[live];
+            }
+        }
+
+        OrderFlow build() {
+            if (cyclic) {
+                while (liveCount > 0) {
+                    int command = nextCommand(CANCEL);
+                    orderIds[command] = removeLive(liveCount - 1);
+                }
+            }
+            return new OrderFlow(this);
+        }
+
+        private OrderBook.Order newOrder(OrderBook.Side side, double price, int size) {
+            long id = nextOrderId++;
+            if (liveCount == liveIds.length) {
+                liveIds = Arrays.copyOf(liveIds, liveCount << 1);
+                livePrices = Arrays.copyOf(livePrices, liveCount << 1);
+            }
+            liveIds[liveCount] = id;
+            livePrices[liveCount++] = price;
+            return new ImmutableOrder(id, side, OrderBook.OrderType.LIMIT, TS, price, size);
+        }
+
+        private long removeLive(int live) {
+            long id = liveIds[live];
+            liveIds[live] = liveIds[--liveCount];
+            livePrices[live] = livePrices[liveCount];
+            return id;
+        }
+
+        private int nextCommand(byte command) {
+            if (count == commands.length) {
+                int capacity = count << 1;
+                commands = Arrays.copyOf(commands, capacity);
+                orders = Arrays.copyOf(orders, capacity);
+                orderIds = Arrays.copyOf(orderIds, capacity);
+                newSizes = Arrays.copyOf(newSizes, capacity);
+                newPrices = Arrays.copyOf(newPrices, capacity);
+            }
+            commands[count] = command;
+            return count++;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 
 import java.util.List;
+import java.util.Random;
 import java.util.stream.IntStream;
 
 @State(Scope.Benchmark)
@@ -19,9 +20,10 @@ public class OrdersState {
     @Setup(Level.Trial)
     public void doSetup() {
         OrderManager orderManager = new OrderManager();
+        Random random = new Random(42);
 
         this.orders = IntStream.range(0, ORDERS_SIZE)
-                .mapToObj(x -> orderManager.createOrder(OrderBook.Side.values()[x % 2], OrderBook.OrderType.LIMIT, 100 + Math.round((Math.random() * 10) - 5), 1))
+                .mapToObj(x -> orderManager.createOrder(OrderBook.Side.values()[x % 2], OrderBook.OrderType.LIMIT, 100 + Math.round((random.nextDouble() * 10) - 5), 1))
                 .toList();
     }
 }
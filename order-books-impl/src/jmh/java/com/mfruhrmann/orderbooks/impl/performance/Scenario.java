@@ -0,0 +1,167 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+
+/**
+ * Shapes of order flow the scenario benchmarks replay. Prices are whole ticks around a mid of {@value #MID}, buy orders
+ * below it and sell orders above it unless an order is meant to cross.
+ */
+public enum Scenario {
+    /**
+     * Add, cancel and amend mix close to the touch on a book of 20 levels per side, about one add in five crosses.
+     */
+    MIXED {
+        @Override
+        void generate(OrderFlow.Builder builder, int commands) {
+            restLevels(builder, 20, 5);
+            while (builder.count() < commands) {
+                int action = builder.random.nextInt(100);
+                if (action < 55) {
+                    addAt(builder, randomSide(builder), builder.random.nextInt(-5, 21), builder.random.nextInt(1, 11));
+                } else if (action < 90) {
+                    builder.cancelRandom();
+                } else {
+                    builder.amendRandom(builder.random.nextInt(1, 11), builder.random.nextBoolean() ? 0 : 2);
+                }
+            }
+        }
+    },
+    /**
+     * Passive orders refill a book of 20 levels per side and every 25th order sweeps the first 8 levels of one side.
+     */
+    SWEEP {
+        @Override
+        void generate(OrderFlow.Builder builder, int commands) {
+            restLevels(builder, 20, 5);
+            while (builder.count() < commands) {
+                if (builder.count() % 25 == 0) {
+                    addAt(builder, randomSide(builder), -8, 8 * 5 * 5);
+                } else if (builder.random.nextInt(10) < 7) {
+                    addAt(builder, randomSide(builder), builder.random.nextInt(1, 21), builder.random.nextInt(1, 11));
+                } else {
+                    builder.cancelRandom();
+                }
+            }
+        }
+    },
+    /**
+     * Few levels with long queues: 5 levels per side with 2000 orders each, cancels and amends hit orders deep inside a
+     * queue.
+     */
+    DEEP_BOOK {
+        @Override
+        void generate(OrderFlow.Builder builder, int commands) {
+            restLevels(builder, 5, 2_000);
+            while (builder.count() < commands) {
+                int action = builder.random.nextInt(100);
+                if (action < 45) {
+                    addAt(builder, randomSide(builder), builder.random.nextInt(1, 6), builder.random.nextInt(1, 11));
+                } else if (action < 50) {
+                    addAt(builder, randomSide(builder), -1, builder.random.nextInt(1, 6));
+                } else if (action < 90) {
+                    builder.cancelRandom();
+                } else {
+                    builder.amendRandom(builder.random.nextInt(1, 11), 0);
+                }
+            }
+        }
+    },
+    /**
+     * Many sparse levels: one order on each of 5000 levels per side, orders come and go anywhere in that range.
+     */
+    WIDE_BOOK {
+        @Override
+        void generate(OrderFlow.Builder builder, int commands) {
+            restLevels(builder, 5_000, 1);
+            while (builder.count() < commands) {
+                int action = builder.random.nextInt(100);
+                if (action < 45) {
+                    addAt(builder, randomSide(builder), builder.random.nextInt(1, 5_001), builder.random.nextInt(1, 11));
+                } else if (action < 50) {
+                    addAt(builder, randomSide(builder), -1, builder.random.nextInt(1, 6));
+                } else {
+                    builder.cancelRandom();
+                }
+            }
+        }
+    },
+    /**
+     * Distances from the mid and sizes follow a power law, most orders sit close to the touch and are small while a
+     * few are far out or large. One add in ten crosses by a power law distance too.
+     */
+    POWER_LAW {
+        @Override
+        void generate(OrderFlow.Builder builder, int commands) {
+            for (int i = 0; i < 4_000; i++) {
+                restAt(builder, i % 2 == 0 ? BUY : SELL, powerLaw(builder, 1.5, 5_000), powerLaw(builder, 1.2, 1_000));
+            }
+            while (builder.count() < commands) {
+                int action = builder.random.nextInt(100);
+                if (action < 50) {
+                    addAt(builder, randomSide(builder), powerLaw(builder, 1.5, 5_000), powerLaw(builder, 1.2, 1_000));
+                } else if (action < 55) {
+                    addAt(builder, randomSide(builder), -powerLaw(builder, 1.5, 50), powerLaw(builder, 1.2, 1_000));
+                } else if (action < 90) {
+                    builder.cancelRandom();
+                } else {
+                    builder.amendRandom(powerLaw(builder, 1.2, 1_000), builder.random.nextBoolean() ? 0 : 5);
+                }
+            }
+        }
+    };
+
+    public static final int MID = 10_000;
+
+    /**
+     * Adds the shape specific initial orders and then commands until the flow has {@code commands} of them.
+     */
+    abstract void generate(OrderFlow.Builder builder, int commands);
+
+    /**
+     * @param firstOrderId first id handed out, flows replayed against one book need disjoint id ranges
+     * @param cyclic       whether the flow is replayed over and over on the same book, see {@link OrderFlow.Builder}
+     */
+    public OrderFlow orderFlow(long seed, int commands, long firstOrderId, boolean cyclic) {
+        OrderFlow.Builder builder = new OrderFlow.Builder(seed, firstOrderId, cyclic);
+        generate(builder, commands);
+        return builder.build();
+    }
+
+    private static void restLevels(OrderFlow.Builder builder, int levels, int ordersPerLevel) {
+        for (int level = 1; level <= levels; level++) {
+            for (int i = 0; i < ordersPerLevel; i++) {
+                restAt(builder, BUY, level, builder.random.nextInt(1, 11));
+                restAt(builder, SELL, level, builder.random.nextInt(1, 11));
+            }
+        }
+    }
+
+    private static void restAt(OrderFlow.Builder builder, OrderBook.Side side, int ticksFromMid, int size) {
+        builder.rest(side, price(side, ticksFromMid), size);
+    }
+
+    /**
+     * @param ticksFromMid distance away from the mid on the own side, negative distances cross it
+     */
+    private static void addAt(OrderFlow.Builder builder, OrderBook.Side side, int ticksFromMid, int size) {
+        builder.add(side, price(side, ticksFromMid), size);
+    }
+
+    private static double price(OrderBook.Side side, int ticksFromMid) {
+        return side == BUY ? MID - ticksFromMid : MID + ticksFromMid;
+    }
+
+    private static OrderBook.Side randomSide(OrderFlow.Builder builder) {
+        return builder.random.nextBoolean() ? BUY : SELL;
+    }
+
+    /**
+     * Pareto distributed whole number, 1 or more and capped at {@code max}.
+     */
+    private static int powerLaw(OrderFlow.Builder builder, double alpha, int max) {
+        return (int) Math.min(max, Math.pow(1 - builder.random.nextDouble(), -1 / alpha));
+    }
+}
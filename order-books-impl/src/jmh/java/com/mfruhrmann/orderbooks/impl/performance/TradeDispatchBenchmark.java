@@ -0,0 +1,91 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.dispatch.AsyncTradeListener;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.sequencer.ParkingWaitStrategy;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of an add that fills a resting order while a slow listener (burning {@code listenerTokens} of CPU per trade)
+ * consumes the trades, called on the matching thread ({@code SYNC}) or through an {@link AsyncTradeListener}. With
+ * {@code ASYNC_BLOCK} the book still waits for the listener once it falls behind by the whole ring, {@code ASYNC_DROP}
+ * shows the latency of matching alone. Needs at least two cores to mean anything, the dispatch thread competes with the
+ * benchmark thread otherwise.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class TradeDispatchBenchmark {
+
+    private static final int ROUNDS = 1024;
+
+    public enum Dispatch {
+        SYNC, ASYNC_BLOCK, ASYNC_DROP
+    }
+
+    @Param({"SYNC", "ASYNC_BLOCK", "ASYNC_DROP"})
+    private Dispatch dispatch;
+
+    @Param({"500"})
+    private long listenerTokens;
+
+    private OrderBook.Order[] orders;
+    private int round;
+    private OrderBook orderBook;
+    private AsyncTradeListener asyncTradeListener;
+
+    @Setup(Level.Trial)
+    public void doSetup() {
+        OrderManager orderManager = new OrderManager();
+        orders = new OrderBook.Order[ROUNDS * 2];
+        for (int i = 0; i < ROUNDS; i++) {
+            orders[i * 2] = orderManager.createOrder(OrderBook.Side.SELL, OrderBook.OrderType.LIMIT, 100, 1);
+            orders[i * 2 + 1] = orderManager.createOrder(OrderBook.Side.BUY, OrderBook.OrderType.LIMIT, 100, 1);
+        }
+        orderBook = new TickLadderOrderBook(1, 1024);
+        OrderBook.TradeEventListener slowListener = (tradeId, aggressorOrderId, passiveOrderId, price, size, ts) ->
+                Blackhole.consumeCPU(listenerTokens);
+        if (dispatch == Dispatch.SYNC) {
+            orderBook.addTradeEventListener(slowListener);
+        } else {
+            asyncTradeListener = new AsyncTradeListener(slowListener, 1 << 16, 256,
+                    dispatch == Dispatch.ASYNC_BLOCK ? AsyncTradeListener.OverflowPolicy.BLOCK : AsyncTradeListener.OverflowPolicy.DROP,
+                    new ParkingWaitStrategy());
+            orderBook.addTradeEventListener(asyncTradeListener);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (asyncTradeListener != null) {
+            asyncTradeListener.close();
+        }
+    }
+
+    @Benchmark
+    public long fill() {
+        int first = (round++ & (ROUNDS - 1)) * 2;
+        orderBook.addOrder(orders[first]);
+        return orderBook.addOrder(orders[first + 1]);
+    }
+}
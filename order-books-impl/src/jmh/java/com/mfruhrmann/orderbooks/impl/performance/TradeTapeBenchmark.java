@@ -0,0 +1,132 @@
+package com.mfruhrmann.orderbooks.impl.performance;
+
+import com.mfruhrmann.orderbooks.tape.TradeTape;
+import com.mfruhrmann.orderbooks.tape.TradeTapeReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writing trades to the tape and querying a tenth of its time range back, once by decoding every trade and once by
+ * aggregating, which takes the totals of the blocks inside the range from their headers. Scores are trades per second,
+ * for the queries the trades of the range.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, warmups = 0)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class TradeTapeBenchmark {
+
+    public static final int TRADES_SIZE = 1_000_000;
+    public static final int RANGE_SIZE = TRADES_SIZE / 10;
+    private static final long TS = 1_700_000_000_000_000_000L;
+
+    private long[] aggressorOrderIds;
+    private double[] prices;
+    private int[] sizes;
+    private Path tapeDirectory;
+    private Path writtenTapeDirectory;
+    private TradeTape tradeTape;
+    private TradeTapeReader tradeTapeReader;
+
+    @Setup(Level.Trial)
+    public void doSetup() throws IOException {
+        Random random = new Random(17);
+        aggressorOrderIds = new long[TRADES_SIZE];
+        prices = new double[TRADES_SIZE];
+        sizes = new int[TRADES_SIZE];
+        double price = 100;
+        for (int i = 0; i < TRADES_SIZE; i++) {
+            price = Math.max(1, price + (random.nextInt(3) - 1) * 0.25);
+            aggressorOrderIds[i] = 2L * i + random.nextInt(64);
+            prices[i] = price;
+            sizes[i] = 1 + random.nextInt(100);
+        }
+        tapeDirectory = Files.createTempDirectory("trade-tape");
+        writtenTapeDirectory = Files.createTempDirectory("trade-tape-written");
+        try (TradeTape tradeTape = new TradeTape(tapeDirectory, 0.25)) {
+            write(tradeTape);
+        }
+        tradeTapeReader = new TradeTapeReader(tapeDirectory);
+    }
+
+    /**
+     * A new tape maps its first segment, that stays out of the measurement.
+     */
+    @Setup(Level.Invocation)
+    public void newTape() throws IOException {
+        delete(writtenTapeDirectory);
+        tradeTape = new TradeTape(writtenTapeDirectory, 0.25);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeTape() throws IOException {
+        tradeTape.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(tapeDirectory);
+        delete(writtenTapeDirectory);
+        Files.delete(tapeDirectory);
+        Files.delete(writtenTapeDirectory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRADES_SIZE)
+    public TradeTape write() {
+        write(tradeTape);
+        return tradeTape;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RANGE_SIZE)
+    public long scan(Blackhole blackhole) throws IOException {
+        return tradeTapeReader.scan(TS + 4 * RANGE_SIZE, TS + 5 * RANGE_SIZE,
+                (tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> blackhole.consume(price * size));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RANGE_SIZE)
+    public double aggregate() throws IOException {
+        return tradeTapeReader.aggregate(TS + 4 * RANGE_SIZE, TS + 5 * RANGE_SIZE).vwap();
+    }
+
+    private void write(TradeTape tradeTape) {
+        for (int i = 0; i < TRADES_SIZE; i++) {
+            tradeTape.onTrade(i + 1, aggressorOrderIds[i], aggressorOrderIds[i] - 1, prices[i], sizes[i], TS + i);
+        }
+    }
+
+    /**
+     * Deletes the segments, keeps the directory.
+     */
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .filter(path -> !path.equals(directory))
+                    .forEach(path -> path.toFile().delete());
+        }
+    }
+}
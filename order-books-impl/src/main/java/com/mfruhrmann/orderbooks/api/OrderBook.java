@@ -1,6 +1,5 @@
 package com.mfruhrmann.orderbooks.api;
 
-import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -11,16 +10,54 @@ public interface OrderBook {
      * Adds a new order to the book. The type of the order
      * should determine how the order is added to the book.
      */
-    String addOrder(Order order);
+    long addOrder(Order order);
+
+    /**
+     * Adds the first {@code count} orders in one go, as if {@link #addOrder} was called for each of them, and stores the
+     * results in {@code orderIds}. The book takes its lock and publishes its top of book once for the whole batch, trades
+     * of the whole batch share one timestamp.
+     */
+    void addOrders(Order[] orders, int count, long[] orderIds);
 
     void addTradeListener(OrderBookTradeListener orderBookTradeListener);
 
-    Order getOrder(String id);
+    /**
+     * Registers a garbage free trade listener, trades are published to it without allocating any objects.
+     */
+    void addTradeEventListener(TradeEventListener tradeEventListener);
+
+    /**
+     * Registers a listener for changes of the aggregated quantity of single price levels (L2 deltas), published as a
+     * by-product of adding, matching and cancelling orders.
+     */
+    void addLevelUpdateListener(LevelUpdateListener levelUpdateListener);
+
+    Order getOrder(long id);
 
     /**
      * Removes the order from the book.
      */
-    CancelStatus cancelOrder(String id);
+    CancelStatus cancelOrder(long id);
+
+    /**
+     * Cancels the first {@code count} orders in one go and stores the result of each in {@code cancelStatuses}.
+     */
+    void cancelOrders(long[] ids, int count, CancelStatus[] cancelStatuses);
+
+    /**
+     * Changes the remaining size of a resting order. Reducing the size keeps the place of the order in the queue of its
+     * level, increasing it moves the order to the back of the queue. A size of 0 or less cancels the order.
+     */
+    default AmendStatus amendOrder(long id, int newSize) {
+        return amendOrder(id, newSize, Double.NaN);
+    }
+
+    /**
+     * Changes the remaining size and the price of a resting order, {@code Double.NaN} keeps the price. A new price takes
+     * the order off its level and matches it again like a new limit order, so it trades if it crosses the opposite side
+     * and rests what is left at the back of the queue of the new level.
+     */
+    AmendStatus amendOrder(long id, int newSize, double newPrice);
 
     /**
      * Returns a list of all orders in the book.
@@ -28,21 +65,38 @@ public interface OrderBook {
     List<Order> getAllOrders();
 
     /**
-     * Returns the depth of the order book.
+     * Returns the depth of the order book, the number of price levels on the side that has more of them.
      */
     int getDepth();
 
+    /**
+     * Copies up to {@code n} levels of one side, best price first, into the arrays of the caller, which have to hold
+     * {@code n} elements. Nothing is allocated, so the book can be sampled at a high rate.
+     *
+     * @return number of levels copied, less than {@code n} when the side has fewer levels
+     */
+    int snapshotTopLevels(int n, Side side, double[] prices, long[] quantities);
+
+    /**
+     * Returns the best bid and ask with their sizes as last published by the book. Reading them does not take the lock
+     * of the book and never sees a half applied order.
+     */
     TopOrderBook getTopOrderBook();
 
     Map<Double, Double> getAskLevels();
 
     Map<Double, Double> getBidLevels();
 
+    /**
+     * Only {@link #LIMIT} orders rest in the book, the other types drop what they cannot fill right away. A
+     * {@link #FILL_OR_KILL} order is checked against the crossing size first and rejected without touching the book when
+     * it cannot be filled completely. The ordinal is written to journals and snapshots, so new types go at the end.
+     */
     enum OrderType {
-        //        MARKET,
         LIMIT,
-//        IMMEDIATE_OR_CANCEL,
-//        FILL_OR_KILL /* whole order  must be filled*/
+        MARKET, /* matches at any price */
+        IMMEDIATE_OR_CANCEL,
+        FILL_OR_KILL /* whole order  must be filled*/
     }
 
     enum Side {
@@ -53,19 +107,43 @@ public interface OrderBook {
         CANCELED, NOT_EXISTS
     }
 
+    enum AmendStatus {
+        AMENDED, NOT_EXISTS
+    }
+
 
     interface OrderBookTradeListener {
         void onTrade(OrderBook.Trade trade);
     }
 
+    /**
+     * Alternative to {@link OrderBookTradeListener} where the trade is passed as primitive fields instead of a {@link Trade} record.
+     * The aggressor is the incoming order, the passive order is the one that was resting in the book. {@code ts} is the
+     * time of the trade from the time source of the book, nanoseconds since the epoch unless the book was given another one.
+     */
+    interface TradeEventListener {
+        void onTrade(long tradeId, long aggressorOrderId, long passiveOrderId, double price, int size, long ts);
+    }
+
+    /**
+     * Price level {@code price} on {@code side} now holds {@code quantity}, 0 means the level is gone. The sequence grows by
+     * one with every update of the book, so a gap tells the consumer it missed an update.
+     */
+    interface LevelUpdateListener {
+        void onLevelUpdate(long sequence, Side side, double price, long quantity);
+    }
+
     interface Order {
-        String id();
+        long id();
 
         Side side();
 
         OrderType type();
 
-        Instant ts();
+        /**
+         * @return time the order was created, in nanoseconds since the epoch
+         */
+        long ts();
 
         double price();
 
@@ -74,10 +152,21 @@ public interface OrderBook {
         Order withNewSize(int size);
     }
 
-    record Trade(String id, Set<String> orderIds, long ts, double price, int size) {
+    /**
+     * @param ts time of the trade, in the same unit as {@link TradeEventListener#onTrade}
+     */
+    record Trade(String id, Set<Long> orderIds, long ts, double price, int size) {
     }
 
-    record TopOrderBook(Double bid, double bidSize, Double ask, double askSize) {
+    /**
+     * Best bid and ask of the book. {@code sequence} grows every time the top of the book changes, so readers can tell
+     * whether they have seen a snapshot already. Books that do not track it report 0.
+     */
+    record TopOrderBook(Double bid, double bidSize, Double ask, double askSize, long sequence) {
+
+        public TopOrderBook(Double bid, double bidSize, Double ask, double askSize) {
+            this(bid, bidSize, ask, askSize, 0);
+        }
     }
 
 
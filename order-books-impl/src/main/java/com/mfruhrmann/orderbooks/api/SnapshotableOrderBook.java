@@ -0,0 +1,29 @@
+package com.mfruhrmann.orderbooks.api;
+
+/**
+ * Order book whose state can be copied into a snapshot and restored from it.
+ */
+public interface SnapshotableOrderBook extends OrderBook {
+
+    /**
+     * Visits all resting orders, bids first and then asks, each side from the best price on and each level in time
+     * priority. Adding the visited orders to an empty book in this order rebuilds the same queues.
+     * <p>
+     * The visited order is a view of the resting order that is only valid during the callback, it must not be kept.
+     */
+    void forEachRestingOrder(RestingOrderVisitor visitor);
+
+    int restingOrderCount();
+
+    /**
+     * Id of the last trade, trade ids of a restored book continue behind it. Every fill takes a trade id, also when
+     * nobody listens, so trade ids stay the same when the book is rebuilt from a snapshot or a journal.
+     */
+    long lastTradeId();
+
+    void restoreLastTradeId(long lastTradeId);
+
+    interface RestingOrderVisitor {
+        void onRestingOrder(Order order);
+    }
+}
@@ -1,7 +1,10 @@
 package com.mfruhrmann.orderbooks.api.time;
 
+/**
+ * Clock of a book or an order source. Orders carry nanoseconds since the epoch and the books stamp their trades with the
+ * same unit by default. A book given another source stamps its trades with whatever that source returns.
+ */
 public interface TimeSource {
 
-
     long getCurrentTime();
 }
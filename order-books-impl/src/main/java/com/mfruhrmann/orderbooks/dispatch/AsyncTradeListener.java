@@ -0,0 +1,301 @@
+package com.mfruhrmann.orderbooks.dispatch;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.metrics.LatencyHistogram;
+import com.mfruhrmann.orderbooks.sequencer.WaitStrategy;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hands the trades of a book to a slow listener on a thread of its own, so matching does not wait for it. Register it
+ * with {@link OrderBook#addTradeEventListener} in place of the listener itself, one per slow listener.
+ * <p>
+ * A trade is copied into a preallocated ring of primitive columns, which costs the matching thread a few stores and no
+ * allocation, no lock is taken. The dispatch thread drains the ring in batches of up to {@code maxBatchSize} trades and
+ * calls the listener for each of them in publishing order, a {@link BatchListener} is told about the end of every batch
+ * as well, e.g. to flush or commit once per batch. A listener throwing an exception loses that trade only, it is counted
+ * in {@link #getFailedDeliveries()}.
+ * <p>
+ * When the listener falls behind by the whole ring the {@link OverflowPolicy} applies: {@link OverflowPolicy#BLOCK} makes
+ * the book wait with the given {@link WaitStrategy}, which pushes back on the book and everybody calling it, and
+ * {@link OverflowPolicy#DROP} drops the trade, keeping matching independent of the listener at the price of a gap. The
+ * counters, including the lag in trades, can be read directly or over JMX with {@link #register(String)}.
+ * <p>
+ * The ring has a single producer: the book calling it while holding its monitor (or its matching thread). It must not be
+ * registered with several books. The dispatch thread is started by the constructor and stopped by {@link #close()}.
+ */
+public class AsyncTradeListener implements OrderBook.TradeEventListener, AsyncTradeListenerMBean, AutoCloseable {
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(AsyncTradeListener.class, "head", long.class);
+            TAIL = lookup.findVarHandle(AsyncTradeListener.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final int MAX_LAG = 0;
+    private static final int DROPPED = 1;
+    private static final int PRODUCER_WAITS = 2;
+    private static final int BATCHES = 3;
+    private static final int FAILED_DELIVERIES = 4;
+
+    public enum OverflowPolicy {
+        /* the book waits until the listener has taken a trade out of the full ring */
+        BLOCK,
+        /* the trade is dropped when the ring is full */
+        DROP
+    }
+
+    /**
+     * Listener that also wants to know where a batch ends.
+     */
+    public interface BatchListener extends OrderBook.TradeEventListener {
+        void onEndOfBatch(int trades);
+    }
+
+    private final OrderBook.TradeEventListener listener;
+    private final BatchListener batchListener;
+    private final int mask;
+    private final int maxBatchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final WaitStrategy waitStrategy;
+    private final Thread dispatchThread;
+
+    private final long[] tradeIds;
+    private final long[] aggressorOrderIds;
+    private final long[] passiveOrderIds;
+    private final double[] prices;
+    private final int[] sizes;
+    private final long[] timestamps;
+
+    private final long[] counters = new long[5];
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    // next sequence the dispatch thread delivers, written by the dispatch thread only
+    private long head;
+    // next sequence the book publishes, written by the book only
+    private long tail;
+    // last head seen by the book
+    private long cachedHead;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity     number of trades the ring holds, has to be a power of two
+     * @param maxBatchSize number of trades the listener gets at most before the ring slots are handed back to the book
+     * @param waitStrategy how the book waits for a free slot with {@link OverflowPolicy#BLOCK} and how the dispatch thread
+     *                     waits for trades
+     */
+    public AsyncTradeListener(OrderBook.TradeEventListener listener, int capacity, int maxBatchSize,
+                              OverflowPolicy overflowPolicy, WaitStrategy waitStrategy) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity has to be a power of two of at least 2, got " + capacity);
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize has to be positive, got " + maxBatchSize);
+        }
+        this.listener = listener;
+        this.batchListener = listener instanceof BatchListener ? (BatchListener) listener : null;
+        this.mask = capacity - 1;
+        this.maxBatchSize = maxBatchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.waitStrategy = waitStrategy;
+        this.tradeIds = new long[capacity];
+        this.aggressorOrderIds = new long[capacity];
+        this.passiveOrderIds = new long[capacity];
+        this.prices = new double[capacity];
+        this.sizes = new int[capacity];
+        this.timestamps = new long[capacity];
+        this.dispatchThread = new Thread(this::dispatch, "trade-dispatch");
+        this.dispatchThread.setDaemon(true);
+        this.dispatchThread.start();
+    }
+
+    /**
+     * Adapts a listener taking {@link OrderBook.Trade} objects, the trades are then created on the dispatch thread.
+     */
+    public static OrderBook.TradeEventListener tradeListener(OrderBook.OrderBookTradeListener tradeListener) {
+        return (tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> tradeListener.onTrade(
+                new OrderBook.Trade(String.valueOf(tradeId), Set.of(passiveOrderId, aggressorOrderId), ts, price, size));
+    }
+
+    @Override
+    public void onTrade(long tradeId, long aggressorOrderId, long passiveOrderId, double price, int size, long ts) {
+        long sequence = (long) TAIL.get(this);
+        if (sequence - cachedHead > mask) {
+            cachedHead = (long) HEAD.getAcquire(this);
+            if (sequence - cachedHead > mask && !awaitFreeSlot(sequence)) {
+                increment(DROPPED);
+                return;
+            }
+        }
+        int index = (int) sequence & mask;
+        tradeIds[index] = tradeId;
+        aggressorOrderIds[index] = aggressorOrderId;
+        passiveOrderIds[index] = passiveOrderId;
+        prices[index] = price;
+        sizes[index] = size;
+        timestamps[index] = ts;
+        TAIL.setRelease(this, sequence + 1);
+        // the cached head can be a whole ring behind, the lag is taken from the current one
+        cachedHead = (long) HEAD.getAcquire(this);
+        long lag = sequence + 1 - cachedHead;
+        if (lag > (long) LONGS.getOpaque(counters, MAX_LAG)) {
+            LONGS.setOpaque(counters, MAX_LAG, lag);
+        }
+    }
+
+    /**
+     * @return whether the slot of the sequence is free, false to drop the trade
+     */
+    private boolean awaitFreeSlot(long sequence) {
+        if (overflowPolicy == OverflowPolicy.DROP || !running) {
+            return false;
+        }
+        increment(PRODUCER_WAITS);
+        for (int attempt = 0; sequence - cachedHead > mask; attempt++) {
+            if (!running) {
+                return false;
+            }
+            waitStrategy.idle(attempt);
+            cachedHead = (long) HEAD.getAcquire(this);
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        long sequence = 0;
+        int attempt = 0;
+        while (true) {
+            long published = (long) TAIL.getAcquire(this);
+            if (published == sequence) {
+                // trades published before close are visible once running is seen false
+                if (!running && (long) TAIL.getAcquire(this) == sequence) {
+                    return;
+                }
+                waitStrategy.idle(attempt++);
+                continue;
+            }
+            attempt = 0;
+            long start = System.nanoTime();
+            long batchEnd = Math.min(published, sequence + maxBatchSize);
+            int trades = (int) (batchEnd - sequence);
+            for (; sequence < batchEnd; sequence++) {
+                int index = (int) sequence & mask;
+                try {
+                    listener.onTrade(tradeIds[index], aggressorOrderIds[index], passiveOrderIds[index], prices[index],
+                            sizes[index], timestamps[index]);
+                } catch (RuntimeException e) {
+                    increment(FAILED_DELIVERIES);
+                }
+            }
+            if (batchListener != null) {
+                try {
+                    batchListener.onEndOfBatch(trades);
+                } catch (RuntimeException e) {
+                    increment(FAILED_DELIVERIES);
+                }
+            }
+            HEAD.setRelease(this, sequence);
+            increment(BATCHES);
+            batchLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void increment(int counter) {
+        LONGS.setOpaque(counters, counter, (long) LONGS.getOpaque(counters, counter) + 1);
+    }
+
+    private long counter(int counter) {
+        return (long) LONGS.getOpaque(counters, counter);
+    }
+
+    /**
+     * @return time the listener took per batch, measured on the dispatch thread
+     */
+    public LatencyHistogram batchLatency() {
+        return batchLatency;
+    }
+
+    @Override
+    public long getPublished() {
+        return (long) TAIL.getAcquire(this);
+    }
+
+    @Override
+    public long getDelivered() {
+        return (long) HEAD.getAcquire(this);
+    }
+
+    @Override
+    public long getLag() {
+        long delivered = getDelivered();
+        return getPublished() - delivered;
+    }
+
+    @Override
+    public long getMaxLag() {
+        return counter(MAX_LAG);
+    }
+
+    @Override
+    public long getDropped() {
+        return counter(DROPPED);
+    }
+
+    @Override
+    public long getProducerWaits() {
+        return counter(PRODUCER_WAITS);
+    }
+
+    @Override
+    public long getBatches() {
+        return counter(BATCHES);
+    }
+
+    @Override
+    public long getFailedDeliveries() {
+        return counter(FAILED_DELIVERIES);
+    }
+
+    /**
+     * Registers the counters as {@code com.mfruhrmann.orderbooks:type=TradeListener,name=<listenerName>} and the batch
+     * latency as the same name with {@code latency=batch}, in the platform MBean server.
+     *
+     * @return the names registered, to unregister them again
+     */
+    public List<ObjectName> register(String listenerName) throws JMException {
+        String name = "com.mfruhrmann.orderbooks:type=TradeListener,name=" + ObjectName.quote(listenerName);
+        List<ObjectName> objectNames = List.of(new ObjectName(name), new ObjectName(name + ",latency=batch"));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectNames.get(0));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(batchLatency, objectNames.get(1));
+        return objectNames;
+    }
+
+    /**
+     * Delivers the trades published so far and stops the dispatch thread. The book has to stop publishing before, a book
+     * blocked on the full ring gives up and drops its trade. Returns with the interrupt flag set when interrupted while
+     * waiting for the dispatch thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            dispatchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
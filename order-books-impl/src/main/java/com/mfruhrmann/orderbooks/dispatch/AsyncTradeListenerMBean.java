@@ -0,0 +1,29 @@
+package com.mfruhrmann.orderbooks.dispatch;
+
+/**
+ * JMX view of the queue between a book and one listener of an {@link AsyncTradeListener}.
+ */
+public interface AsyncTradeListenerMBean {
+
+    long getPublished();
+
+    long getDelivered();
+
+    /**
+     * @return trades published but not delivered yet
+     */
+    long getLag();
+
+    long getMaxLag();
+
+    long getDropped();
+
+    /**
+     * @return how often the book had to wait for a free slot
+     */
+    long getProducerWaits();
+
+    long getBatches();
+
+    long getFailedDeliveries();
+}
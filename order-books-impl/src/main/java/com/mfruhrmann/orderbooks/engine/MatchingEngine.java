@@ -0,0 +1,129 @@
+package com.mfruhrmann.orderbooks.engine;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.collections.LongObjectHashMap;
+import com.mfruhrmann.orderbooks.sequencer.Command;
+import com.mfruhrmann.orderbooks.sequencer.CommandRing;
+import com.mfruhrmann.orderbooks.sequencer.SequencedOrderBook;
+import com.mfruhrmann.orderbooks.sequencer.WaitStrategy;
+
+import java.util.function.LongFunction;
+
+/**
+ * Owns the books of many instruments and partitions them across a fixed set of shards, ideally one per core.
+ * <p>
+ * Every shard is a single matching thread fed by its own {@link CommandRing}, an instrument always lives on the same shard
+ * ({@code instrumentId mod shards}) and its book is only ever touched by that thread. Routing an order is a plain array
+ * lookup followed by a lock-free claim on the ring of the shard, so instruments on different shards never contend and
+ * throughput can grow with the number of shards. Books are created lazily by the shard on the first command for the instrument.
+ */
+public class MatchingEngine implements AutoCloseable {
+
+    private final Shard[] shards;
+
+    /**
+     * @param shardCount       number of matching threads
+     * @param ringSize         size of the command ring of every shard, has to be a power of two
+     * @param waitStrategy     used by the matching threads and by the producers waiting for results
+     * @param orderBookFactory creates the book of an instrument, called on the matching thread of its shard
+     */
+    public MatchingEngine(int shardCount, int ringSize, WaitStrategy waitStrategy, LongFunction<OrderBook> orderBookFactory) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount has to be positive, got " + shardCount);
+        }
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, new CommandRing(ringSize, waitStrategy), orderBookFactory);
+        }
+    }
+
+    /**
+     * Returns the book of the instrument, every call on it is executed by the matching thread of the instrument's shard,
+     * only the top of book is read on the calling thread. Creates the book if it does not exist yet, which takes a round
+     * trip through the ring, callers should keep the view instead of looking it up for every order.
+     *
+     * @throws RuntimeException thrown by the factory of the books
+     */
+    public OrderBook orderBook(long instrumentId) {
+        Shard shard = shards[shardIndex(instrumentId)];
+        CommandRing commandRing = shard.commandRing;
+        if (Thread.currentThread() == shard.matchingThread) {
+            // e.g. a stage of a response, waiting for the ring here would wait for itself
+            return new SequencedOrderBook(commandRing, instrumentId, shard.orderBook(instrumentId));
+        }
+        Command command = commandRing.claim().onInstrument(instrumentId).request(Command.Type.GET_ORDER_BOOK, 0, null);
+        OrderBook orderBook;
+        try {
+            commandRing.publishAndAwait(command);
+            orderBook = command.result();
+        } finally {
+            commandRing.release(command);
+        }
+        return new SequencedOrderBook(commandRing, instrumentId, orderBook);
+    }
+
+    /**
+     * Publishes the task to the matching thread of the instrument's shard without waiting for it to be executed, waits
+     * only while the ring of the shard is full.
+     */
+    public void submit(long instrumentId, Command.Task task) {
+        CommandRing commandRing = shards[shardIndex(instrumentId)].commandRing;
+        commandRing.publish(commandRing.claim().onInstrument(instrumentId).task(task));
+    }
+
+    public int shardIndex(long instrumentId) {
+        return (int) Math.floorMod(instrumentId, (long) shards.length);
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Stops all matching threads after they have executed every command claimed before, later claims are rejected.
+     * Returns with the interrupt flag set when interrupted while waiting for the matching threads.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.commandRing.halt();
+        }
+        try {
+            for (Shard shard : shards) {
+                shard.matchingThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Shard implements CommandRing.CommandHandler {
+
+        private final CommandRing commandRing;
+        private final LongFunction<OrderBook> orderBookFactory;
+        private final LongObjectHashMap<OrderBook> orderBooks = new LongObjectHashMap<>();
+        private final Thread matchingThread;
+
+        Shard(int index, CommandRing commandRing, LongFunction<OrderBook> orderBookFactory) {
+            this.commandRing = commandRing;
+            this.orderBookFactory = orderBookFactory;
+            this.matchingThread = new Thread(() -> commandRing.process(this), "matching-shard-" + index);
+            this.matchingThread.setDaemon(true);
+            this.matchingThread.start();
+        }
+
+        @Override
+        public void onCommand(Command command) {
+            command.executeOn(orderBook(command.instrumentId()));
+        }
+
+        private OrderBook orderBook(long instrumentId) {
+            OrderBook orderBook = orderBooks.get(instrumentId);
+            if (orderBook == null) {
+                orderBook = orderBookFactory.apply(instrumentId);
+                orderBooks.put(instrumentId, orderBook);
+            }
+            return orderBook;
+        }
+    }
+}
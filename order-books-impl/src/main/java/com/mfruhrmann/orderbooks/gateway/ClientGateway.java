@@ -0,0 +1,204 @@
+package com.mfruhrmann.orderbooks.gateway;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+
+import com.mfruhrmann.orderbooks.engine.MatchingEngine;
+import com.mfruhrmann.orderbooks.sequencer.Command;
+import com.mfruhrmann.orderbooks.sequencer.ParkingWaitStrategy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Entry point for many concurrent client sessions. Every session runs on a thread of its own, a virtual thread when the
+ * JVM offers them, and never touches a book: its requests are published into the command ring of the
+ * {@link MatchingEngine} shard of the instrument and executed by the matching thread of that shard, the response is
+ * completed asynchronously. Sessions wait only while the ring of a shard is full, with a {@link ParkingWaitStrategy}
+ * that parks a virtual thread without pinning its carrier. The books themselves see a single thread and no contention,
+ * and the number of matching threads is the number of shards, not of instruments.
+ * <p>
+ * Books are created by their shard with the first request for the instrument. Responses are completed on the matching
+ * thread, so stages attached with the non-async methods of {@link CompletableFuture} run there as well and delay every
+ * book of the shard, use the async variants for anything but a few instructions. Trade and level listeners registered
+ * on a book are called on the matching thread, like on a {@link com.mfruhrmann.orderbooks.sequencer.SequencedOrderBook}.
+ */
+public class ClientGateway implements AutoCloseable {
+
+    /**
+     * Work of one client, e.g. reading the commands of its connection and sending back the responses.
+     */
+    @FunctionalInterface
+    public interface Session {
+        void serve(ClientGateway gateway) throws Exception;
+    }
+
+    private final MatchingEngine matchingEngine;
+    private final ExecutorService sessionExecutor;
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    // views of the engine for reading the top of book, they are looked up once per instrument
+    private final ConcurrentHashMap<Long, OrderBook> orderBooks = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+
+    /**
+     * @param orderBookFactory creates the book of an instrument, called on the matching thread of its shard
+     * @param shardCount       number of matching threads
+     * @param ringSize         size of the command ring of every shard, has to be a power of two
+     */
+    public ClientGateway(LongFunction<OrderBook> orderBookFactory, int shardCount, int ringSize) {
+        this(new MatchingEngine(shardCount, ringSize, new ParkingWaitStrategy(), orderBookFactory), newSessionExecutor());
+    }
+
+    /**
+     * @param matchingEngine  executes the requests, closed with the gateway
+     * @param sessionExecutor runs the sessions, shut down with the gateway
+     */
+    public ClientGateway(MatchingEngine matchingEngine, ExecutorService sessionExecutor) {
+        this.matchingEngine = matchingEngine;
+        this.sessionExecutor = sessionExecutor;
+    }
+
+    /**
+     * One virtual thread per task when the JVM has virtual threads (Java 21, looked up reflectively as the code is built
+     * for Java 17), otherwise a cached pool of daemon platform threads, which costs a platform thread per active session.
+     */
+    public static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "gateway-session-" + threads.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+    }
+
+    /**
+     * Runs the session on the session executor.
+     *
+     * @return completed when the session has ended, exceptionally with the exception it has thrown
+     */
+    public CompletableFuture<Void> startSession(Session session) {
+        CompletableFuture<Void> end = new CompletableFuture<>();
+        activeSessions.incrementAndGet();
+        try {
+            sessionExecutor.execute(() -> {
+                Exception failure = null;
+                try {
+                    session.serve(this);
+                } catch (Exception e) {
+                    failure = e;
+                }
+                activeSessions.decrementAndGet();
+                if (failure == null) {
+                    end.complete(null);
+                } else {
+                    end.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            activeSessions.decrementAndGet();
+            throw e;
+        }
+        return end;
+    }
+
+    public CompletableFuture<Long> addOrder(long instrumentId, OrderBook.Order order) {
+        return submit(instrumentId, orderBook -> orderBook.addOrder(order));
+    }
+
+    public CompletableFuture<OrderBook.CancelStatus> cancelOrder(long instrumentId, long orderId) {
+        return submit(instrumentId, orderBook -> orderBook.cancelOrder(orderId));
+    }
+
+    public CompletableFuture<OrderBook.AmendStatus> amendOrder(long instrumentId, long orderId, int newSize, double newPrice) {
+        return submit(instrumentId, orderBook -> orderBook.amendOrder(orderId, newSize, newPrice));
+    }
+
+    /**
+     * Reads the top of book on the calling thread without queueing behind the requests of the instrument.
+     *
+     * @return completed right away, exceptionally when the book of the instrument could not be created
+     * @throws IllegalStateException when the gateway has been closed
+     */
+    public CompletableFuture<OrderBook.TopOrderBook> getTopOrderBook(long instrumentId) {
+        if (!running) {
+            throw new IllegalStateException("Client gateway has been closed");
+        }
+        OrderBook orderBook = orderBooks.get(instrumentId);
+        if (orderBook == null) {
+            try {
+                orderBook = matchingEngine.orderBook(instrumentId);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            orderBooks.putIfAbsent(instrumentId, orderBook);
+        }
+        return CompletableFuture.completedFuture(orderBook.getTopOrderBook());
+    }
+
+    /**
+     * Publishes the request to the matching thread of the instrument, waiting while the ring of its shard is full. The
+     * request runs on the matching thread and must not keep references to the book or to the results it reads from it
+     * beyond the response.
+     *
+     * @return completed with the result of the request, exceptionally with the exception it has thrown or when the book
+     * of the instrument could not be created
+     * @throws IllegalStateException when the gateway has been closed
+     */
+    public <T> CompletableFuture<T> submit(long instrumentId, Function<OrderBook, ? extends T> request) {
+        if (!running) {
+            throw new IllegalStateException("Client gateway has been closed");
+        }
+        CompletableFuture<T> response = new CompletableFuture<>();
+        // a request racing with close is either rejected by the ring of its shard or executed before the shard stops
+        matchingEngine.submit(instrumentId, new Request<>(request, response));
+        return response;
+    }
+
+    public int activeSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Stops taking new sessions and requests and stops the matching threads after they have executed the requests
+     * accepted before, every response returned by {@link #submit} is completed. Returns with the interrupt flag set when
+     * interrupted while waiting for the matching threads.
+     */
+    @Override
+    public void close() {
+        running = false;
+        sessionExecutor.shutdown();
+        matchingEngine.close();
+    }
+
+    private record Request<T>(Function<OrderBook, ? extends T> action, CompletableFuture<T> response) implements Command.Task {
+
+        @Override
+        public void executeOn(OrderBook orderBook) {
+            T result;
+            try {
+                result = action.apply(orderBook);
+            } catch (RuntimeException e) {
+                response.completeExceptionally(e);
+                return;
+            }
+            response.complete(result);
+        }
+
+        @Override
+        public void fail(RuntimeException failure) {
+            response.completeExceptionally(failure);
+        }
+    }
+}
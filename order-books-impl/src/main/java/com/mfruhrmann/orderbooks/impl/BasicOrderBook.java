@@ -1,180 +1,423 @@
 package com.mfruhrmann.orderbooks.impl;
 
-import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.SnapshotableOrderBook;
 import com.mfruhrmann.orderbooks.api.time.TimeSource;
-import com.mfruhrmann.orderbooks.impl.time.SystemMillisTImesource;
+import com.mfruhrmann.orderbooks.impl.collections.LongObjectHashMap;
+import com.mfruhrmann.orderbooks.impl.collections.LongObjectSortedMap;
+import com.mfruhrmann.orderbooks.impl.time.SystemEpochNanosTimeSource;
+import com.mfruhrmann.orderbooks.metrics.OrderBookMetrics;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
 
 import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.CANCELED;
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.NOT_EXISTS;
 
 /**
  * Basic implementation of the order book serving as a foundation for further improvements and as a baseline for performance comparison.
  * This implementation is thread-safe but the thread safety is done in a very basic way where we synchronize on the whole class,
  * so the performance of this implementation is expected to be relatively the lowest.
+ * Orders of a price level are kept in an intrusive {@link PriceLevel} queue, so cancelling an order is O(1).
+ * Prices are fixed-point, the levels are keyed by tick in a sorted array map, see {@link PriceTicks}.
  */
-public class BasicOrderBook implements OrderBook {
+public class BasicOrderBook implements SnapshotableOrderBook {
+
+    /**
+     * Fine enough for prices with up to 8 decimals, which the default book keeps exactly.
+     */
+    public static final double DEFAULT_PRICE_STEP = 1e-8;
 
-    public static final Deque<Order> EMPTY_LIST = new LinkedList<>();
     private final List<OrderBookTradeListener> tradeListeners = new ArrayList<>();
+    private final List<TradeEventListener> tradeEventListeners = new ArrayList<>();
+    private final List<LevelUpdateListener> levelUpdateListeners = new ArrayList<>();
 
     private final AtomicLong tradeIdGenerator = new AtomicLong();
+    private long levelUpdateSequence;
+
+    private final LongObjectHashMap<OrderNode> orders = new LongObjectHashMap<>();
+    private final LongObjectSortedMap<PriceLevel> asks = new LongObjectSortedMap<>(false);
+    private final LongObjectSortedMap<PriceLevel> bids = new LongObjectSortedMap<>(true);
+    private final PriceTicks priceTicks;
+
+    private final TopOfBookSeqLock topOfBook = new TopOfBookSeqLock();
+
+    private final TradeClock tradeClock;
 
-    private final Map<String, Order> orders = new HashMap<>();
-    private final TreeMap<Double, Deque<Order>> asks = new TreeMap<>();
-    private final TreeMap<Double, Deque<Order>> bids = new TreeMap<>(Comparator.reverseOrder());
+    private OrderBookMetrics metrics = OrderBookMetrics.DISABLED;
 
-    private final TimeSource timeSource = new SystemMillisTImesource(); // can be arg in future
+    public BasicOrderBook() {
+        this(DEFAULT_PRICE_STEP);
+    }
+
+    /**
+     * @param priceStep minimal price increment (tick size) of the instrument, prices of incoming orders are rounded to it
+     */
+    public BasicOrderBook(double priceStep) {
+        this(priceStep, SystemEpochNanosTimeSource.INSTANCE);
+    }
+
+    /**
+     * @param priceStep  minimal price increment (tick size) of the instrument, prices of incoming orders are rounded to it
+     * @param timeSource clock the trades are stamped with, read once per incoming order that trades
+     */
+    public BasicOrderBook(double priceStep, TimeSource timeSource) {
+        this.priceTicks = new PriceTicks(priceStep);
+        this.tradeClock = new TradeClock(timeSource);
+    }
+
+    /**
+     * Starts recording counters and latencies into {@code metrics}, see {@link OrderBookMetrics}.
+     */
+    public synchronized void setMetrics(OrderBookMetrics metrics) {
+        this.metrics = metrics;
+    }
 
     @Override
-    public synchronized String addOrder(Order order) {
-        BidAsk bidAsk = getBidAsk();
-        if (order.type() == OrderType.LIMIT) {
-            if (order.side() == Side.BUY) {
-                Double bestAsk = bidAsk.ask();
-                if (bestAsk == null || bestAsk > order.price()) {
-                    orders.put(order.id(), order);
-                    bids.computeIfAbsent(order.price(), aDouble -> new LinkedList<>()).add(order);
-                    //we add to the bids
-                } else {
-                    //we have a trade
-                    handleTrade(order, asks, bids);
-                }
-            } else if (order.side() == Side.SELL) {
-                Double bestBid = bidAsk.bid();
-                if (bestBid == null || bestBid < order.price()) {
-                    orders.put(order.id(), order);
-                    asks.computeIfAbsent(order.price(), aDouble -> new LinkedList<>()).add(order);
-                } else {
-                    //we have a trade
-                    handleTrade(order, bids, asks);
-                }
+    public synchronized long addOrder(Order order) {
+        tradeClock.reset();
+        long startTime = metrics.startAdd();
+        long lastTradeId = tradeIdGenerator.get();
+        match(order);
+        publishTopOfBook();
+        metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+
+        return order.id();
+    }
+
+    @Override
+    public synchronized void addOrders(Order[] orders, int count, long[] orderIds) {
+        tradeClock.reset();
+        for (int i = 0; i < count; i++) {
+            long startTime = metrics.startAdd();
+            long lastTradeId = tradeIdGenerator.get();
+            match(orders[i]);
+            orderIds[i] = orders[i].id();
+            metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+        }
+        publishTopOfBook();
+    }
+
+    /**
+     * Matches the order against the opposite side as far as it crosses and rests the remainder of a limit order. The
+     * price is converted to ticks once, matching only compares ticks.
+     */
+    private void match(Order order) {
+        long tick = priceTicks.toTick(order.price());
+        if (order.side() == Side.BUY) {
+            if (order.type() != OrderType.FILL_OR_KILL || canFill(order, tick, asks)) {
+                matchAndRest(order, tick, asks, bids);
+            }
+        } else if (order.side() == Side.SELL) {
+            if (order.type() != OrderType.FILL_OR_KILL || canFill(order, tick, bids)) {
+                matchAndRest(order, tick, bids, asks);
             }
         }
+    }
 
-        return order.id();
+    private void matchAndRest(Order order, long tick, LongObjectSortedMap<PriceLevel> orderBookSide, LongObjectSortedMap<PriceLevel> oppositeSide) {
+        int sizeLeftToMatch = handleTrade(order, tick, orderBookSide);
+        if (sizeLeftToMatch > 0 && order.type() == OrderType.LIMIT) {
+            addToBook(new OrderNode().set(order, sizeLeftToMatch), tick, oppositeSide);
+        }
     }
 
-    private void handleTrade(Order incomingOrder, TreeMap<Double, Deque<Order>> orderBookSide, TreeMap<Double, Deque<Order>> oppositeSide) {
+    /**
+     * Sums the totals of the crossing levels, the orders of a level are not walked.
+     */
+    private static boolean canFill(Order incomingOrder, long tick, LongObjectSortedMap<PriceLevel> orderBookSide) {
+        long available = 0;
+        for (int rank = 0; rank < orderBookSide.size(); rank++) {
+            if (!crosses(incomingOrder.side(), tick, orderBookSide.keyAt(rank))) {
+                return false;
+            }
+            available += orderBookSide.valueAt(rank).totalSize();
+            if (available >= incomingOrder.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addToBook(OrderNode node, long tick, LongObjectSortedMap<PriceLevel> orderBookSide) {
+        orders.put(node.id, node);
+        PriceLevel level = orderBookSide.get(tick);
+        if (level == null) {
+            level = new PriceLevel();
+            level.tick = tick;
+            orderBookSide.put(tick, level);
+            metrics.onLevelCreated();
+        }
+        level.append(node);
+        notifyLevelUpdateListeners(node.side, priceTicks.toPrice(tick), level.totalSize());
+    }
+
+    /**
+     * @return size of the incoming order left after matching
+     */
+    private int handleTrade(Order incomingOrder, long tick, LongObjectSortedMap<PriceLevel> orderBookSide) {
         var sizeLeftToMatch = incomingOrder.size();
-        var orderBookIterator = orderBookSide.entrySet().iterator();
-        while (orderBookIterator.hasNext()) {
-            var nextLevelEntry = orderBookIterator.next();
-            var price = nextLevelEntry.getKey();
-            var ordersForLevel = nextLevelEntry.getValue();
-            var nextOrderIterator = ordersForLevel.iterator();
-
-            while (nextOrderIterator.hasNext() && sizeLeftToMatch > 0) {
-                Order nextOrder = nextOrderIterator.next();
+        var restingSide = incomingOrder.side() == Side.BUY ? Side.SELL : Side.BUY;
+        while (!orderBookSide.isEmpty() && sizeLeftToMatch > 0) {
+            var levelTick = orderBookSide.keyAt(0);
+            if (incomingOrder.type() != OrderType.MARKET && !crosses(incomingOrder.side(), tick, levelTick)) {  //we cannot match further trades
+                break;
+            }
+            var ordersForLevel = orderBookSide.valueAt(0);
+
+            while (!ordersForLevel.isEmpty() && sizeLeftToMatch > 0) {
+                OrderNode nextOrder = ordersForLevel.first();
                 if (sizeLeftToMatch >= nextOrder.size()) {
                     //remove order
-                    nextOrderIterator.remove();
+                    ordersForLevel.unlink(nextOrder);
                     this.orders.remove(nextOrder.id());
                     //create a trade
                     notifyTradeListeners(incomingOrder, nextOrder, nextOrder.size());
                     sizeLeftToMatch -= nextOrder.size();
                 } else {
-                    //handle partial order
-                    nextOrderIterator.remove();
-                    this.orders.remove(nextOrder.id());
-
-                    int size = nextOrder.size() - sizeLeftToMatch;
-                    ordersForLevel.offerFirst(nextOrder.withNewSize(size));
+                    //handle partial order, the order keeps its place in the queue
+                    ordersForLevel.reduce(nextOrder, sizeLeftToMatch);
                     //create a trade
                     notifyTradeListeners(incomingOrder, nextOrder, sizeLeftToMatch);
-
-                    sizeLeftToMatch -= nextOrder.size();
+                    sizeLeftToMatch = 0;
                 }
             }
-            if (orderBookSide.getOrDefault(incomingOrder.price(), EMPTY_LIST).isEmpty()) {
-                orderBookIterator.remove();
-            }
-            if (incomingOrder.type() == OrderType.LIMIT && price == incomingOrder.price()) {  //we cannot match further trades
-                break;
+            notifyLevelUpdateListeners(restingSide, priceTicks.toPrice(levelTick), ordersForLevel.totalSize());
+            if (ordersForLevel.isEmpty()) {
+                orderBookSide.removeAt(0);
+                metrics.onLevelRemoved();
             }
         }
-        if (sizeLeftToMatch > 0) {
-            Order incomingOrderWithNoMatch = new ImmutableOrder(incomingOrder.id(), incomingOrder.side(), incomingOrder.type(), incomingOrder.ts(), incomingOrder.price(), sizeLeftToMatch);
-            this.orders.put(incomingOrderWithNoMatch.id(), incomingOrderWithNoMatch);
-            oppositeSide.computeIfAbsent(incomingOrder.price(), price -> new LinkedList<>()).add(incomingOrderWithNoMatch);
+        return sizeLeftToMatch;
+    }
 
-        }
+    private static boolean crosses(Side side, long tick, long levelTick) {
+        return side == Side.BUY ? levelTick <= tick : levelTick >= tick;
     }
 
     private void notifyTradeListeners(Order order, Order match, int sizeLeftToMatch) {
-        tradeListeners.forEach(orderBookTradeListener -> orderBookTradeListener.onTrade(
-                new Trade(String.valueOf(tradeIdGenerator.incrementAndGet()),
-                        Set.of(match.id(), order.id()),
-                        timeSource.getCurrentTime(),
-                        match.price(),
-                        sizeLeftToMatch)));
+        long tradeId = tradeIdGenerator.incrementAndGet();
+        metrics.onTrade();
+        if (tradeListeners.isEmpty() && tradeEventListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long ts = tradeClock.time();
+        for (int i = 0; i < tradeEventListeners.size(); i++) {
+            tradeEventListeners.get(i).onTrade(tradeId, order.id(), match.id(), match.price(), sizeLeftToMatch, ts);
+        }
+        for (int i = 0; i < tradeListeners.size(); i++) {
+            tradeListeners.get(i).onTrade(
+                    new Trade(String.valueOf(tradeId),
+                            Set.of(match.id(), order.id()),
+                            ts,
+                            match.price(),
+                            sizeLeftToMatch));
+        }
+        metrics.recordDispatch(dispatchStartTime);
     }
 
-    private BidAsk getBidAsk() {
-        var bid = bids.isEmpty() || bids.firstEntry().getValue().isEmpty() ? null : bids.firstKey();
-
-        var ask = asks.isEmpty() || asks.firstEntry().getValue().isEmpty() ? null : asks.firstKey();
-        return new BidAsk(bid, ask);
+    private void notifyLevelUpdateListeners(Side side, double price, long quantity) {
+        if (levelUpdateListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long sequence = ++levelUpdateSequence;
+        for (int i = 0; i < levelUpdateListeners.size(); i++) {
+            levelUpdateListeners.get(i).onLevelUpdate(sequence, side, price, quantity);
+        }
+        metrics.recordDispatch(dispatchStartTime);
     }
 
-
     @Override
     public void addTradeListener(OrderBookTradeListener orderBookTradeListener) {
         tradeListeners.add(orderBookTradeListener);
     }
 
     @Override
-    public synchronized Order getOrder(String id) {
-        return orders.get(id);
+    public void addTradeEventListener(TradeEventListener tradeEventListener) {
+        tradeEventListeners.add(tradeEventListener);
     }
 
     @Override
-    public synchronized CancelStatus cancelOrder(String id) {
+    public void addLevelUpdateListener(LevelUpdateListener levelUpdateListener) {
+        levelUpdateListeners.add(levelUpdateListener);
+    }
+
+    @Override
+    public synchronized Order getOrder(long id) {
+        OrderNode node = orders.get(id);
+        return node == null ? null : node.toImmutableOrder();
+    }
+
+    @Override
+    public synchronized CancelStatus cancelOrder(long id) {
+        long startTime = metrics.startCancel();
+        CancelStatus cancelStatus = cancel(id);
+        publishTopOfBook();
+        metrics.recordCancel(startTime, cancelStatus == CANCELED);
+        return cancelStatus;
+    }
+
+    @Override
+    public synchronized void cancelOrders(long[] ids, int count, CancelStatus[] cancelStatuses) {
+        for (int i = 0; i < count; i++) {
+            long startTime = metrics.startCancel();
+            cancelStatuses[i] = cancel(ids[i]);
+            metrics.recordCancel(startTime, cancelStatuses[i] == CANCELED);
+        }
+        publishTopOfBook();
+    }
+
+    private CancelStatus cancel(long id) {
+        OrderNode node = orders.remove(id);
+        if (node == null) {
+            return NOT_EXISTS;
+        }
+        removeFromLevel(node);
         return CANCELED;
     }
 
+    private void removeFromLevel(OrderNode node) {
+        PriceLevel level = node.level;
+        level.unlink(node);
+        if (level.isEmpty()) {
+            (node.side == Side.BUY ? bids : asks).remove(level.tick);
+            metrics.onLevelRemoved();
+        }
+        notifyLevelUpdateListeners(node.side, priceTicks.toPrice(level.tick), level.totalSize());
+    }
+
+    @Override
+    public synchronized AmendStatus amendOrder(long id, int newSize, double newPrice) {
+        OrderNode node = orders.get(id);
+        if (node == null) {
+            return AmendStatus.NOT_EXISTS;
+        }
+        tradeClock.reset();
+        if (newSize <= 0) {
+            cancel(id);
+        } else if (Double.isNaN(newPrice) || priceTicks.toTick(newPrice) == node.level.tick) {
+            amendSize(node, newSize);
+        } else {
+            amendPrice(node, newSize, newPrice);
+        }
+        publishTopOfBook();
+        return AmendStatus.AMENDED;
+    }
+
+    private void amendSize(OrderNode node, int newSize) {
+        PriceLevel level = node.level;
+        if (newSize < node.size) {
+            level.reduce(node, node.size - newSize);
+        } else if (newSize > node.size) {
+            level.unlink(node);
+            node.size = newSize;
+            level.append(node);
+        } else {
+            return;
+        }
+        notifyLevelUpdateListeners(node.side, priceTicks.toPrice(level.tick), level.totalSize());
+    }
+
+    /**
+     * The remainder rests in the node of the order.
+     */
+    private void amendPrice(OrderNode node, int newSize, double newPrice) {
+        orders.remove(node.id);
+        removeFromLevel(node);
+        node.price = newPrice;
+        node.size = newSize;
+        long tick = priceTicks.toTick(newPrice);
+        int sizeLeftToMatch = handleTrade(node, tick, node.side == Side.BUY ? asks : bids);
+        if (sizeLeftToMatch > 0) {
+            node.size = sizeLeftToMatch;
+            addToBook(node, tick, node.side == Side.BUY ? bids : asks);
+        }
+    }
+
     @Override
     public synchronized List<Order> getAllOrders() {
-        return new ArrayList<>(orders.values());
+        List<Order> allOrders = new ArrayList<>(orders.size());
+        orders.forEachValue(node -> allOrders.add(node.toImmutableOrder()));
+        return allOrders;
+    }
+
+    @Override
+    public synchronized void forEachRestingOrder(RestingOrderVisitor visitor) {
+        forEachRestingOrder(bids, visitor);
+        forEachRestingOrder(asks, visitor);
+    }
+
+    private static void forEachRestingOrder(LongObjectSortedMap<PriceLevel> orderBookSide, RestingOrderVisitor visitor) {
+        for (int rank = 0; rank < orderBookSide.size(); rank++) {
+            for (OrderNode node = orderBookSide.valueAt(rank).first(); node != null; node = node.next) {
+                visitor.onRestingOrder(node);
+            }
+        }
+    }
+
+    @Override
+    public synchronized int restingOrderCount() {
+        return orders.size();
+    }
+
+    @Override
+    public long lastTradeId() {
+        return tradeIdGenerator.get();
+    }
+
+    @Override
+    public void restoreLastTradeId(long lastTradeId) {
+        tradeIdGenerator.set(lastTradeId);
     }
 
     @Override
-    public int getDepth() {
-        return 0;
+    public synchronized int getDepth() {
+        return Math.max(bids.size(), asks.size());
+    }
+
+    @Override
+    public synchronized int snapshotTopLevels(int n, Side side, double[] prices, long[] quantities) {
+        LongObjectSortedMap<PriceLevel> orderBookSide = side == Side.BUY ? bids : asks;
+        int levels = Math.min(n, orderBookSide.size());
+        for (int rank = 0; rank < levels; rank++) {
+            prices[rank] = priceTicks.toPrice(orderBookSide.keyAt(rank));
+            quantities[rank] = orderBookSide.valueAt(rank).totalSize();
+        }
+        return levels;
     }
 
     @Override
     public TopOrderBook getTopOrderBook() {
-        var bid = bids.isEmpty() || bids.firstEntry().getValue().isEmpty() ? null : bids.firstKey();
-        var bidSize = bids.isEmpty() ? 0.0 : bids.firstEntry().getValue().stream().mapToDouble(Order::size).sum();
+        return topOfBook.read();
+    }
 
-        var ask = asks.isEmpty() || asks.firstEntry().getValue().isEmpty() ? null : asks.firstKey();
-        var askSize = asks.isEmpty() ? 0.0 : asks.firstEntry().getValue().stream().mapToDouble(Order::size).sum();
-        return new TopOrderBook(bid, bidSize, ask, askSize);
+    private void publishTopOfBook() {
+        topOfBook.publish(
+                bids.isEmpty() ? Double.NaN : priceTicks.toPrice(bids.keyAt(0)), bids.isEmpty() ? 0 : bids.valueAt(0).totalSize(),
+                asks.isEmpty() ? Double.NaN : priceTicks.toPrice(asks.keyAt(0)), asks.isEmpty() ? 0 : asks.valueAt(0).totalSize());
+        metrics.updateDepth(bids.size(), asks.size(), orders.size());
     }
 
     @Override
     public Map<Double, Double> getAskLevels() {
-        return asks.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().stream().mapToDouble(Order::size).sum()));
+        return getLevels(asks);
     }
 
     @Override
     public Map<Double, Double> getBidLevels() {
-        return bids.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().stream().mapToDouble(Order::size).sum()));
+        return getLevels(bids);
     }
 
-    record BidAsk(Double bid, Double ask) {
+    private Map<Double, Double> getLevels(LongObjectSortedMap<PriceLevel> orderBookSide) {
+        Map<Double, Double> levels = new HashMap<>();
+        for (int rank = 0; rank < orderBookSide.size(); rank++) {
+            levels.put(priceTicks.toPrice(orderBookSide.keyAt(rank)), (double) orderBookSide.valueAt(rank).totalSize());
+        }
+        return levels;
     }
 }
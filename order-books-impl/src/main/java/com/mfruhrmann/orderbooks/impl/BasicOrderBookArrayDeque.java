@@ -1,12 +1,15 @@
 package com.mfruhrmann.orderbooks.impl;
 
 import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.time.TimeSource;
+import com.mfruhrmann.orderbooks.impl.collections.LongObjectHashMap;
+import com.mfruhrmann.orderbooks.impl.time.SystemEpochNanosTimeSource;
+import com.mfruhrmann.orderbooks.metrics.OrderBookMetrics;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -15,6 +18,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.CANCELED;
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.NOT_EXISTS;
 
 /**
  * The only difference is underlying collection that stores orders for a given level. In this implementation it's ArrayDeque.
@@ -23,46 +27,98 @@ public class BasicOrderBookArrayDeque implements OrderBook {
 
     public static final Deque<Order> EMPTY_LIST = new ArrayDeque<>();
     private final List<OrderBookTradeListener> tradeListeners = new ArrayList<>();
+    private final List<TradeEventListener> tradeEventListeners = new ArrayList<>();
+    private final List<LevelUpdateListener> levelUpdateListeners = new ArrayList<>();
 
     private final AtomicLong tradeIdGenerator = new AtomicLong();
+    private long levelUpdateSequence;
 
-    private final Map<String, Order> orders = new HashMap<>();
+    private final LongObjectHashMap<Order> orders = new LongObjectHashMap<>();
     private final TreeMap<Double, Deque<Order>> asks = new TreeMap<>();
     private final TreeMap<Double, Deque<Order>> bids = new TreeMap<>(Comparator.reverseOrder());
 
-    private static long getCurrentTime() {
-        return System.nanoTime();
+    private final TradeClock tradeClock;
+    private final TopOfBookSeqLock topOfBook = new TopOfBookSeqLock();
+    private OrderBookMetrics metrics = OrderBookMetrics.DISABLED;
+
+    public BasicOrderBookArrayDeque() {
+        this(SystemEpochNanosTimeSource.INSTANCE);
+    }
+
+    /**
+     * @param timeSource clock the trades are stamped with, read once per incoming order that trades
+     */
+    public BasicOrderBookArrayDeque(TimeSource timeSource) {
+        this.tradeClock = new TradeClock(timeSource);
+    }
+
+    /**
+     * Starts recording counters and latencies into {@code metrics}, see {@link OrderBookMetrics}.
+     */
+    public synchronized void setMetrics(OrderBookMetrics metrics) {
+        this.metrics = metrics;
     }
 
     @Override
-    public synchronized String addOrder(Order order) {
+    public synchronized long addOrder(Order order) {
+        tradeClock.reset();
+        long startTime = metrics.startAdd();
+        long lastTradeId = tradeIdGenerator.get();
+        long orderId = addOrderUnpublished(order);
+        publishTopOfBook();
+        metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+        return orderId;
+    }
+
+    private long addOrderUnpublished(Order order) {
+        if (order.type() != OrderType.LIMIT) {
+            throw new IllegalArgumentException("This baseline implementation only supports LIMIT orders, got " + order.type());
+        }
         BidAsk bidAsk = getBidAsk();
-        if (order.type() == OrderType.LIMIT) {
-            if (order.side() == Side.BUY) {
-                Double bestAsk = bidAsk.ask();
-                if (bestAsk == null || bestAsk > order.price()) {
-                    orders.put(order.id(), order);
-                    bids.computeIfAbsent(order.price(), aDouble -> new ArrayDeque<>()).add(order);
-                    //we add to the bids
-                } else {
-                    //we have a trade
-                    handleTrade(order, asks, bids);
-                }
-            } else if (order.side() == Side.SELL) {
-                Double bestBid = bidAsk.bid();
-                if (bestBid == null || bestBid < order.price()) {
-                    orders.put(order.id(), order);
-                    asks.computeIfAbsent(order.price(), aDouble -> new ArrayDeque<>()).add(order);
-                } else {
-                    //we have a trade
-                    handleTrade(order, bids, asks);
-                }
+        if (order.side() == Side.BUY) {
+            Double bestAsk = bidAsk.ask();
+            if (bestAsk == null || bestAsk > order.price()) {
+                orders.put(order.id(), order);
+                Deque<Order> level = levelOf(bids, order.price());
+                level.add(order);
+                notifyLevelUpdateListeners(Side.BUY, order.price(), level);
+                //we add to the bids
+            } else {
+                //we have a trade
+                handleTrade(order, asks, bids);
+            }
+        } else if (order.side() == Side.SELL) {
+            Double bestBid = bidAsk.bid();
+            if (bestBid == null || bestBid < order.price()) {
+                orders.put(order.id(), order);
+                Deque<Order> level = levelOf(asks, order.price());
+                level.add(order);
+                notifyLevelUpdateListeners(Side.SELL, order.price(), level);
+            } else {
+                //we have a trade
+                handleTrade(order, bids, asks);
             }
         }
 
         return order.id();
     }
 
+    @Override
+    public synchronized void addOrders(Order[] orders, int count, long[] orderIds) {
+        tradeClock.reset();
+        try {
+            for (int i = 0; i < count; i++) {
+                long startTime = metrics.startAdd();
+                long lastTradeId = tradeIdGenerator.get();
+                orderIds[i] = addOrderUnpublished(orders[i]);
+                metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+            }
+        } finally {
+            // the orders before a rejected one have been added
+            publishTopOfBook();
+        }
+    }
+
     private void handleTrade(Order incomingOrder, TreeMap<Double, Deque<Order>> orderBookSide, TreeMap<Double, Deque<Order>> oppositeSide) {
         var sizeLeftToMatch = incomingOrder.size();
         var orderBookIterator = orderBookSide.entrySet().iterator();
@@ -80,22 +136,26 @@ public class BasicOrderBookArrayDeque implements OrderBook {
                     this.orders.remove(nextOrder.id());
                     //create a trade
                     notifyTradeListeners(incomingOrder, nextOrder, nextOrder.size());
+                    notifyLevelUpdateListeners(nextOrder.side(), price, ordersForLevel);
                     sizeLeftToMatch -= nextOrder.size();
                 } else {
                     //handle partial order
                     nextOrderIterator.remove();
-                    this.orders.remove(nextOrder.id());
 
                     int size = nextOrder.size() - sizeLeftToMatch;
-                    ordersForLevel.offerFirst(nextOrder.withNewSize(size));
+                    Order reducedOrder = nextOrder.withNewSize(size);
+                    ordersForLevel.offerFirst(reducedOrder);
+                    this.orders.put(reducedOrder.id(), reducedOrder);
                     //create a trade
                     notifyTradeListeners(incomingOrder, nextOrder, sizeLeftToMatch);
+                    notifyLevelUpdateListeners(nextOrder.side(), price, ordersForLevel);
 
                     sizeLeftToMatch -= nextOrder.size();
                 }
             }
-            if (orderBookSide.getOrDefault(incomingOrder.price(), EMPTY_LIST).isEmpty()) {
+            if (ordersForLevel.isEmpty()) {
                 orderBookIterator.remove();
+                metrics.onLevelRemoved();
             }
             if (incomingOrder.type() == OrderType.LIMIT && price == incomingOrder.price()) {  //we cannot match further trades
                 break;
@@ -104,17 +164,55 @@ public class BasicOrderBookArrayDeque implements OrderBook {
         if (sizeLeftToMatch > 0) {
             Order incomingOrderWithNoMatch = incomingOrder.withNewSize(sizeLeftToMatch);
             this.orders.put(incomingOrderWithNoMatch.id(), incomingOrderWithNoMatch);
-            oppositeSide.computeIfAbsent(incomingOrder.price(), price -> new ArrayDeque<>()).add(incomingOrderWithNoMatch);
+            Deque<Order> level = levelOf(oppositeSide, incomingOrder.price());
+            level.add(incomingOrderWithNoMatch);
+            notifyLevelUpdateListeners(incomingOrder.side(), incomingOrder.price(), level);
+        }
+    }
+
+    private Deque<Order> levelOf(TreeMap<Double, Deque<Order>> orderBookSide, double price) {
+        Deque<Order> level = orderBookSide.get(price);
+        if (level == null) {
+            level = new ArrayDeque<>();
+            orderBookSide.put(price, level);
+            metrics.onLevelCreated();
         }
+        return level;
     }
 
     private void notifyTradeListeners(Order order, Order match, int sizeLeftToMatch) {
-        tradeListeners.forEach(orderBookTradeListener -> orderBookTradeListener.onTrade(
-                new Trade(String.valueOf(tradeIdGenerator.incrementAndGet()),
-                        Set.of(match.id(), order.id()),
-                        getCurrentTime(),
-                        match.price(),
-                        sizeLeftToMatch)));
+        long tradeId = tradeIdGenerator.incrementAndGet();
+        metrics.onTrade();
+        if (tradeListeners.isEmpty() && tradeEventListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long ts = tradeClock.time();
+        for (int i = 0; i < tradeEventListeners.size(); i++) {
+            tradeEventListeners.get(i).onTrade(tradeId, order.id(), match.id(), match.price(), sizeLeftToMatch, ts);
+        }
+        for (int i = 0; i < tradeListeners.size(); i++) {
+            tradeListeners.get(i).onTrade(
+                    new Trade(String.valueOf(tradeId),
+                            Set.of(match.id(), order.id()),
+                            ts,
+                            match.price(),
+                            sizeLeftToMatch));
+        }
+        metrics.recordDispatch(dispatchStartTime);
+    }
+
+    private void notifyLevelUpdateListeners(Side side, double price, Deque<Order> level) {
+        if (levelUpdateListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long quantity = levelQuantity(level);
+        long sequence = ++levelUpdateSequence;
+        for (int i = 0; i < levelUpdateListeners.size(); i++) {
+            levelUpdateListeners.get(i).onLevelUpdate(sequence, side, price, quantity);
+        }
+        metrics.recordDispatch(dispatchStartTime);
     }
 
     private BidAsk getBidAsk() {
@@ -130,33 +228,123 @@ public class BasicOrderBookArrayDeque implements OrderBook {
     }
 
     @Override
-    public synchronized Order getOrder(String id) {
+    public void addTradeEventListener(TradeEventListener tradeEventListener) {
+        tradeEventListeners.add(tradeEventListener);
+    }
+
+    @Override
+    public void addLevelUpdateListener(LevelUpdateListener levelUpdateListener) {
+        levelUpdateListeners.add(levelUpdateListener);
+    }
+
+    @Override
+    public synchronized Order getOrder(long id) {
         return orders.get(id);
     }
 
     @Override
-    public synchronized CancelStatus cancelOrder(String id) {
+    public synchronized CancelStatus cancelOrder(long id) {
+        long startTime = metrics.startCancel();
+        CancelStatus cancelStatus = cancelOrderUnpublished(id);
+        publishTopOfBook();
+        metrics.recordCancel(startTime, cancelStatus == CANCELED);
+        return cancelStatus;
+    }
+
+    private CancelStatus cancelOrderUnpublished(long id) {
+        Order order = orders.remove(id);
+        if (order == null) {
+            return NOT_EXISTS;
+        }
+        TreeMap<Double, Deque<Order>> orderBookSide = order.side() == Side.BUY ? bids : asks;
+        Deque<Order> ordersForLevel = orderBookSide.get(order.price());
+        if (ordersForLevel == null) {
+            // nothing left to unlink, the index was the only place the order was still known
+            return CANCELED;
+        }
+        ordersForLevel.remove(order); // linear scan of the level, ArrayDeque has no way to unlink a known element
+        notifyLevelUpdateListeners(order.side(), order.price(), ordersForLevel);
+        if (ordersForLevel.isEmpty()) {
+            orderBookSide.remove(order.price());
+            metrics.onLevelRemoved();
+        }
         return CANCELED;
     }
 
+    @Override
+    public synchronized void cancelOrders(long[] ids, int count, CancelStatus[] cancelStatuses) {
+        for (int i = 0; i < count; i++) {
+            long startTime = metrics.startCancel();
+            cancelStatuses[i] = cancelOrderUnpublished(ids[i]);
+            metrics.recordCancel(startTime, cancelStatuses[i] == CANCELED);
+        }
+        publishTopOfBook();
+    }
+
+    /**
+     * Cancels and re-adds the order, it always loses its place in the queue.
+     */
+    @Override
+    public synchronized AmendStatus amendOrder(long id, int newSize, double newPrice) {
+        Order order = orders.get(id);
+        if (order == null) {
+            return AmendStatus.NOT_EXISTS;
+        }
+        tradeClock.reset();
+        cancelOrderUnpublished(id);
+        if (newSize > 0) {
+            double price = Double.isNaN(newPrice) ? order.price() : newPrice;
+            addOrderUnpublished(new ImmutableOrder(order.id(), order.side(), order.type(), order.ts(), price, newSize));
+        }
+        publishTopOfBook();
+        return AmendStatus.AMENDED;
+    }
+
     @Override
     public synchronized List<Order> getAllOrders() {
-        return new ArrayList<>(orders.values());
+        List<Order> allOrders = new ArrayList<>(orders.size());
+        orders.forEachValue(allOrders::add);
+        return allOrders;
     }
 
     @Override
-    public int getDepth() {
-        return 0;
+    public synchronized int getDepth() {
+        return Math.max(bids.size(), asks.size());
+    }
+
+    @Override
+    public synchronized int snapshotTopLevels(int n, Side side, double[] prices, long[] quantities) {
+        int levels = 0;
+        for (Map.Entry<Double, Deque<Order>> level : (side == Side.BUY ? bids : asks).entrySet()) {
+            if (levels == n) {
+                break;
+            }
+            prices[levels] = level.getKey();
+            quantities[levels++] = levelQuantity(level.getValue());
+        }
+        return levels;
     }
 
     @Override
     public TopOrderBook getTopOrderBook() {
-        var bid = bids.isEmpty() || bids.firstEntry().getValue().isEmpty() ? null : bids.firstKey();
-        var bidSize = bids.isEmpty() ? 0.0 : bids.firstEntry().getValue().stream().mapToDouble(Order::size).sum();
+        return topOfBook.read();
+    }
 
-        var ask = asks.isEmpty() || asks.firstEntry().getValue().isEmpty() ? null : asks.firstKey();
-        var askSize = asks.isEmpty() ? 0.0 : asks.firstEntry().getValue().stream().mapToDouble(Order::size).sum();
-        return new TopOrderBook(bid, bidSize, ask, askSize);
+    private void publishTopOfBook() {
+        Map.Entry<Double, Deque<Order>> bid = bids.firstEntry();
+        Map.Entry<Double, Deque<Order>> ask = asks.firstEntry();
+        topOfBook.publish(
+                bid == null || bid.getValue().isEmpty() ? Double.NaN : bid.getKey(), bid == null ? 0 : levelQuantity(bid.getValue()),
+                ask == null || ask.getValue().isEmpty() ? Double.NaN : ask.getKey(), ask == null ? 0 : levelQuantity(ask.getValue()));
+        metrics.updateDepth(bids.size(), asks.size(), orders.size());
+    }
+
+    private static long levelQuantity(Deque<Order> level) {
+        long quantity = 0;
+        for (Order order : level) {
+            quantity += order.size();
+        }
+        return quantity;
     }
 
     @Override
@@ -2,9 +2,7 @@ package com.mfruhrmann.orderbooks.impl;
 
 import com.mfruhrmann.orderbooks.api.OrderBook;
 
-import java.time.Instant;
-
-public record ImmutableOrder(String id, OrderBook.Side side, OrderBook.OrderType type, Instant ts, double price, int size)
+public record ImmutableOrder(long id, OrderBook.Side side, OrderBook.OrderType type, long ts, double price, int size)
         implements OrderBook.Order {
 
     public ImmutableOrder withNewSize(int newSize) {
@@ -1,10 +1,13 @@
 package com.mfruhrmann.orderbooks.impl;
 
 import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.time.TimeSource;
+import com.mfruhrmann.orderbooks.impl.collections.LongObjectHashMap;
+import com.mfruhrmann.orderbooks.impl.time.SystemEpochNanosTimeSource;
+import com.mfruhrmann.orderbooks.metrics.OrderBookMetrics;
 
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +17,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.CANCELED;
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.NOT_EXISTS;
 
 /**
  * Based on List instead of TreeMap, price levels are calculated as offsets from top of the book.
@@ -21,47 +25,90 @@ import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.CANCELED;
 public class ListBasedOrderBook implements OrderBook {
 
     private final List<OrderBookTradeListener> tradeListeners = new ArrayList<>();
+    private final List<TradeEventListener> tradeEventListeners = new ArrayList<>();
+    private final List<LevelUpdateListener> levelUpdateListeners = new ArrayList<>();
 
     private final AtomicLong tradeIdGenerator = new AtomicLong();
+    private long levelUpdateSequence;
 
-    private final Map<String, Order> orders = new HashMap<>();
+    private final LongObjectHashMap<Order> orders = new LongObjectHashMap<>();
     private final LinkedList<Deque<Order>> asks = new LinkedList<>();
     private final LinkedList<Deque<Order>> bids = new LinkedList<>();
     private final double priceStep;
+    private final TradeClock tradeClock;
     private Double topBid = null;
     private Double topAsk = null;
+    private final TopOfBookSeqLock topOfBook = new TopOfBookSeqLock();
+    private OrderBookMetrics metrics = OrderBookMetrics.DISABLED;
+    // levels holding orders, the lists also keep empty steps between them
+    private int bidLevelCount;
+    private int askLevelCount;
 
     public ListBasedOrderBook(double priceStep) {
+        this(priceStep, SystemEpochNanosTimeSource.INSTANCE);
+    }
+
+    /**
+     * @param timeSource clock the trades are stamped with, read once per incoming order that trades
+     */
+    public ListBasedOrderBook(double priceStep, TimeSource timeSource) {
         this.priceStep = priceStep;
+        this.tradeClock = new TradeClock(timeSource);
+    }
+
+    /**
+     * Starts recording counters and latencies into {@code metrics}, see {@link OrderBookMetrics}.
+     */
+    public synchronized void setMetrics(OrderBookMetrics metrics) {
+        this.metrics = metrics;
     }
 
     @Override
-    public synchronized String addOrder(Order order) {
-        if (order.type() == OrderType.LIMIT) {
-            if (order.side() == Side.BUY) {
-                Double bestAsk = topAsk;
-                if (bestAsk == null || bestAsk > order.price()) {
-                    orders.put(order.id(), order);
-                    int index = computeIndexForPrice(topBid, order.price());
-                    addOrder(bids, index, order);
-                    topBid = Math.max(topBid == null ? order.price() : topBid, order.price());
-                    //we add to the bids
-                } else {
-                    //we have a trade
-                    handleTrade(order, asks, bids, topAsk, topBid);
-                }
-            } else if (order.side() == Side.SELL) {
-                Double bestBid = topBid;
-                if (bestBid == null || bestBid < order.price()) {
-                    orders.put(order.id(), order);
-                    int index = computeIndexForPrice(topAsk, order.price());
-                    addOrder(asks, index, order);
-                    topAsk = Math.min(topAsk == null ? order.price() : topAsk, order.price());
+    public synchronized long addOrder(Order order) {
+        tradeClock.reset();
+        long startTime = metrics.startAdd();
+        long lastTradeId = tradeIdGenerator.get();
+        long orderId = addOrderUnpublished(order);
+        publishTopOfBook();
+        metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+        return orderId;
+    }
 
-                } else {
-                    //we have a trade
-                    handleTrade(order, bids, asks, topBid, topAsk);
+    private long addOrderUnpublished(Order order) {
+        if (order.type() != OrderType.LIMIT) {
+            throw new IllegalArgumentException("This baseline implementation only supports LIMIT orders, got " + order.type());
+        }
+        if (order.side() == Side.BUY) {
+            Double bestAsk = topAsk;
+            if (bestAsk == null || bestAsk > order.price()) {
+                orders.put(order.id(), order);
+                int index = computeIndexForPrice(topBid, order.price());
+                Deque<Order> level = addOrder(bids, index, order);
+                if (level.size() == 1) {
+                    onLevelCreated(Side.BUY);
+                }
+                notifyLevelUpdateListeners(Side.BUY, order.price(), level);
+                topBid = Math.max(topBid == null ? order.price() : topBid, order.price());
+                //we add to the bids
+            } else {
+                //we have a trade
+                handleTrade(order, asks, bids, topAsk, topBid);
+            }
+        } else if (order.side() == Side.SELL) {
+            Double bestBid = topBid;
+            if (bestBid == null || bestBid < order.price()) {
+                orders.put(order.id(), order);
+                int index = computeIndexForPrice(topAsk, order.price());
+                Deque<Order> level = addOrder(asks, index, order);
+                if (level.size() == 1) {
+                    onLevelCreated(Side.SELL);
                 }
+                notifyLevelUpdateListeners(Side.SELL, order.price(), level);
+                topAsk = Math.min(topAsk == null ? order.price() : topAsk, order.price());
+
+            } else {
+                //we have a trade
+                handleTrade(order, bids, asks, topBid, topAsk);
             }
         }
         BidAsk bidAsk = getBidAsk();
@@ -71,7 +118,26 @@ public class ListBasedOrderBook implements OrderBook {
         return order.id();
     }
 
-    private void addOrder(LinkedList<Deque<Order>> side, int index, Order order) {
+    @Override
+    public synchronized void addOrders(Order[] orders, int count, long[] orderIds) {
+        tradeClock.reset();
+        try {
+            for (int i = 0; i < count; i++) {
+                long startTime = metrics.startAdd();
+                long lastTradeId = tradeIdGenerator.get();
+                orderIds[i] = addOrderUnpublished(orders[i]);
+                metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+            }
+        } finally {
+            // the orders before a rejected one have been added
+            publishTopOfBook();
+        }
+    }
+
+    /**
+     * @return the level the order was added to
+     */
+    private Deque<Order> addOrder(LinkedList<Deque<Order>> side, int index, Order order) {
         Deque<Order> level = index < side.size() ? side.get(index) : null;
 
         if (level == null) {
@@ -82,16 +148,17 @@ public class ListBasedOrderBook implements OrderBook {
                 IntStream.range(side.size(), index).forEach(idx -> side.add(idx, new LinkedList<>()));
             }
             side.add(index, level);
-            return;
+            return level;
         }
         level.add(order);
+        return level;
     }
 
     private int computeIndexForPrice(Double topPrice, double price) {
         if (topPrice == null) {
             return 0;
         }
-        return (int) ((topPrice - price) / priceStep);
+        return (int) Math.round((topPrice - price) / priceStep);
     }
 
     private void handleTrade(Order incomingOrder, LinkedList<Deque<Order>> orderBookSide, LinkedList<Deque<Order>> oppositeSide, Double topPrice, Double topOppositePrice) {
@@ -109,18 +176,24 @@ public class ListBasedOrderBook implements OrderBook {
                     //remove order
                     nextOrderIterator.remove();
                     this.orders.remove(nextOrder.id());
+                    if (nextLevelEntry.isEmpty()) {
+                        onLevelRemoved(nextOrder.side());
+                    }
                     //create a trade
                     notifyTradeListeners(incomingOrder, nextOrder, nextOrder.size());
+                    notifyLevelUpdateListeners(nextOrder.side(), nextOrder.price(), nextLevelEntry);
                     sizeLeftToMatch -= nextOrder.size();
                 } else {
                     //handle partial order
                     nextOrderIterator.remove();
-                    this.orders.remove(nextOrder.id());
 
                     int size = nextOrder.size() - sizeLeftToMatch;
-                    nextLevelEntry.offerFirst(nextOrder.withNewSize(size));
+                    Order reducedOrder = nextOrder.withNewSize(size);
+                    nextLevelEntry.offerFirst(reducedOrder);
+                    this.orders.put(reducedOrder.id(), reducedOrder);
                     //create a trade
                     notifyTradeListeners(incomingOrder, nextOrder, sizeLeftToMatch);
+                    notifyLevelUpdateListeners(nextOrder.side(), nextOrder.price(), nextLevelEntry);
 
                     sizeLeftToMatch -= nextOrder.size();
                 }
@@ -137,29 +210,74 @@ public class ListBasedOrderBook implements OrderBook {
             Order incomingOrderWithNoMatch = incomingOrder.withNewSize(sizeLeftToMatch);
             this.orders.put(incomingOrderWithNoMatch.id(), incomingOrderWithNoMatch);
             int idx = computeIndexForPrice(topOppositePrice, incomingOrder.price());
+            Deque<Order> level;
             if (idx < oppositeSide.size()) {
-                oppositeSide.get(idx).add(incomingOrderWithNoMatch);
+                level = oppositeSide.get(idx);
+                level.add(incomingOrderWithNoMatch);
             } else {
-                var ordersNewLevel = new LinkedList<Order>();
-                ordersNewLevel.add(incomingOrderWithNoMatch);
-                oppositeSide.add(idx, ordersNewLevel);
+                level = new LinkedList<>();
+                level.add(incomingOrderWithNoMatch);
+                oppositeSide.add(idx, level);
+            }
+            if (level.size() == 1) {
+                onLevelCreated(incomingOrder.side());
             }
+            notifyLevelUpdateListeners(incomingOrder.side(), incomingOrder.price(), level);
         }
     }
 
-    private void notifyTradeListeners(Order order, Order match, int sizeLeftToMatch) {
-        tradeListeners.forEach(orderBookTradeListener -> orderBookTradeListener.onTrade(
-                new Trade(String.valueOf(tradeIdGenerator.incrementAndGet()),
-                        Set.of(match.id(), order.id()),
-                        getCurrentTime(),
-                        match.price(),
-                        sizeLeftToMatch)));
+    private void onLevelCreated(Side side) {
+        if (side == Side.BUY) {
+            bidLevelCount++;
+        } else {
+            askLevelCount++;
+        }
+        metrics.onLevelCreated();
+    }
+
+    private void onLevelRemoved(Side side) {
+        if (side == Side.BUY) {
+            bidLevelCount--;
+        } else {
+            askLevelCount--;
+        }
+        metrics.onLevelRemoved();
     }
 
-    private long getCurrentTime() {
-        return System.nanoTime();
+    private void notifyTradeListeners(Order order, Order match, int sizeLeftToMatch) {
+        long tradeId = tradeIdGenerator.incrementAndGet();
+        metrics.onTrade();
+        if (tradeListeners.isEmpty() && tradeEventListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long ts = tradeClock.time();
+        for (int i = 0; i < tradeEventListeners.size(); i++) {
+            tradeEventListeners.get(i).onTrade(tradeId, order.id(), match.id(), match.price(), sizeLeftToMatch, ts);
+        }
+        for (int i = 0; i < tradeListeners.size(); i++) {
+            tradeListeners.get(i).onTrade(
+                    new Trade(String.valueOf(tradeId),
+                            Set.of(match.id(), order.id()),
+                            ts,
+                            match.price(),
+                            sizeLeftToMatch));
+        }
+        metrics.recordDispatch(dispatchStartTime);
     }
 
+    private void notifyLevelUpdateListeners(Side side, double price, Deque<Order> level) {
+        if (levelUpdateListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long quantity = levelQuantity(level);
+        long sequence = ++levelUpdateSequence;
+        for (int i = 0; i < levelUpdateListeners.size(); i++) {
+            levelUpdateListeners.get(i).onLevelUpdate(sequence, side, price, quantity);
+        }
+        metrics.recordDispatch(dispatchStartTime);
+    }
 
     private BidAsk getBidAsk() {
         var bid = bids.isEmpty() || bids.getFirst().isEmpty() ? null : bids.getFirst().getFirst().price();
@@ -175,33 +293,140 @@ public class ListBasedOrderBook implements OrderBook {
     }
 
     @Override
-    public synchronized Order getOrder(String id) {
+    public void addTradeEventListener(TradeEventListener tradeEventListener) {
+        tradeEventListeners.add(tradeEventListener);
+    }
+
+    @Override
+    public void addLevelUpdateListener(LevelUpdateListener levelUpdateListener) {
+        levelUpdateListeners.add(levelUpdateListener);
+    }
+
+    @Override
+    public synchronized Order getOrder(long id) {
         return orders.get(id);
     }
 
     @Override
-    public synchronized CancelStatus cancelOrder(String id) {
+    public synchronized CancelStatus cancelOrder(long id) {
+        long startTime = metrics.startCancel();
+        CancelStatus cancelStatus = cancelOrderUnpublished(id);
+        publishTopOfBook();
+        metrics.recordCancel(startTime, cancelStatus == CANCELED);
+        return cancelStatus;
+    }
+
+    private CancelStatus cancelOrderUnpublished(long id) {
+        Order order = orders.remove(id);
+        if (order == null) {
+            return NOT_EXISTS;
+        }
+        LinkedList<Deque<Order>> side = order.side() == Side.BUY ? bids : asks;
+        for (Deque<Order> level : side) {
+            if (level.remove(order)) {
+                if (level.isEmpty()) {
+                    onLevelRemoved(order.side());
+                }
+                notifyLevelUpdateListeners(order.side(), order.price(), level);
+                break;
+            }
+        }
+        // levels are offsets from the top, so only the empty levels at the top can be dropped
+        while (!side.isEmpty() && side.getFirst().isEmpty()) {
+            side.removeFirst();
+        }
+        BidAsk bidAsk = getBidAsk();
+        topBid = bidAsk.bid();
+        topAsk = bidAsk.ask();
         return CANCELED;
     }
 
+    @Override
+    public synchronized void cancelOrders(long[] ids, int count, CancelStatus[] cancelStatuses) {
+        for (int i = 0; i < count; i++) {
+            long startTime = metrics.startCancel();
+            cancelStatuses[i] = cancelOrderUnpublished(ids[i]);
+            metrics.recordCancel(startTime, cancelStatuses[i] == CANCELED);
+        }
+        publishTopOfBook();
+    }
+
+    /**
+     * Cancels and re-adds the order, it always loses its place in the queue.
+     */
+    @Override
+    public synchronized AmendStatus amendOrder(long id, int newSize, double newPrice) {
+        Order order = orders.get(id);
+        if (order == null) {
+            return AmendStatus.NOT_EXISTS;
+        }
+        tradeClock.reset();
+        cancelOrderUnpublished(id);
+        if (newSize > 0) {
+            double price = Double.isNaN(newPrice) ? order.price() : newPrice;
+            addOrderUnpublished(new ImmutableOrder(order.id(), order.side(), order.type(), order.ts(), price, newSize));
+        }
+        publishTopOfBook();
+        return AmendStatus.AMENDED;
+    }
+
     @Override
     public synchronized List<Order> getAllOrders() {
-        return new ArrayList<>(orders.values());
+        List<Order> allOrders = new ArrayList<>(orders.size());
+        orders.forEachValue(allOrders::add);
+        return allOrders;
     }
 
     @Override
-    public int getDepth() {
-        return 0;
+    public synchronized int getDepth() {
+        return Math.max(levelCount(bids), levelCount(asks));
+    }
+
+    private static int levelCount(LinkedList<Deque<Order>> side) {
+        int levels = 0;
+        for (Deque<Order> level : side) {
+            if (!level.isEmpty()) {
+                levels++;
+            }
+        }
+        return levels;
+    }
+
+    @Override
+    public synchronized int snapshotTopLevels(int n, Side side, double[] prices, long[] quantities) {
+        int levels = 0;
+        for (Deque<Order> level : side == Side.BUY ? bids : asks) {
+            if (levels == n) {
+                break;
+            }
+            if (!level.isEmpty()) {
+                prices[levels] = level.getFirst().price();
+                quantities[levels++] = levelQuantity(level);
+            }
+        }
+        return levels;
     }
 
     @Override
     public TopOrderBook getTopOrderBook() {
-        var bid = bids.isEmpty() || bids.getFirst().isEmpty() ? null : bids.getFirst().getFirst().price();
-        var bidSize = bids.isEmpty() || bids.getFirst().isEmpty() ? 0 : bids.getFirst().stream().mapToDouble(Order::size).sum();
+        return topOfBook.read();
+    }
 
-        var ask = asks.isEmpty() || asks.getFirst().isEmpty() ? null : asks.getFirst().getFirst().price();
-        var askSize = asks.isEmpty() || asks.getFirst().isEmpty() ? 0 : asks.getFirst().stream().mapToDouble(Order::size).sum();
-        return new TopOrderBook(bid, bidSize, ask, askSize);
+    private void publishTopOfBook() {
+        Deque<Order> bid = bids.isEmpty() ? null : bids.getFirst();
+        Deque<Order> ask = asks.isEmpty() ? null : asks.getFirst();
+        topOfBook.publish(
+                bid == null || bid.isEmpty() ? Double.NaN : bid.getFirst().price(), bid == null ? 0 : levelQuantity(bid),
+                ask == null || ask.isEmpty() ? Double.NaN : ask.getFirst().price(), ask == null ? 0 : levelQuantity(ask));
+        metrics.updateDepth(bidLevelCount, askLevelCount, orders.size());
+    }
+
+    private static long levelQuantity(Deque<Order> level) {
+        long quantity = 0;
+        for (Order order : level) {
+            quantity += order.size();
+        }
+        return quantity;
     }
 
     @Override
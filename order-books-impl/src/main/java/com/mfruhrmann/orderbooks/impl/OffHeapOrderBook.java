@@ -0,0 +1,511 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.SnapshotableOrderBook;
+import com.mfruhrmann.orderbooks.api.time.TimeSource;
+import com.mfruhrmann.orderbooks.impl.collections.LongObjectSortedMap;
+import com.mfruhrmann.orderbooks.impl.time.SystemEpochNanosTimeSource;
+import com.mfruhrmann.orderbooks.metrics.OrderBookMetrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.CANCELED;
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.NOT_EXISTS;
+import static com.mfruhrmann.orderbooks.impl.OrderSlots.NONE;
+
+/**
+ * Order book for very large resting books. The resting orders live off-heap in the fixed size slots of an
+ * {@link OrderSlots} store (48 bytes per order plus its hash bucket) instead of one object per order, the level queues
+ * and the order index link the slots by index. Only the price levels are objects, so the heap footprint and the work of
+ * the garbage collector do not grow with the number of resting orders.
+ * <p>
+ * Matching follows {@link BasicOrderBook}: fixed-point prices, levels keyed by tick in a sorted array map, one monitor
+ * around every call and the top of the book published through a seqlock. Orders handed out by {@link #getOrder} and
+ * {@link #getAllOrders()} are copies built from the slots, their price is the price of the tick.
+ */
+public class OffHeapOrderBook implements SnapshotableOrderBook {
+
+    private final List<OrderBookTradeListener> tradeListeners = new ArrayList<>();
+    private final List<TradeEventListener> tradeEventListeners = new ArrayList<>();
+    private final List<LevelUpdateListener> levelUpdateListeners = new ArrayList<>();
+
+    private final AtomicLong tradeIdGenerator = new AtomicLong();
+    private long levelUpdateSequence;
+
+    private final OrderSlots slots;
+    private final LongObjectSortedMap<Level> asks = new LongObjectSortedMap<>(false);
+    private final LongObjectSortedMap<Level> bids = new LongObjectSortedMap<>(true);
+    private final PriceTicks priceTicks;
+    private final SlotOrder restingOrderView = new SlotOrder();
+
+    private final TopOfBookSeqLock topOfBook = new TopOfBookSeqLock();
+
+    private final TradeClock tradeClock;
+
+    private OrderBookMetrics metrics = OrderBookMetrics.DISABLED;
+
+    /**
+     * @param priceStep      minimal price increment (tick size) of the instrument, prices of incoming orders are rounded to it
+     * @param expectedOrders number of resting orders the first chunk of slots and the order index are sized for
+     */
+    public OffHeapOrderBook(double priceStep, int expectedOrders) {
+        this(priceStep, expectedOrders, SystemEpochNanosTimeSource.INSTANCE);
+    }
+
+    /**
+     * @param priceStep      minimal price increment (tick size) of the instrument, prices of incoming orders are rounded to it
+     * @param expectedOrders number of resting orders the first chunk of slots and the order index are sized for
+     * @param timeSource     clock the trades are stamped with, read once per incoming order that trades
+     */
+    public OffHeapOrderBook(double priceStep, int expectedOrders, TimeSource timeSource) {
+        this.priceTicks = new PriceTicks(priceStep);
+        this.slots = new OrderSlots(expectedOrders);
+        this.tradeClock = new TradeClock(timeSource);
+    }
+
+    /**
+     * Starts recording counters and latencies into {@code metrics}, see {@link OrderBookMetrics}.
+     */
+    public synchronized void setMetrics(OrderBookMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public synchronized long addOrder(Order order) {
+        tradeClock.reset();
+        long startTime = metrics.startAdd();
+        long lastTradeId = tradeIdGenerator.get();
+        match(order);
+        publishTopOfBook();
+        metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+
+        return order.id();
+    }
+
+    @Override
+    public synchronized void addOrders(Order[] orders, int count, long[] orderIds) {
+        tradeClock.reset();
+        for (int i = 0; i < count; i++) {
+            long startTime = metrics.startAdd();
+            long lastTradeId = tradeIdGenerator.get();
+            match(orders[i]);
+            orderIds[i] = orders[i].id();
+            metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+        }
+        publishTopOfBook();
+    }
+
+    private void match(Order order) {
+        long tick = priceTicks.toTick(order.price());
+        LongObjectSortedMap<Level> orderBookSide = order.side() == Side.BUY ? asks : bids;
+        if (order.type() == OrderType.FILL_OR_KILL && !canFill(order.side(), tick, order.size(), orderBookSide)) {
+            return;
+        }
+        int sizeLeftToMatch = matchAgainst(order.id(), order.side(), order.type(), tick, order.size(), orderBookSide);
+        if (sizeLeftToMatch > 0 && order.type() == OrderType.LIMIT) {
+            int slot = slots.add(order.id(), order.side(), order.type(), order.ts(), tick, sizeLeftToMatch);
+            rest(slot, order.side(), tick);
+        }
+    }
+
+    /**
+     * Reads the level totals kept on the heap, the slots of the orders are not touched.
+     */
+    private static boolean canFill(Side side, long tick, int size, LongObjectSortedMap<Level> orderBookSide) {
+        long available = 0;
+        for (int rank = 0; rank < orderBookSide.size(); rank++) {
+            if (!crosses(side, tick, orderBookSide.keyAt(rank))) {
+                return false;
+            }
+            available += orderBookSide.valueAt(rank).totalSize;
+            if (available >= size) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Matches the incoming order against the opposite side as far as it crosses.
+     *
+     * @return the size left to match
+     */
+    private int matchAgainst(long aggressorOrderId, Side side, OrderType type, long tick, int size, LongObjectSortedMap<Level> orderBookSide) {
+        int sizeLeftToMatch = size;
+        Side restingSide = side == Side.BUY ? Side.SELL : Side.BUY;
+        while (!orderBookSide.isEmpty() && sizeLeftToMatch > 0) {
+            long levelTick = orderBookSide.keyAt(0);
+            if (type != OrderType.MARKET && !crosses(side, tick, levelTick)) {  //we cannot match further trades
+                break;
+            }
+            Level level = orderBookSide.valueAt(0);
+            double price = priceTicks.toPrice(levelTick);
+
+            while (level.head != NONE && sizeLeftToMatch > 0) {
+                int slot = level.head;
+                int restingSize = slots.size(slot);
+                if (sizeLeftToMatch >= restingSize) {
+                    //remove order
+                    unlink(level, slot);
+                    long passiveOrderId = slots.id(slot);
+                    slots.free(slot);
+                    //create a trade
+                    notifyTradeListeners(aggressorOrderId, passiveOrderId, price, restingSize);
+                    sizeLeftToMatch -= restingSize;
+                } else {
+                    //handle partial order in place, the order keeps its place in the queue
+                    slots.setSize(slot, restingSize - sizeLeftToMatch);
+                    level.totalSize -= sizeLeftToMatch;
+                    //create a trade
+                    notifyTradeListeners(aggressorOrderId, slots.id(slot), price, sizeLeftToMatch);
+                    sizeLeftToMatch = 0;
+                }
+            }
+            notifyLevelUpdateListeners(restingSide, price, level.totalSize);
+            if (level.head == NONE) {
+                orderBookSide.removeAt(0);
+                metrics.onLevelRemoved();
+            }
+        }
+        return sizeLeftToMatch;
+    }
+
+    private static boolean crosses(Side side, long tick, long levelTick) {
+        return side == Side.BUY ? levelTick <= tick : levelTick >= tick;
+    }
+
+    private void rest(int slot, Side side, long tick) {
+        LongObjectSortedMap<Level> ownSide = side == Side.BUY ? bids : asks;
+        Level level = ownSide.get(tick);
+        if (level == null) {
+            level = new Level();
+            ownSide.put(tick, level);
+            metrics.onLevelCreated();
+        }
+        append(level, slot);
+        notifyLevelUpdateListeners(side, priceTicks.toPrice(tick), level.totalSize);
+    }
+
+    private void append(Level level, int slot) {
+        slots.setPrev(slot, level.tail);
+        slots.setNext(slot, NONE);
+        if (level.tail == NONE) {
+            level.head = slot;
+        } else {
+            slots.setNext(level.tail, slot);
+        }
+        level.tail = slot;
+        level.totalSize += slots.size(slot);
+    }
+
+    private void unlink(Level level, int slot) {
+        int prev = slots.prev(slot);
+        int next = slots.next(slot);
+        if (prev == NONE) {
+            level.head = next;
+        } else {
+            slots.setNext(prev, next);
+        }
+        if (next == NONE) {
+            level.tail = prev;
+        } else {
+            slots.setPrev(next, prev);
+        }
+        level.totalSize -= slots.size(slot);
+    }
+
+    private void notifyTradeListeners(long aggressorOrderId, long passiveOrderId, double price, int size) {
+        long tradeId = tradeIdGenerator.incrementAndGet();
+        metrics.onTrade();
+        if (tradeListeners.isEmpty() && tradeEventListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long ts = tradeClock.time();
+        for (int i = 0; i < tradeEventListeners.size(); i++) {
+            tradeEventListeners.get(i).onTrade(tradeId, aggressorOrderId, passiveOrderId, price, size, ts);
+        }
+        for (int i = 0; i < tradeListeners.size(); i++) {
+            tradeListeners.get(i).onTrade(new Trade(String.valueOf(tradeId), Set.of(passiveOrderId, aggressorOrderId), ts, price, size));
+        }
+        metrics.recordDispatch(dispatchStartTime);
+    }
+
+    private void notifyLevelUpdateListeners(Side side, double price, long quantity) {
+        if (levelUpdateListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long sequence = ++levelUpdateSequence;
+        for (int i = 0; i < levelUpdateListeners.size(); i++) {
+            levelUpdateListeners.get(i).onLevelUpdate(sequence, side, price, quantity);
+        }
+        metrics.recordDispatch(dispatchStartTime);
+    }
+
+    @Override
+    public void addTradeListener(OrderBookTradeListener orderBookTradeListener) {
+        tradeListeners.add(orderBookTradeListener);
+    }
+
+    @Override
+    public void addTradeEventListener(TradeEventListener tradeEventListener) {
+        tradeEventListeners.add(tradeEventListener);
+    }
+
+    @Override
+    public void addLevelUpdateListener(LevelUpdateListener levelUpdateListener) {
+        levelUpdateListeners.add(levelUpdateListener);
+    }
+
+    @Override
+    public synchronized Order getOrder(long id) {
+        int slot = slots.find(id);
+        return slot == NONE ? null : toImmutableOrder(slot);
+    }
+
+    private ImmutableOrder toImmutableOrder(int slot) {
+        return new ImmutableOrder(slots.id(slot), slots.side(slot), slots.type(slot), slots.ts(slot), priceTicks.toPrice(slots.tick(slot)), slots.size(slot));
+    }
+
+    @Override
+    public synchronized CancelStatus cancelOrder(long id) {
+        long startTime = metrics.startCancel();
+        CancelStatus cancelStatus = cancel(id);
+        publishTopOfBook();
+        metrics.recordCancel(startTime, cancelStatus == CANCELED);
+        return cancelStatus;
+    }
+
+    @Override
+    public synchronized void cancelOrders(long[] ids, int count, CancelStatus[] cancelStatuses) {
+        for (int i = 0; i < count; i++) {
+            long startTime = metrics.startCancel();
+            cancelStatuses[i] = cancel(ids[i]);
+            metrics.recordCancel(startTime, cancelStatuses[i] == CANCELED);
+        }
+        publishTopOfBook();
+    }
+
+    private CancelStatus cancel(long id) {
+        int slot = slots.find(id);
+        if (slot == NONE) {
+            return NOT_EXISTS;
+        }
+        removeFromLevel(slot);
+        slots.free(slot);
+        return CANCELED;
+    }
+
+    private void removeFromLevel(int slot) {
+        Side side = slots.side(slot);
+        long tick = slots.tick(slot);
+        LongObjectSortedMap<Level> ownSide = side == Side.BUY ? bids : asks;
+        Level level = ownSide.get(tick);
+        unlink(level, slot);
+        if (level.head == NONE) {
+            ownSide.remove(tick);
+            metrics.onLevelRemoved();
+        }
+        notifyLevelUpdateListeners(side, priceTicks.toPrice(tick), level.totalSize);
+    }
+
+    @Override
+    public synchronized AmendStatus amendOrder(long id, int newSize, double newPrice) {
+        int slot = slots.find(id);
+        if (slot == NONE) {
+            return AmendStatus.NOT_EXISTS;
+        }
+        tradeClock.reset();
+        if (newSize <= 0) {
+            removeFromLevel(slot);
+            slots.free(slot);
+        } else if (Double.isNaN(newPrice) || priceTicks.toTick(newPrice) == slots.tick(slot)) {
+            amendSize(slot, newSize);
+        } else {
+            amendPrice(slot, newSize, priceTicks.toTick(newPrice));
+        }
+        publishTopOfBook();
+        return AmendStatus.AMENDED;
+    }
+
+    private void amendSize(int slot, int newSize) {
+        Side side = slots.side(slot);
+        long tick = slots.tick(slot);
+        Level level = (side == Side.BUY ? bids : asks).get(tick);
+        int size = slots.size(slot);
+        if (newSize < size) {
+            slots.setSize(slot, newSize);
+            level.totalSize -= size - newSize;
+        } else if (newSize > size) {
+            unlink(level, slot);
+            slots.setSize(slot, newSize);
+            append(level, slot);
+        } else {
+            return;
+        }
+        notifyLevelUpdateListeners(side, priceTicks.toPrice(tick), level.totalSize);
+    }
+
+    /**
+     * The slot stays in the index and is reused for the remainder.
+     */
+    private void amendPrice(int slot, int newSize, long newTick) {
+        removeFromLevel(slot);
+        Side side = slots.side(slot);
+        int sizeLeftToMatch = matchAgainst(slots.id(slot), side, OrderType.LIMIT, newTick, newSize, side == Side.BUY ? asks : bids);
+        if (sizeLeftToMatch > 0) {
+            slots.setTick(slot, newTick);
+            slots.setSize(slot, sizeLeftToMatch);
+            rest(slot, side, newTick);
+        } else {
+            slots.free(slot);
+        }
+    }
+
+    @Override
+    public synchronized List<Order> getAllOrders() {
+        List<Order> allOrders = new ArrayList<>(slots.size());
+        forEachRestingSlot(bids, slot -> allOrders.add(toImmutableOrder(slot)));
+        forEachRestingSlot(asks, slot -> allOrders.add(toImmutableOrder(slot)));
+        return allOrders;
+    }
+
+    @Override
+    public synchronized void forEachRestingOrder(RestingOrderVisitor visitor) {
+        SlotVisitor slotVisitor = slot -> {
+            restingOrderView.slot = slot;
+            visitor.onRestingOrder(restingOrderView);
+        };
+        forEachRestingSlot(bids, slotVisitor);
+        forEachRestingSlot(asks, slotVisitor);
+    }
+
+    private void forEachRestingSlot(LongObjectSortedMap<Level> orderBookSide, SlotVisitor visitor) {
+        for (int rank = 0; rank < orderBookSide.size(); rank++) {
+            for (int slot = orderBookSide.valueAt(rank).head; slot != NONE; slot = slots.next(slot)) {
+                visitor.onSlot(slot);
+            }
+        }
+    }
+
+    @Override
+    public synchronized int restingOrderCount() {
+        return slots.size();
+    }
+
+    @Override
+    public long lastTradeId() {
+        return tradeIdGenerator.get();
+    }
+
+    @Override
+    public void restoreLastTradeId(long lastTradeId) {
+        tradeIdGenerator.set(lastTradeId);
+    }
+
+    @Override
+    public synchronized int getDepth() {
+        return Math.max(bids.size(), asks.size());
+    }
+
+    @Override
+    public synchronized int snapshotTopLevels(int n, Side side, double[] prices, long[] quantities) {
+        LongObjectSortedMap<Level> orderBookSide = side == Side.BUY ? bids : asks;
+        int levels = Math.min(n, orderBookSide.size());
+        for (int rank = 0; rank < levels; rank++) {
+            prices[rank] = priceTicks.toPrice(orderBookSide.keyAt(rank));
+            quantities[rank] = orderBookSide.valueAt(rank).totalSize;
+        }
+        return levels;
+    }
+
+    @Override
+    public TopOrderBook getTopOrderBook() {
+        return topOfBook.read();
+    }
+
+    private void publishTopOfBook() {
+        topOfBook.publish(
+                bids.isEmpty() ? Double.NaN : priceTicks.toPrice(bids.keyAt(0)), bids.isEmpty() ? 0 : bids.valueAt(0).totalSize,
+                asks.isEmpty() ? Double.NaN : priceTicks.toPrice(asks.keyAt(0)), asks.isEmpty() ? 0 : asks.valueAt(0).totalSize);
+        metrics.updateDepth(bids.size(), asks.size(), slots.size());
+    }
+
+    @Override
+    public Map<Double, Double> getAskLevels() {
+        return getLevels(asks);
+    }
+
+    @Override
+    public Map<Double, Double> getBidLevels() {
+        return getLevels(bids);
+    }
+
+    private synchronized Map<Double, Double> getLevels(LongObjectSortedMap<Level> orderBookSide) {
+        Map<Double, Double> levels = new HashMap<>();
+        for (int rank = 0; rank < orderBookSide.size(); rank++) {
+            levels.put(priceTicks.toPrice(orderBookSide.keyAt(rank)), (double) orderBookSide.valueAt(rank).totalSize);
+        }
+        return levels;
+    }
+
+    /**
+     * Queue of a price level, linked through the slots by index.
+     */
+    private static final class Level {
+        private int head = NONE;
+        private int tail = NONE;
+        private long totalSize;
+    }
+
+    private interface SlotVisitor {
+        void onSlot(int slot);
+    }
+
+    /**
+     * View of the order in a slot, reused for every order visited by {@link #forEachRestingOrder}.
+     */
+    private final class SlotOrder implements Order {
+        private int slot;
+
+        @Override
+        public long id() {
+            return slots.id(slot);
+        }
+
+        @Override
+        public Side side() {
+            return slots.side(slot);
+        }
+
+        @Override
+        public OrderType type() {
+            return slots.type(slot);
+        }
+
+        @Override
+        public long ts() {
+            return slots.ts(slot);
+        }
+
+        @Override
+        public double price() {
+            return priceTicks.toPrice(slots.tick(slot));
+        }
+
+        @Override
+        public int size() {
+            return slots.size(slot);
+        }
+
+        @Override
+        public Order withNewSize(int size) {
+            return new ImmutableOrder(id(), side(), type(), ts(), price(), size);
+        }
+    }
+}
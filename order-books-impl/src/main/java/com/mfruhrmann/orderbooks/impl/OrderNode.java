@@ -0,0 +1,79 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+
+/**
+ * Mutable resting order linked directly into the queue of its price level, so it can be unlinked in constant time once
+ * it is found through the order index of the book. Partial fills update the size in place and, when the book uses an
+ * {@link OrderNodePool}, the node is recycled once the order is filled or cancelled.
+ * <p>
+ * Nodes never leave the book, readers get an {@link ImmutableOrder} copy instead.
+ */
+final class OrderNode implements OrderBook.Order {
+
+    long id;
+    OrderBook.Side side;
+    OrderBook.OrderType type;
+    long ts;
+    double price;
+    int size;
+
+    PriceLevel level;
+    OrderNode prev;
+    OrderNode next;
+
+    OrderNode set(OrderBook.Order order, int size) {
+        this.id = order.id();
+        this.side = order.side();
+        this.type = order.type();
+        this.ts = order.ts();
+        this.price = order.price();
+        this.size = size;
+        return this;
+    }
+
+    void clear() {
+        this.level = null;
+        this.prev = null;
+        this.next = null;
+    }
+
+    ImmutableOrder toImmutableOrder() {
+        return new ImmutableOrder(id, side, type, ts, price, size);
+    }
+
+    @Override
+    public long id() {
+        return id;
+    }
+
+    @Override
+    public OrderBook.Side side() {
+        return side;
+    }
+
+    @Override
+    public OrderBook.OrderType type() {
+        return type;
+    }
+
+    @Override
+    public long ts() {
+        return ts;
+    }
+
+    @Override
+    public double price() {
+        return price;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public OrderBook.Order withNewSize(int size) {
+        return new ImmutableOrder(id, side, type, ts, price, size);
+    }
+}
@@ -0,0 +1,39 @@
+package com.mfruhrmann.orderbooks.impl;
+
+/**
+ * Free list of {@link OrderNode}s, so resting orders of a book in a steady state are served from recycled nodes and the
+ * add/match/cancel path does not allocate. The pool grows on demand when more orders rest in the book than were preallocated.
+ */
+final class OrderNodePool {
+
+    private OrderNode free;
+    private int available;
+
+    OrderNodePool(int preallocated) {
+        for (int i = 0; i < preallocated; i++) {
+            release(new OrderNode());
+        }
+    }
+
+    OrderNode acquire() {
+        OrderNode node = free;
+        if (node == null) {
+            return new OrderNode();
+        }
+        free = node.next;
+        node.next = null;
+        available--;
+        return node;
+    }
+
+    void release(OrderNode node) {
+        node.clear();
+        node.next = free;
+        free = node;
+        available++;
+    }
+
+    int available() {
+        return available;
+    }
+}
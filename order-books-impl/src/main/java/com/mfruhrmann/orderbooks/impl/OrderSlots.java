@@ -0,0 +1,233 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Resting orders of an {@link OffHeapOrderBook}, kept off-heap in fixed size slots of direct byte buffers. A slot is
+ * addressed by its {@code int} index: the level queues link slots through their {@code prev}/{@code next} indices and
+ * the id -> slot index is a chained hash table whose chains run through the slots as well, so neither the orders nor
+ * their index put a single object on the heap. Freed slots are kept in a free list and reused before the store grows.
+ * <p>
+ * The store grows by whole chunks of slots, a chunk is never given back. Not thread-safe, the book guards it.
+ */
+final class OrderSlots {
+
+    static final int NONE = -1;
+
+    private static final int ID = 0;
+    private static final int TICK = 8;
+    private static final int TS = 16;
+    private static final int SIZE = 24;
+    private static final int PREV = 28;
+    private static final int NEXT = 32; // also links the free list
+    private static final int HASH_NEXT = 36;
+    private static final int SIDE = 40;
+    private static final int TYPE = 41;
+    private static final int SLOT_SIZE = 48; // keeps slots 8 byte aligned
+
+    private static final int MAX_CHUNK_SLOTS = 1 << 20;
+    private static final int MAX_BUCKETS = 1 << 28; // 1 GB of buckets, a direct buffer holds less than 2 GB
+    private static final OrderBook.Side[] SIDES = OrderBook.Side.values();
+    private static final OrderBook.OrderType[] ORDER_TYPES = OrderBook.OrderType.values();
+
+    private final int chunkShift;
+    private final int chunkMask;
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int usedSlots;
+    private int freeHead = NONE;
+    private int size;
+
+    private IntBuffer buckets;
+    private int bucketShift;
+    private int resizeThreshold;
+
+    /**
+     * @param expectedOrders number of orders the first chunk and the index are sized for
+     */
+    OrderSlots(int expectedOrders) {
+        int chunkSlots = Math.max(64, Math.min(MAX_CHUNK_SLOTS, Integer.highestOneBit(Math.max(expectedOrders - 1, 1)) << 1));
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkSlots);
+        this.chunkMask = chunkSlots - 1;
+        allocateBuckets(Math.max(16, Integer.highestOneBit((int) Math.min(expectedOrders / 0.75, MAX_BUCKETS) - 1) << 1));
+    }
+
+    /**
+     * Stores a new order and adds it to the index, the slot is not linked into a level yet.
+     */
+    int add(long id, OrderBook.Side side, OrderBook.OrderType type, long ts, long tick, int size) {
+        int slot = freeHead;
+        if (slot != NONE) {
+            freeHead = next(slot);
+        } else {
+            if (usedSlots == chunks.length << chunkShift) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = ByteBuffer.allocateDirect(SLOT_SIZE << chunkShift).order(ByteOrder.nativeOrder());
+            }
+            slot = usedSlots++;
+        }
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + ID, id);
+        chunk.putLong(offset + TICK, tick);
+        chunk.putLong(offset + TS, ts);
+        chunk.putInt(offset + SIZE, size);
+        chunk.put(offset + SIDE, (byte) side.ordinal());
+        chunk.put(offset + TYPE, (byte) type.ordinal());
+
+        if (++this.size > resizeThreshold) {
+            resizeBuckets();
+        }
+        int bucket = bucketOf(id);
+        setHashNext(slot, bucketHead(bucket));
+        setBucketHead(bucket, slot);
+        return slot;
+    }
+
+    /**
+     * @return the slot of the order or {@link #NONE}
+     */
+    int find(long id) {
+        for (int slot = bucketHead(bucketOf(id)); slot != NONE; slot = hashNext(slot)) {
+            if (id(slot) == id) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Removes the order from the index and puts its slot on the free list.
+     */
+    void free(int slot) {
+        int bucket = bucketOf(id(slot));
+        int current = bucketHead(bucket);
+        if (current == slot) {
+            setBucketHead(bucket, hashNext(slot));
+        } else {
+            while (hashNext(current) != slot) {
+                current = hashNext(current);
+            }
+            setHashNext(current, hashNext(slot));
+        }
+        setNext(slot, freeHead);
+        freeHead = slot;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long id(int slot) {
+        return chunk(slot).getLong(offset(slot) + ID);
+    }
+
+    long tick(int slot) {
+        return chunk(slot).getLong(offset(slot) + TICK);
+    }
+
+    void setTick(int slot, long tick) {
+        chunk(slot).putLong(offset(slot) + TICK, tick);
+    }
+
+    int size(int slot) {
+        return chunk(slot).getInt(offset(slot) + SIZE);
+    }
+
+    void setSize(int slot, int size) {
+        chunk(slot).putInt(offset(slot) + SIZE, size);
+    }
+
+    OrderBook.Side side(int slot) {
+        return SIDES[chunk(slot).get(offset(slot) + SIDE)];
+    }
+
+    OrderBook.OrderType type(int slot) {
+        return ORDER_TYPES[chunk(slot).get(offset(slot) + TYPE)];
+    }
+
+    long ts(int slot) {
+        return chunk(slot).getLong(offset(slot) + TS);
+    }
+
+    int prev(int slot) {
+        return chunk(slot).getInt(offset(slot) + PREV);
+    }
+
+    void setPrev(int slot, int prev) {
+        chunk(slot).putInt(offset(slot) + PREV, prev);
+    }
+
+    int next(int slot) {
+        return chunk(slot).getInt(offset(slot) + NEXT);
+    }
+
+    void setNext(int slot, int next) {
+        chunk(slot).putInt(offset(slot) + NEXT, next);
+    }
+
+    private int hashNext(int slot) {
+        return chunk(slot).getInt(offset(slot) + HASH_NEXT);
+    }
+
+    private void setHashNext(int slot, int hashNext) {
+        chunk(slot).putInt(offset(slot) + HASH_NEXT, hashNext);
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks[slot >>> chunkShift];
+    }
+
+    private int offset(int slot) {
+        return (slot & chunkMask) * SLOT_SIZE;
+    }
+
+    /**
+     * Buckets hold {@code slot + 1}, so the zeroed memory of a fresh direct buffer is an empty table.
+     */
+    private int bucketHead(int bucket) {
+        return buckets.get(bucket) - 1;
+    }
+
+    private void setBucketHead(int bucket, int slot) {
+        buckets.put(bucket, slot + 1);
+    }
+
+    private int bucketOf(long id) {
+        // fibonacci hashing spreads sequential ids over the whole table
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> bucketShift);
+    }
+
+    /**
+     * Past the largest table the chains just get longer.
+     */
+    private void resizeBuckets() {
+        if (buckets.capacity() == MAX_BUCKETS) {
+            resizeThreshold = Integer.MAX_VALUE;
+            return;
+        }
+        IntBuffer oldBuckets = buckets;
+        allocateBuckets(oldBuckets.capacity() << 1);
+        for (int bucket = 0; bucket < oldBuckets.capacity(); bucket++) {
+            int slot = oldBuckets.get(bucket) - 1;
+            while (slot != NONE) {
+                int hashNext = hashNext(slot);
+                int newBucket = bucketOf(id(slot));
+                setHashNext(slot, bucketHead(newBucket));
+                setBucketHead(newBucket, slot);
+                slot = hashNext;
+            }
+        }
+    }
+
+    private void allocateBuckets(int capacity) {
+        buckets = ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        bucketShift = 64 - Integer.numberOfTrailingZeros(capacity);
+        resizeThreshold = (int) (capacity * 0.75);
+    }
+}
@@ -0,0 +1,69 @@
+package com.mfruhrmann.orderbooks.impl;
+
+/**
+ * Orders resting on a single price level in time priority, kept as an intrusive doubly-linked list of {@link OrderNode}s.
+ * Appending, removing the head and cancelling an order from the middle of the queue are all O(1).
+ * <p>
+ * The level also keeps a running total of the resting quantity, so reading the volume of a level does not walk its orders.
+ */
+class PriceLevel {
+
+    /**
+     * Price of the level in ticks, for books that key their levels by tick.
+     */
+    long tick;
+
+    private OrderNode head;
+    private OrderNode tail;
+    private long totalSize;
+
+    boolean isEmpty() {
+        return head == null;
+    }
+
+    OrderNode first() {
+        return head;
+    }
+
+    void append(OrderNode node) {
+        node.level = this;
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        totalSize += node.size;
+    }
+
+    /**
+     * Reduces the size of the order in place (e.g. after a partial fill), the order keeps its position in the queue.
+     */
+    void reduce(OrderNode node, int filledSize) {
+        totalSize -= filledSize;
+        node.size -= filledSize;
+    }
+
+    void unlink(OrderNode node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        totalSize -= node.size;
+        node.level = null;
+        node.prev = null;
+        node.next = null;
+    }
+
+    long totalSize() {
+        return totalSize;
+    }
+}
@@ -0,0 +1,34 @@
+package com.mfruhrmann.orderbooks.impl;
+
+/**
+ * Fixed-point prices of a book, a price is a whole number of ticks of {@code priceStep}. The books convert the price of
+ * an incoming order once and key their levels by tick, so comparing and looking up prices are exact {@code long}
+ * operations and only the values handed out (level prices, top of book) are converted back.
+ * <p>
+ * For steps like 0.01 converting back divides by the number of ticks per unit, which gives the double closest to the
+ * decimal price, {@code tick * 0.01} would be off in the last bit for many ticks.
+ * <p>
+ * Public for the other stores of prices, e.g. the trade tape.
+ */
+public final class PriceTicks {
+
+    private final double priceStep;
+    private final double ticksPerUnit;
+
+    public PriceTicks(double priceStep) {
+        if (!(priceStep > 0) || Double.isInfinite(priceStep)) {
+            throw new IllegalArgumentException("priceStep has to be positive, got " + priceStep);
+        }
+        this.priceStep = priceStep;
+        double ticksPerUnit = Math.rint(1 / priceStep);
+        this.ticksPerUnit = ticksPerUnit >= 1 && Math.abs(ticksPerUnit * priceStep - 1) < 1e-12 ? ticksPerUnit : 0;
+    }
+
+    public long toTick(double price) {
+        return Math.round(price / priceStep);
+    }
+
+    public double toPrice(long tick) {
+        return ticksPerUnit > 0 ? tick / ticksPerUnit : tick * priceStep;
+    }
+}
@@ -0,0 +1,639 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.SnapshotableOrderBook;
+import com.mfruhrmann.orderbooks.api.time.TimeSource;
+import com.mfruhrmann.orderbooks.impl.collections.LongObjectHashMap;
+import com.mfruhrmann.orderbooks.impl.time.SystemEpochNanosTimeSource;
+import com.mfruhrmann.orderbooks.metrics.OrderBookMetrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.CANCELED;
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.NOT_EXISTS;
+
+/**
+ * Price levels of each side are kept in a preallocated circular array indexed by the tick offset of the price, so adding
+ * to a level and matching against the top of the book are plain array accesses instead of TreeMap or LinkedList walks.
+ * <p>
+ * The ladder of a side always covers {@code ladderSize} ticks starting at the best price of that side. When the best price
+ * moves the ladder re-centres in place: slots are addressed by {@code tick & mask}, so nothing is shifted or allocated.
+ * Levels further than {@code ladderSize} ticks from the top are parked in an overflow TreeMap and pulled back into the ladder
+ * once the top of the book comes close enough.
+ * <p>
+ * Orders of a level are kept in an intrusive {@link PriceLevel} queue, so cancelling an order is O(1) as well.
+ * Resting orders are mutable {@link OrderNode}s taken from an {@link OrderNodePool}: partial fills update them in place
+ * and they are recycled once filled or cancelled, so in a steady state adding, matching and cancelling orders does not
+ * allocate. Trades are published to {@link TradeEventListener}s without allocation too, only {@link OrderBookTradeListener}s
+ * get a new {@link Trade} record for every fill.
+ */
+public class TickLadderOrderBook implements SnapshotableOrderBook {
+
+    private static final int DEFAULT_EXPECTED_ORDERS = 1024;
+
+    private final List<OrderBookTradeListener> tradeListeners = new ArrayList<>();
+    private final List<TradeEventListener> tradeEventListeners = new ArrayList<>();
+    private final List<LevelUpdateListener> levelUpdateListeners = new ArrayList<>();
+
+    private final AtomicLong tradeIdGenerator = new AtomicLong();
+    private long levelUpdateSequence;
+
+    private final LongObjectHashMap<OrderNode> orders;
+    private final OrderNodePool orderNodePool;
+    private final Ladder asks;
+    private final Ladder bids;
+    private final PriceTicks priceTicks;
+    private final TopOfBookSeqLock topOfBook = new TopOfBookSeqLock();
+
+    private final TradeClock tradeClock;
+
+    private OrderBookMetrics metrics = OrderBookMetrics.DISABLED;
+
+    public TickLadderOrderBook(double priceStep, int ladderSize) {
+        this(priceStep, ladderSize, DEFAULT_EXPECTED_ORDERS);
+    }
+
+    /**
+     * @param priceStep      minimal price increment (tick size) of the instrument
+     * @param ladderSize     number of ticks kept in the array part of each side, has to be a power of two
+     * @param expectedOrders number of resting orders preallocated in the order pool and the order index
+     */
+    public TickLadderOrderBook(double priceStep, int ladderSize, int expectedOrders) {
+        this(priceStep, ladderSize, expectedOrders, SystemEpochNanosTimeSource.INSTANCE);
+    }
+
+    /**
+     * @param priceStep      minimal price increment (tick size) of the instrument
+     * @param ladderSize     number of ticks kept in the array part of each side, has to be a power of two
+     * @param expectedOrders number of resting orders preallocated in the order pool and the order index
+     * @param timeSource     clock the trades are stamped with, read once per incoming order that trades
+     */
+    public TickLadderOrderBook(double priceStep, int ladderSize, int expectedOrders, TimeSource timeSource) {
+        if (ladderSize <= 0 || Integer.bitCount(ladderSize) != 1) {
+            throw new IllegalArgumentException("ladderSize has to be a power of two, got " + ladderSize);
+        }
+        this.priceTicks = new PriceTicks(priceStep);
+        this.orders = new LongObjectHashMap<>(expectedOrders);
+        this.orderNodePool = new OrderNodePool(expectedOrders);
+        this.asks = new Ladder(ladderSize, 1);
+        this.bids = new Ladder(ladderSize, -1);
+        this.tradeClock = new TradeClock(timeSource);
+    }
+
+    /**
+     * Starts recording counters and latencies into {@code metrics}, see {@link OrderBookMetrics}.
+     */
+    public synchronized void setMetrics(OrderBookMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public synchronized long addOrder(Order order) {
+        tradeClock.reset();
+        long startTime = metrics.startAdd();
+        long lastTradeId = tradeIdGenerator.get();
+        match(order);
+        publishTopOfBook();
+        metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+
+        return order.id();
+    }
+
+    @Override
+    public synchronized void addOrders(Order[] orders, int count, long[] orderIds) {
+        tradeClock.reset();
+        for (int i = 0; i < count; i++) {
+            long startTime = metrics.startAdd();
+            long lastTradeId = tradeIdGenerator.get();
+            match(orders[i]);
+            orderIds[i] = orders[i].id();
+            metrics.recordAdd(startTime, tradeIdGenerator.get() != lastTradeId);
+        }
+        publishTopOfBook();
+    }
+
+    private void match(Order order) {
+        if (order.side() == Side.BUY) {
+            match(order, asks, bids);
+        } else if (order.side() == Side.SELL) {
+            match(order, bids, asks);
+        }
+    }
+
+    /**
+     * The ladder checks a fill or kill order on its level totals, including the levels in its overflow.
+     */
+    private void match(Order order, Ladder orderBookSide, Ladder oppositeSide) {
+        switch (order.type()) {
+            case LIMIT, IMMEDIATE_OR_CANCEL -> matchAndRest(order, toTick(order.price()), orderBookSide, oppositeSide);
+            case MARKET -> matchAndRest(order, 0, orderBookSide, oppositeSide);
+            case FILL_OR_KILL -> {
+                long tick = toTick(order.price());
+                if (orderBookSide.canFill(tick, order.size())) {
+                    matchAndRest(order, tick, orderBookSide, oppositeSide);
+                }
+            }
+        }
+    }
+
+    /**
+     * Only a limit order rests its remainder, the tick is ignored for market orders.
+     */
+    private void matchAndRest(Order incomingOrder, long tick, Ladder orderBookSide, Ladder oppositeSide) {
+        int sizeLeftToMatch = fill(incomingOrder, tick, orderBookSide);
+        if (sizeLeftToMatch > 0 && incomingOrder.type() == OrderType.LIMIT) {
+            rest(orderNodePool.acquire().set(incomingOrder, sizeLeftToMatch), tick, oppositeSide);
+        }
+    }
+
+    /**
+     * @return size of the incoming order left after matching
+     */
+    private int fill(Order incomingOrder, long tick, Ladder orderBookSide) {
+        var sizeLeftToMatch = incomingOrder.size();
+        boolean market = incomingOrder.type() == OrderType.MARKET;
+        while (sizeLeftToMatch > 0 && (market ? !orderBookSide.isEmpty() : orderBookSide.isMarketable(tick))) {
+            PriceLevel level = orderBookSide.bestLevel();
+
+            while (sizeLeftToMatch > 0 && !level.isEmpty()) {
+                OrderNode nextOrder = level.first();
+                if (sizeLeftToMatch >= nextOrder.size()) {
+                    //remove order
+                    level.unlink(nextOrder);
+                    this.orders.remove(nextOrder.id());
+                    //create a trade
+                    notifyTradeListeners(incomingOrder, nextOrder, nextOrder.size());
+                    sizeLeftToMatch -= nextOrder.size();
+                    orderNodePool.release(nextOrder);
+                } else {
+                    //handle partial order in place, the order keeps its place in the queue
+                    level.reduce(nextOrder, sizeLeftToMatch);
+                    //create a trade
+                    notifyTradeListeners(incomingOrder, nextOrder, sizeLeftToMatch);
+                    sizeLeftToMatch = 0;
+                }
+            }
+            notifyLevelUpdateListeners(orderBookSide.side, toPrice(level.tick), level.totalSize());
+            if (level.isEmpty()) {
+                orderBookSide.removeLevel(level);
+                metrics.onLevelRemoved();
+            }
+        }
+        return sizeLeftToMatch;
+    }
+
+    private void rest(OrderNode restingOrder, long tick, Ladder orderBookSide) {
+        this.orders.put(restingOrder.id, restingOrder);
+        PriceLevel level = orderBookSide.levelFor(tick);
+        if (level.isEmpty()) {
+            metrics.onLevelCreated();
+        }
+        level.append(restingOrder);
+        notifyLevelUpdateListeners(restingOrder.side, toPrice(tick), level.totalSize());
+    }
+
+    private void notifyTradeListeners(Order order, Order match, int sizeLeftToMatch) {
+        long tradeId = tradeIdGenerator.incrementAndGet();
+        metrics.onTrade();
+        if (tradeListeners.isEmpty() && tradeEventListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long ts = tradeClock.time();
+        for (int i = 0; i < tradeEventListeners.size(); i++) {
+            tradeEventListeners.get(i).onTrade(tradeId, order.id(), match.id(), match.price(), sizeLeftToMatch, ts);
+        }
+        for (int i = 0; i < tradeListeners.size(); i++) {
+            tradeListeners.get(i).onTrade(
+                    new Trade(String.valueOf(tradeId),
+                            Set.of(match.id(), order.id()),
+                            ts,
+                            match.price(),
+                            sizeLeftToMatch));
+        }
+        metrics.recordDispatch(dispatchStartTime);
+    }
+
+    private void notifyLevelUpdateListeners(Side side, double price, long quantity) {
+        if (levelUpdateListeners.isEmpty()) {
+            return;
+        }
+        long dispatchStartTime = metrics.startDispatch();
+        long sequence = ++levelUpdateSequence;
+        for (int i = 0; i < levelUpdateListeners.size(); i++) {
+            levelUpdateListeners.get(i).onLevelUpdate(sequence, side, price, quantity);
+        }
+        metrics.recordDispatch(dispatchStartTime);
+    }
+
+    private long toTick(double price) {
+        return priceTicks.toTick(price);
+    }
+
+    private double toPrice(long tick) {
+        return priceTicks.toPrice(tick);
+    }
+
+    @Override
+    public void addTradeListener(OrderBookTradeListener orderBookTradeListener) {
+        tradeListeners.add(orderBookTradeListener);
+    }
+
+    @Override
+    public void addTradeEventListener(TradeEventListener tradeEventListener) {
+        tradeEventListeners.add(tradeEventListener);
+    }
+
+    @Override
+    public void addLevelUpdateListener(LevelUpdateListener levelUpdateListener) {
+        levelUpdateListeners.add(levelUpdateListener);
+    }
+
+    @Override
+    public synchronized Order getOrder(long id) {
+        OrderNode node = orders.get(id);
+        return node == null ? null : node.toImmutableOrder();
+    }
+
+    @Override
+    public synchronized CancelStatus cancelOrder(long id) {
+        long startTime = metrics.startCancel();
+        CancelStatus cancelStatus = cancel(id);
+        publishTopOfBook();
+        metrics.recordCancel(startTime, cancelStatus == CANCELED);
+        return cancelStatus;
+    }
+
+    @Override
+    public synchronized void cancelOrders(long[] ids, int count, CancelStatus[] cancelStatuses) {
+        for (int i = 0; i < count; i++) {
+            long startTime = metrics.startCancel();
+            cancelStatuses[i] = cancel(ids[i]);
+            metrics.recordCancel(startTime, cancelStatuses[i] == CANCELED);
+        }
+        publishTopOfBook();
+    }
+
+    private CancelStatus cancel(long id) {
+        OrderNode node = orders.remove(id);
+        if (node == null) {
+            return NOT_EXISTS;
+        }
+        removeFromLevel(node);
+        orderNodePool.release(node);
+        return CANCELED;
+    }
+
+    private void removeFromLevel(OrderNode node) {
+        PriceLevel level = node.level;
+        level.unlink(node);
+        notifyLevelUpdateListeners(node.side, toPrice(level.tick), level.totalSize());
+        if (level.isEmpty()) {
+            (node.side == Side.BUY ? bids : asks).removeLevel(level);
+            metrics.onLevelRemoved();
+        }
+    }
+
+    @Override
+    public synchronized AmendStatus amendOrder(long id, int newSize, double newPrice) {
+        OrderNode node = orders.get(id);
+        if (node == null) {
+            return AmendStatus.NOT_EXISTS;
+        }
+        tradeClock.reset();
+        if (newSize <= 0) {
+            cancel(id);
+        } else if (Double.isNaN(newPrice) || toTick(newPrice) == node.level.tick) {
+            amendSize(node, newSize);
+        } else {
+            amendPrice(node, newSize, newPrice);
+        }
+        publishTopOfBook();
+        return AmendStatus.AMENDED;
+    }
+
+    private void amendSize(OrderNode node, int newSize) {
+        PriceLevel level = node.level;
+        if (newSize < node.size) {
+            level.reduce(node, node.size - newSize);
+        } else if (newSize > node.size) {
+            level.unlink(node);
+            node.size = newSize;
+            level.append(node);
+        } else {
+            return;
+        }
+        notifyLevelUpdateListeners(node.side, toPrice(level.tick), level.totalSize());
+    }
+
+    /**
+     * The remainder rests in the node of the order, the node only goes back to the pool when the order is filled.
+     */
+    private void amendPrice(OrderNode node, int newSize, double newPrice) {
+        orders.remove(node.id);
+        removeFromLevel(node);
+        node.price = newPrice;
+        node.size = newSize;
+        long tick = toTick(newPrice);
+        int sizeLeftToMatch = fill(node, tick, node.side == Side.BUY ? asks : bids);
+        if (sizeLeftToMatch > 0) {
+            node.size = sizeLeftToMatch;
+            rest(node, tick, node.side == Side.BUY ? bids : asks);
+        } else {
+            orderNodePool.release(node);
+        }
+    }
+
+    @Override
+    public synchronized List<Order> getAllOrders() {
+        List<Order> allOrders = new ArrayList<>(orders.size());
+        orders.forEachValue(node -> allOrders.add(node.toImmutableOrder()));
+        return allOrders;
+    }
+
+    @Override
+    public synchronized void forEachRestingOrder(RestingOrderVisitor visitor) {
+        Consumer<PriceLevel> levelVisitor = level -> {
+            for (OrderNode node = level.first(); node != null; node = node.next) {
+                visitor.onRestingOrder(node);
+            }
+        };
+        bids.forEachLevel(levelVisitor);
+        asks.forEachLevel(levelVisitor);
+    }
+
+    @Override
+    public synchronized int restingOrderCount() {
+        return orders.size();
+    }
+
+    @Override
+    public long lastTradeId() {
+        return tradeIdGenerator.get();
+    }
+
+    @Override
+    public void restoreLastTradeId(long lastTradeId) {
+        tradeIdGenerator.set(lastTradeId);
+    }
+
+    @Override
+    public synchronized int getDepth() {
+        return Math.max(bids.levelCount(), asks.levelCount());
+    }
+
+    /**
+     * Walks the ladder from the best tick, the overflow is only looked at when the ladder holds fewer than {@code n} levels.
+     */
+    @Override
+    public synchronized int snapshotTopLevels(int n, Side side, double[] prices, long[] quantities) {
+        return (side == Side.BUY ? bids : asks).copyTopLevels(n, priceTicks, prices, quantities);
+    }
+
+    @Override
+    public TopOrderBook getTopOrderBook() {
+        return topOfBook.read();
+    }
+
+    /**
+     * Publishing only writes primitives into the seqlock, so it keeps adding and cancelling orders allocation free.
+     */
+    private void publishTopOfBook() {
+        topOfBook.publish(
+                bids.isEmpty() ? Double.NaN : toPrice(bids.bestTick), bids.isEmpty() ? 0 : bids.bestLevel().totalSize(),
+                asks.isEmpty() ? Double.NaN : toPrice(asks.bestTick), asks.isEmpty() ? 0 : asks.bestLevel().totalSize());
+        metrics.updateDepth(bids.levelCount(), asks.levelCount(), orders.size());
+    }
+
+    @Override
+    public Map<Double, Double> getAskLevels() {
+        return getLevels(asks);
+    }
+
+    @Override
+    public Map<Double, Double> getBidLevels() {
+        return getLevels(bids);
+    }
+
+    private Map<Double, Double> getLevels(Ladder ladder) {
+        Map<Double, Double> levels = new HashMap<>();
+        ladder.forEachLevel(level -> levels.put(toPrice(level.tick), (double) level.totalSize()));
+        return levels;
+    }
+
+    /**
+     * One side of the book. Distances are measured in ticks away from the best price of the side, {@code direction} is
+     * +1 for asks (worse prices are higher) and -1 for bids (worse prices are lower).
+     */
+    private static final class Ladder {
+
+        private final PriceLevel[] slots;
+        private final int mask;
+        private final int direction;
+        private final Side side;
+        private final TreeMap<Long, PriceLevel> overflow;
+        private final ArrayDeque<PriceLevel> spareLevels = new ArrayDeque<>();
+
+        private long bestTick;
+        private int ladderLevels;
+
+        Ladder(int ladderSize, int direction) {
+            this.slots = new PriceLevel[ladderSize];
+            for (int i = 0; i < ladderSize; i++) {
+                slots[i] = new PriceLevel();
+            }
+            this.mask = ladderSize - 1;
+            this.direction = direction;
+            this.side = direction > 0 ? Side.SELL : Side.BUY;
+            this.overflow = new TreeMap<>(direction > 0 ? Comparator.<Long>naturalOrder() : Comparator.<Long>reverseOrder());
+        }
+
+        /**
+         * Overflow levels are only kept while the ladder holds the best price, so an empty ladder means an empty side.
+         */
+        boolean isEmpty() {
+            return ladderLevels == 0;
+        }
+
+        PriceLevel bestLevel() {
+            return slots[slotIndex(bestTick)];
+        }
+
+        /**
+         * Whether an incoming order of the opposite side at the given tick crosses the best price of this side.
+         */
+        boolean isMarketable(long tick) {
+            return !isEmpty() && distance(tick) >= 0;
+        }
+
+        /**
+         * Whether the levels an incoming order of the opposite side at the given tick crosses hold at least
+         * {@code size}. Only the level totals are summed, and the walk stops as soon as enough is found.
+         */
+        boolean canFill(long tick, long size) {
+            if (!isMarketable(tick)) {
+                return false;
+            }
+            long limitDistance = distance(tick);
+            long available = 0;
+            int levels = 0;
+            for (int distance = 0; distance < slots.length && distance <= limitDistance && levels < ladderLevels; distance++) {
+                PriceLevel level = slots[slotIndex(bestTick + (long) distance * direction)];
+                if (!level.isEmpty()) {
+                    levels++;
+                    available += level.totalSize();
+                    if (available >= size) {
+                        return true;
+                    }
+                }
+            }
+            for (PriceLevel level : overflow.values()) {
+                if (distance(level.tick) > limitDistance) {
+                    return false;
+                }
+                available += level.totalSize();
+                if (available >= size) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        PriceLevel levelFor(long tick) {
+            if (isEmpty()) {
+                bestTick = tick;
+                return activate(tick);
+            }
+            long distance = distance(tick);
+            if (distance >= slots.length) {
+                return overflow.computeIfAbsent(tick, this::spareLevel);
+            }
+            if (distance < 0) {
+                recentre(tick, distance);
+            }
+            PriceLevel level = slots[slotIndex(tick)];
+            return level.isEmpty() ? activate(tick) : level;
+        }
+
+        void removeLevel(PriceLevel level) {
+            if (distance(level.tick) >= slots.length) {
+                spareLevels.push(overflow.remove(level.tick));
+                return;
+            }
+            ladderLevels--;
+            if (level.tick != bestTick) {
+                return;
+            }
+            if (ladderLevels > 0) {
+                for (int distance = 1; distance < slots.length; distance++) {
+                    long tick = bestTick + (long) distance * direction;
+                    if (!slots[slotIndex(tick)].isEmpty()) {
+                        bestTick = tick;
+                        break;
+                    }
+                }
+            } else if (!overflow.isEmpty()) {
+                bestTick = overflow.firstKey();
+            } else {
+                return;
+            }
+            pullFromOverflow();
+        }
+
+        int levelCount() {
+            return ladderLevels + overflow.size();
+        }
+
+        int copyTopLevels(int n, PriceTicks priceTicks, double[] prices, long[] quantities) {
+            int levels = 0;
+            for (int distance = 0; distance < slots.length && levels < n && levels < ladderLevels; distance++) {
+                PriceLevel level = slots[slotIndex(bestTick + (long) distance * direction)];
+                if (!level.isEmpty()) {
+                    prices[levels] = priceTicks.toPrice(level.tick);
+                    quantities[levels++] = level.totalSize();
+                }
+            }
+            if (levels < n && !overflow.isEmpty()) {
+                for (PriceLevel level : overflow.values()) {
+                    if (levels == n) {
+                        break;
+                    }
+                    prices[levels] = priceTicks.toPrice(level.tick);
+                    quantities[levels++] = level.totalSize();
+                }
+            }
+            return levels;
+        }
+
+        void forEachLevel(Consumer<PriceLevel> consumer) {
+            if (isEmpty()) {
+                return;
+            }
+            for (int distance = 0; distance < slots.length; distance++) {
+                PriceLevel level = slots[slotIndex(bestTick + (long) distance * direction)];
+                if (!level.isEmpty()) {
+                    consumer.accept(level);
+                }
+            }
+            overflow.values().forEach(consumer);
+        }
+
+        private PriceLevel activate(long tick) {
+            PriceLevel level = slots[slotIndex(tick)];
+            level.tick = tick;
+            ladderLevels++;
+            return level;
+        }
+
+        /**
+         * Moves the best price to a better tick. Levels that would end up outside the ladder are parked in the overflow.
+         */
+        private void recentre(long newBestTick, long distance) {
+            for (long oldDistance = Math.max(slots.length + distance, 0); oldDistance < slots.length; oldDistance++) {
+                int slotIndex = slotIndex(bestTick + oldDistance * direction);
+                PriceLevel level = slots[slotIndex];
+                if (!level.isEmpty()) {
+                    overflow.put(level.tick, level);
+                    slots[slotIndex] = spareLevel(level.tick);
+                    ladderLevels--;
+                }
+            }
+            bestTick = newBestTick;
+        }
+
+        private void pullFromOverflow() {
+            while (!overflow.isEmpty() && distance(overflow.firstKey()) < slots.length) {
+                PriceLevel level = overflow.pollFirstEntry().getValue();
+                int slotIndex = slotIndex(level.tick);
+                spareLevels.push(slots[slotIndex]);
+                slots[slotIndex] = level;
+                ladderLevels++;
+            }
+        }
+
+        /**
+         * Levels swapped between the ladder and the overflow are recycled, so re-centering does not allocate new levels.
+         */
+        private PriceLevel spareLevel(long tick) {
+            PriceLevel level = spareLevels.isEmpty() ? new PriceLevel() : spareLevels.pop();
+            level.tick = tick;
+            return level;
+        }
+
+        private long distance(long tick) {
+            return (tick - bestTick) * direction;
+        }
+
+        private int slotIndex(long tick) {
+            return (int) (tick & mask);
+        }
+    }
+}
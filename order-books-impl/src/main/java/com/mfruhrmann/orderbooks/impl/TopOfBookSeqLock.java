@@ -0,0 +1,68 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook.TopOrderBook;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Best bid and ask of a book published through a seqlock. The book publishes every change of its top while holding its
+ * own monitor, so there is a single writer at a time, and readers on any other thread get a consistent copy without
+ * taking that monitor. Readers retry while a write is in progress, the writer never waits for readers.
+ * <p>
+ * The version is odd while a write is in progress and even once it is complete, {@code version / 2} is the sequence
+ * number of the published top of book. A missing price is stored as {@code NaN}.
+ */
+final class TopOfBookSeqLock {
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(TopOfBookSeqLock.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private long version;
+    private double bid = Double.NaN;
+    private long bidSize;
+    private double ask = Double.NaN;
+    private long askSize;
+
+    /**
+     * Publishes a new top of book, the sequence number only moves when one of the values has changed.
+     */
+    void publish(double bid, long bidSize, double ask, long askSize) {
+        if (Double.compare(this.bid, bid) == 0 && this.bidSize == bidSize
+                && Double.compare(this.ask, ask) == 0 && this.askSize == askSize) {
+            return;
+        }
+        long version = this.version;
+        VERSION.setOpaque(this, version + 1);
+        VarHandle.storeStoreFence();
+        this.bid = bid;
+        this.bidSize = bidSize;
+        this.ask = ask;
+        this.askSize = askSize;
+        VERSION.setRelease(this, version + 2);
+    }
+
+    TopOrderBook read() {
+        while (true) {
+            long version = (long) VERSION.getAcquire(this);
+            if ((version & 1) == 0) {
+                double bid = this.bid;
+                long bidSize = this.bidSize;
+                double ask = this.ask;
+                long askSize = this.askSize;
+                VarHandle.loadLoadFence();
+                if (version == (long) VERSION.getOpaque(this)) {
+                    return new TopOrderBook(Double.isNaN(bid) ? null : bid, bidSize, Double.isNaN(ask) ? null : ask, askSize, version >>> 1);
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.time.TimeSource;
+
+/**
+ * Time of the trades of one call into a book. The time source is read when the first trade of the call happens and
+ * every later trade of the call gets the same time, so an order that does not trade never reads the clock and a whole
+ * batch reads it at most once. The book resets it at the start of every call.
+ */
+final class TradeClock {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final TimeSource timeSource;
+    private long time = NO_TIME;
+
+    TradeClock(TimeSource timeSource) {
+        this.timeSource = timeSource;
+    }
+
+    void reset() {
+        time = NO_TIME;
+    }
+
+    long time() {
+        if (time == NO_TIME) {
+            time = timeSource.getCurrentTime();
+        }
+        return time;
+    }
+}
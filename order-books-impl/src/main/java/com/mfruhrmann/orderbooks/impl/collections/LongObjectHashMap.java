@@ -0,0 +1,152 @@
+package com.mfruhrmann.orderbooks.impl.collections;
+
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing map from primitive {@code long} keys to objects, used as the id -> order index of the books.
+ * <p>
+ * Keys and values live in two parallel arrays with linear probing, so there is no boxing and no entry object per mapping.
+ * A slot is free when its value is {@code null}, which is why {@code null} values are not supported. Removal shifts the
+ * following entries of the probe chain back instead of leaving tombstones, so lookups do not degrade with cancel heavy flow.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private V[] values;
+    private int mask;
+    private int shift;
+    private int resizeThreshold;
+    private int size;
+
+    public LongObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of mappings the map should hold without resizing
+     */
+    public LongObjectHashMap(int expectedSize) {
+        allocate(Math.max(16, Integer.highestOneBit((int) Math.min(expectedSize / LOAD_FACTOR, 1 << 30) - 1) << 1));
+    }
+
+    public V get(long key) {
+        for (int index = indexOf(key); values[index] != null; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the previous value mapped to the key or {@code null}
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        int index = indexOf(key);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed value or {@code null} when the key was not mapped
+     */
+    public V remove(long key) {
+        int index = indexOf(key);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V removed = values[index];
+                values[index] = null;
+                size--;
+                shiftBack(index);
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEachValue(Consumer<? super V> consumer) {
+        for (V value : values) {
+            if (value != null) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Moves entries following the freed slot back, so that every entry stays reachable from its home slot.
+     */
+    private void shiftBack(int freeIndex) {
+        int index = freeIndex;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == null) {
+                return;
+            }
+            int home = indexOf(keys[index]);
+            // the entry can be moved if its home slot is not cyclically within (freeIndex, index]
+            if (((index - home) & mask) >= ((index - freeIndex) & mask)) {
+                keys[freeIndex] = keys[index];
+                values[freeIndex] = values[index];
+                values[index] = null;
+                freeIndex = index;
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        V[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int index = indexOf(oldKeys[i]);
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = (V[]) new Object[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int indexOf(long key) {
+        // fibonacci hashing spreads sequential ids over the whole table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+}
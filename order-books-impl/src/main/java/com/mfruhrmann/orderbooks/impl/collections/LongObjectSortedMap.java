@@ -0,0 +1,136 @@
+package com.mfruhrmann.orderbooks.impl.collections;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Sorted map from primitive {@code long} keys to objects, used for the price levels of a book side keyed by tick.
+ * <p>
+ * Keys and values live in two parallel arrays kept in key order and found by binary search, so there is no boxing and
+ * no tree node per mapping. The arrays hold the entries in reverse, the first entry of the map sits at the end: adding or
+ * removing a level close to the best price only moves the few entries in front of it, removing the best level moves none.
+ * Entries are addressed by their rank in map order, rank 0 is the first entry. {@code null} values are not supported.
+ */
+public class LongObjectSortedMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final boolean descending;
+    private long[] keys;
+    private V[] values;
+    private int size;
+
+    /**
+     * @param descending whether the first entry has the highest key (bids) instead of the lowest (asks)
+     */
+    public LongObjectSortedMap(boolean descending) {
+        this(descending, DEFAULT_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public LongObjectSortedMap(boolean descending, int initialCapacity) {
+        this.descending = descending;
+        this.keys = new long[Math.max(initialCapacity, 4)];
+        this.values = (V[]) new Object[keys.length];
+    }
+
+    public V get(long key) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    /**
+     * @return the previous value mapped to the key or {@code null}
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            V previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        index = -index - 1;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+            values = Arrays.copyOf(values, size << 1);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * @return the removed value or {@code null} when the key was not mapped
+     */
+    public V remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V removed = values[index];
+        removeIndex(index);
+        return removed;
+    }
+
+    public long keyAt(int rank) {
+        return keys[size - 1 - rank];
+    }
+
+    public V valueAt(int rank) {
+        return values[size - 1 - rank];
+    }
+
+    public void removeAt(int rank) {
+        removeIndex(size - 1 - rank);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visits the values in map order, first entry first.
+     */
+    public void forEachValue(Consumer<? super V> consumer) {
+        for (int index = size - 1; index >= 0; index--) {
+            consumer.accept(values[index]);
+        }
+    }
+
+    private void removeIndex(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        values[--size] = null;
+    }
+
+    /**
+     * Binary search over the reversed key order, returns {@code -(insertion index) - 1} when the key is not mapped.
+     */
+    private int indexOf(long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = keys[middle];
+            if (middleKey == key) {
+                return middle;
+            }
+            if (descending == middleKey < key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return -low - 1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mfruhrmann.orderbooks.impl.time;
+
+import com.mfruhrmann.orderbooks.api.time.TimeSource;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Nanoseconds since the epoch, read from a volatile field a background ticker thread updates once per resolution. Reading
+ * the time costs a plain load, where {@link System#nanoTime()} or {@link java.time.Instant#now()} cost tens of
+ * nanoseconds each and the latter allocates unless escape analysis removes it. The price is that the time is up to one
+ * resolution behind and that consecutive reads within a tick return the same value.
+ * <p>
+ * The ticker parks between updates, so resolutions below the park granularity of the OS (around 50 microseconds on
+ * Linux) end up at that granularity. It is a daemon thread, started by the constructor and stopped by {@link #close()}.
+ */
+public class CachedClockTimeSource implements TimeSource, AutoCloseable {
+
+    private final TimeSource clock;
+    private final long resolutionNanos;
+    private final Thread ticker;
+
+    private volatile long currentTime;
+    private volatile boolean running = true;
+
+    public CachedClockTimeSource(long resolution, TimeUnit unit) {
+        this(SystemEpochNanosTimeSource.INSTANCE, resolution, unit);
+    }
+
+    /**
+     * @param clock source the ticker reads, in the unit the cached time is wanted in
+     */
+    public CachedClockTimeSource(TimeSource clock, long resolution, TimeUnit unit) {
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("resolution has to be positive, got " + resolution);
+        }
+        this.clock = clock;
+        this.resolutionNanos = unit.toNanos(resolution);
+        this.currentTime = clock.getCurrentTime();
+        this.ticker = new Thread(this::tick, "cached-clock-ticker");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    private void tick() {
+        while (running) {
+            LockSupport.parkNanos(resolutionNanos);
+            currentTime = clock.getCurrentTime();
+        }
+    }
+
+    @Override
+    public long getCurrentTime() {
+        return currentTime;
+    }
+
+    /**
+     * Stops the ticker thread. Returns with the interrupt flag set when interrupted while waiting for it.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+        try {
+            ticker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.mfruhrmann.orderbooks.impl.time;
+
+import com.mfruhrmann.orderbooks.api.time.TimeSource;
+
+import java.time.Instant;
+
+/**
+ * Nanoseconds since the epoch with the precision of {@link Instant#now()}, which is also what every call costs.
+ */
+public class SystemEpochNanosTimeSource implements TimeSource {
+
+    public static final SystemEpochNanosTimeSource INSTANCE = new SystemEpochNanosTimeSource();
+
+    @Override
+    public long getCurrentTime() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+}
@@ -0,0 +1,192 @@
+package com.mfruhrmann.orderbooks.journal;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.SnapshotableOrderBook;
+import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary image of all resting orders of a book in price-time order, the last trade id and the journal position it
+ * covers, so a restart only has to replay the journal behind that position.
+ * <p>
+ * {@link #capture} only takes the header values, {@link #writeTo} walks the resting orders and encodes them straight into
+ * memory mapped windows of the file, so a snapshot never needs a copy of the book on the heap and is not limited by the
+ * size of a single buffer. Walking every resting order takes seconds for millions of orders, which is why the
+ * {@link PeriodicSnapshotter} snapshots a shadow book instead of the one that is matching. A snapshot read from a file is
+ * restored window by window from the mapping. Little endian layout:
+ * <pre>
+ * header  magic(4) version(4) journalPosition(8) lastTradeId(8) orderCount(8)
+ * order   orderId(8) side(1) orderType(1) epochSecond(8) nanos(4) price(8) size(4)
+ * </pre>
+ */
+public class BookSnapshot {
+
+    static final int MAGIC = 0x4F42534E;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int ORDER_SIZE = 34;
+
+    /**
+     * Orders mapped at once while writing or restoring, a window never splits an order.
+     */
+    private static final int WINDOW_ORDERS = 1 << 20;
+
+    private static final OrderBook.Side[] SIDES = OrderBook.Side.values();
+    private static final OrderBook.OrderType[] ORDER_TYPES = OrderBook.OrderType.values();
+
+    private final SnapshotableOrderBook orderBook;
+    private final Path file;
+    private final long journalPosition;
+    private final long lastTradeId;
+    private final long orderCount;
+
+    private BookSnapshot(SnapshotableOrderBook orderBook, Path file, long journalPosition, long lastTradeId, long orderCount) {
+        this.orderBook = orderBook;
+        this.file = file;
+        this.journalPosition = journalPosition;
+        this.lastTradeId = lastTradeId;
+        this.orderCount = orderCount;
+    }
+
+    /**
+     * Snapshot of the book as it is when the snapshot is written or restored, the caller has to make sure it does not
+     * change meanwhile.
+     *
+     * @param journalPosition position of the journal behind the last command executed by the book
+     */
+    public static BookSnapshot capture(SnapshotableOrderBook orderBook, long journalPosition) {
+        return new BookSnapshot(orderBook, null, journalPosition, orderBook.lastTradeId(), orderBook.restingOrderCount());
+    }
+
+    public static BookSnapshot readFrom(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.position() != HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || channel.size() != HEADER_SIZE + header.getLong(24) * ORDER_SIZE) {
+                throw new IOException(file + " is not a complete book snapshot");
+            }
+            return new BookSnapshot(null, file, header.getLong(8), header.getLong(16), header.getLong(24));
+        }
+    }
+
+    public void writeTo(Path file) throws IOException {
+        if (orderBook == null) {
+            throw new IllegalStateException("Only a captured snapshot can be written, this one was read from " + this.file);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OrderWriter orderWriter = new OrderWriter(channel);
+            try {
+                orderBook.forEachRestingOrder(orderWriter);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            orderWriter.finish();
+        }
+    }
+
+    /**
+     * Adds the orders to an empty book in price-time order, they all rest again without matching.
+     */
+    public void restore(SnapshotableOrderBook orderBook) throws IOException {
+        if (this.orderBook != null) {
+            this.orderBook.forEachRestingOrder(order ->
+                    orderBook.addOrder(new ImmutableOrder(order.id(), order.side(), order.type(), order.ts(), order.price(), order.size())));
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (long first = 0; first < orderCount; first += WINDOW_ORDERS) {
+                    int orders = (int) Math.min(WINDOW_ORDERS, orderCount - first);
+                    MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * ORDER_SIZE, (long) orders * ORDER_SIZE);
+                    restore(window.order(ByteOrder.LITTLE_ENDIAN), orderBook);
+                }
+            }
+        }
+        orderBook.restoreLastTradeId(lastTradeId);
+    }
+
+    private static void restore(ByteBuffer orders, SnapshotableOrderBook orderBook) {
+        while (orders.hasRemaining()) {
+            long orderId = orders.getLong();
+            OrderBook.Side side = SIDES[orders.get()];
+            OrderBook.OrderType orderType = ORDER_TYPES[orders.get()];
+            long ts = JournalFormat.ts(orders.getLong(), orders.getInt());
+            double price = orders.getDouble();
+            int size = orders.getInt();
+            orderBook.addOrder(new ImmutableOrder(orderId, side, orderType, ts, price, size));
+        }
+    }
+
+    public long journalPosition() {
+        return journalPosition;
+    }
+
+    public long lastTradeId() {
+        return lastTradeId;
+    }
+
+    public long orderCount() {
+        return orderCount;
+    }
+
+    /**
+     * Encodes the visited orders into the file, mapping the next window whenever the current one is full.
+     */
+    private final class OrderWriter implements SnapshotableOrderBook.RestingOrderVisitor {
+
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long written;
+
+        OrderWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.window = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            window.order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(VERSION).putLong(journalPosition).putLong(lastTradeId).putLong(orderCount);
+        }
+
+        @Override
+        public void onRestingOrder(OrderBook.Order order) {
+            if (written == orderCount) {
+                throw new IllegalStateException("The book has changed while it was written, it has more than " + orderCount + " orders");
+            }
+            if (!window.hasRemaining()) {
+                nextWindow();
+            }
+            long ts = order.ts();
+            window.putLong(order.id())
+                    .put((byte) order.side().ordinal())
+                    .put((byte) order.type().ordinal())
+                    .putLong(JournalFormat.epochSecond(ts))
+                    .putInt(JournalFormat.nanos(ts))
+                    .putDouble(order.price())
+                    .putInt(order.size());
+            written++;
+        }
+
+        private void nextWindow() {
+            window.force();
+            int orders = (int) Math.min(WINDOW_ORDERS, orderCount - written);
+            try {
+                window = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + written * ORDER_SIZE, (long) orders * ORDER_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void finish() throws IOException {
+            window.force();
+            if (written != orderCount) {
+                throw new IllegalStateException("The book has changed while it was written, " + written + " of " + orderCount + " orders");
+            }
+        }
+    }
+}
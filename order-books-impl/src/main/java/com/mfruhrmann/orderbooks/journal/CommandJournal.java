@@ -0,0 +1,222 @@
+package com.mfruhrmann.orderbooks.journal;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Append only journal of the commands accepted by a book, written into memory mapped chunks of the journal file (see
+ * {@link JournalFormat}). Appending a command is a copy into the mapping, the matching thread does not wait for the disk:
+ * once the command is in the mapping it survives a crash of the process, the operating system writes it back on its own.
+ * To survive a crash of the machine as well, the written range is forced to the disk in batches of {@code syncBatchSize}
+ * commands, 0 leaves it to the operating system and {@link #sync()}.
+ * <p>
+ * Writing to a fresh page of a mapped file page faults, the filesystem has to allocate it. To keep that off the matching
+ * thread the journal touches every page of a chunk before it starts writing there: the current chunk when the journal is
+ * opened, the next one on a background thread while the current one is filled up.
+ * <p>
+ * Opening an existing journal continues behind its last command. The journal is not thread-safe, it is meant to be
+ * written by the matching thread, see {@link JournalingOrderBook}. A {@link JournalReader} may tail it concurrently.
+ */
+public class CommandJournal implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final int PAGE_SIZE = 4096;
+
+    private final FileChannel channel;
+    private final int chunkSize;
+    private final int syncBatchSize;
+    private final ExecutorService preTouchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "command-journal-pretouch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private Future<MappedByteBuffer> nextChunk;
+    private int syncedPosition;
+    private int unsyncedCommands;
+
+    public CommandJournal(Path path) throws IOException {
+        this(path, DEFAULT_CHUNK_SIZE, 0);
+    }
+
+    /**
+     * @param chunkSize     size of a single mapping, the journal of an existing file keeps the chunk size it was written with
+     * @param syncBatchSize number of commands after which the written range is forced to the disk, 0 for no forcing
+     */
+    public CommandJournal(Path path, int chunkSize, int syncBatchSize) throws IOException {
+        if (chunkSize < JournalFormat.HEADER_SIZE + JournalFormat.ADD_ORDER_SIZE + 1) {
+            throw new IllegalArgumentException("chunkSize is too small for a single command, got " + chunkSize);
+        }
+        this.syncBatchSize = syncBatchSize;
+        if (Files.exists(path) && Files.size(path) > 0) {
+            JournalReader journalReader = new JournalReader(path);
+            journalReader.read(SkippingVisitor.INSTANCE);
+            this.chunkSize = journalReader.chunkSize();
+            this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long endPosition = journalReader.endPosition();
+            this.chunkStart = endPosition - endPosition % this.chunkSize;
+            this.chunk = mapChunk(chunkStart, (int) (endPosition - chunkStart));
+            chunk.position((int) (endPosition - chunkStart));
+        } else {
+            this.chunkSize = chunkSize;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.chunkStart = 0;
+            this.chunk = mapChunk(0, 0);
+            chunk.putInt(JournalFormat.MAGIC).putInt(JournalFormat.VERSION).putInt(chunkSize);
+            chunk.position(JournalFormat.HEADER_SIZE);
+        }
+        this.syncedPosition = chunk.position();
+        this.nextChunk = preTouchNextChunk();
+    }
+
+    public void appendAddOrder(OrderBook.Order order) {
+        MappedByteBuffer chunk = reserve(JournalFormat.ADD_ORDER_SIZE);
+        int recordStart = chunk.position();
+        long ts = order.ts();
+        chunk.position(recordStart + 1)
+                .putLong(order.id())
+                .put((byte) order.side().ordinal())
+                .put((byte) order.type().ordinal())
+                .putLong(JournalFormat.epochSecond(ts))
+                .putInt(JournalFormat.nanos(ts))
+                .putDouble(order.price())
+                .putInt(order.size());
+        publish(recordStart, JournalFormat.ADD_ORDER);
+    }
+
+    public void appendCancelOrder(long orderId) {
+        MappedByteBuffer chunk = reserve(JournalFormat.CANCEL_ORDER_SIZE);
+        int recordStart = chunk.position();
+        chunk.position(recordStart + 1)
+                .putLong(orderId);
+        publish(recordStart, JournalFormat.CANCEL_ORDER);
+    }
+
+    /**
+     * {@code Double.NaN} as new price keeps the price, see {@link OrderBook#amendOrder(long, int, double)}.
+     */
+    public void appendAmendOrder(long orderId, int newSize, double newPrice) {
+        MappedByteBuffer chunk = reserve(JournalFormat.AMEND_ORDER_SIZE);
+        int recordStart = chunk.position();
+        chunk.position(recordStart + 1)
+                .putLong(orderId)
+                .putInt(newSize)
+                .putDouble(newPrice);
+        publish(recordStart, JournalFormat.AMEND_ORDER);
+    }
+
+    /**
+     * File position right behind the last appended command, a snapshot taken now covers the journal up to here.
+     */
+    public long position() {
+        return chunkStart + chunk.position();
+    }
+
+    /**
+     * Forces everything appended since the last sync to the disk.
+     */
+    public void sync() {
+        int position = chunk.position();
+        if (position > syncedPosition) {
+            chunk.force(syncedPosition, position - syncedPosition);
+            syncedPosition = position;
+        }
+        unsyncedCommands = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        preTouchExecutor.shutdownNow();
+        channel.close();
+    }
+
+    /**
+     * Makes sure the record and an {@code END_OF_CHUNK} marker behind it fit into the current chunk.
+     */
+    private MappedByteBuffer reserve(int recordSize) {
+        if (chunk.remaining() < recordSize + 1) {
+            VarHandle.releaseFence();
+            chunk.put(JournalFormat.END_OF_CHUNK);
+            if (syncBatchSize > 0) {
+                sync();
+            }
+            chunk = awaitNextChunk();
+            chunkStart += chunkSize;
+            syncedPosition = 0;
+            nextChunk = preTouchNextChunk();
+        }
+        return chunk;
+    }
+
+    /**
+     * The type byte is written last, a reader tailing the journal sees either {@code END_OF_JOURNAL} or a complete record.
+     */
+    private void publish(int recordStart, byte type) {
+        VarHandle.releaseFence();
+        chunk.put(recordStart, type);
+        if (syncBatchSize > 0 && ++unsyncedCommands >= syncBatchSize) {
+            sync();
+        }
+    }
+
+    private Future<MappedByteBuffer> preTouchNextChunk() {
+        long nextChunkStart = chunkStart + chunkSize;
+        return preTouchExecutor.submit(() -> mapChunk(nextChunkStart, 0));
+    }
+
+    private MappedByteBuffer awaitNextChunk() {
+        try {
+            return nextChunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next journal chunk", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioException ? new UncheckedIOException(ioException) : new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Maps the chunk and touches all of its pages from {@code writeFrom} on, the bytes up to there are already written.
+     */
+    private MappedByteBuffer mapChunk(long chunkStart, int writeFrom) throws IOException {
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, chunkStart, chunkSize);
+        chunk.order(ByteOrder.LITTLE_ENDIAN);
+        for (int position = writeFrom; position < chunkSize; position = (position / PAGE_SIZE + 1) * PAGE_SIZE) {
+            chunk.put(position, (byte) 0);
+        }
+        return chunk;
+    }
+
+    private enum SkippingVisitor implements JournalReader.CommandVisitor {
+        INSTANCE;
+
+        @Override
+        public void onAddOrder(OrderBook.Order order) {
+        }
+
+        @Override
+        public void onCancelOrder(long orderId) {
+        }
+
+        @Override
+        public void onAmendOrder(long orderId, int newSize, double newPrice) {
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.mfruhrmann.orderbooks.journal;
+
+/**
+ * Binary layout of the command journal, all numbers are little endian.
+ * <p>
+ * The file starts with a header ({@code MAGIC}, {@code VERSION}, chunk size) and is written in chunks of fixed size, each
+ * mapped on its own. A record never spans two chunks: when the next record does not fit, the writer closes the chunk
+ * with {@code END_OF_CHUNK} and continues at the start of the next one. Files grow by whole chunks and are zero filled,
+ * so a {@code 0} type byte marks the end of the journal.
+ * <pre>
+ * ADD_ORDER     type(1) orderId(8) side(1) orderType(1) epochSecond(8) nanos(4) price(8) size(4)
+ * CANCEL_ORDER  type(1) orderId(8)
+ * AMEND_ORDER   type(1) orderId(8) newSize(4) newPrice(8)
+ * END_OF_CHUNK  type(1)
+ * </pre>
+ * The timestamp of an order (nanoseconds since the epoch) is stored split into seconds and nanoseconds, the way it was
+ * stored when orders carried an {@link java.time.Instant}, so older journals and snapshots stay readable.
+ */
+final class JournalFormat {
+
+    static final int MAGIC = 0x4F424A4C;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    static final byte END_OF_JOURNAL = 0;
+    static final byte ADD_ORDER = 1;
+    static final byte CANCEL_ORDER = 2;
+    static final byte END_OF_CHUNK = 3;
+    static final byte AMEND_ORDER = 4;
+
+    static final int ADD_ORDER_SIZE = 35;
+    static final int CANCEL_ORDER_SIZE = 9;
+    static final int AMEND_ORDER_SIZE = 21;
+
+    private JournalFormat() {
+    }
+
+    static long epochSecond(long ts) {
+        return Math.floorDiv(ts, 1_000_000_000L);
+    }
+
+    static int nanos(long ts) {
+        return (int) Math.floorMod(ts, 1_000_000_000L);
+    }
+
+    static long ts(long epochSecond, int nanos) {
+        return epochSecond * 1_000_000_000L + nanos;
+    }
+}
@@ -0,0 +1,240 @@
+package com.mfruhrmann.orderbooks.journal;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a journal written by {@link CommandJournal} chunk by chunk through read only mappings and hands every command
+ * to a {@link CommandVisitor}. {@link #replay(OrderBook)} rebuilds a book by executing the commands in journal order,
+ * matching is deterministic, so the book ends up with the same resting orders as the one that wrote the journal.
+ * <p>
+ * The journal may still be written while it is read, reading stops at the last complete command and a later read can
+ * continue from {@link #endPosition()}.
+ * <p>
+ * {@link #readInPlace(CommandVisitor)} decodes every add into the same reused order instead of a new one, for visitors
+ * that copy what they keep, e.g. replaying recorded flow into a book that copies incoming orders into its own nodes.
+ */
+public class JournalReader {
+
+    private static final OrderBook.Side[] SIDES = OrderBook.Side.values();
+    private static final OrderBook.OrderType[] ORDER_TYPES = OrderBook.OrderType.values();
+
+    private final Path path;
+
+    private int chunkSize;
+    private long endPosition;
+
+    public JournalReader(Path path) {
+        this.path = path;
+    }
+
+    public interface CommandVisitor {
+        void onAddOrder(OrderBook.Order order);
+
+        void onCancelOrder(long orderId);
+
+        void onAmendOrder(long orderId, int newSize, double newPrice);
+    }
+
+    /**
+     * Executes all journaled commands on the book. Replay into a fresh book, listeners registered before the replay
+     * are notified about the replayed trades again.
+     *
+     * @return number of replayed commands
+     */
+    public long replay(OrderBook orderBook) throws IOException {
+        return replay(orderBook, 0);
+    }
+
+    /**
+     * Executes the commands journaled behind the given position, e.g. the tail after a snapshot.
+     *
+     * @return number of replayed commands
+     */
+    public long replay(OrderBook orderBook, long fromPosition) throws IOException {
+        return read(fromPosition, new CommandVisitor() {
+            @Override
+            public void onAddOrder(OrderBook.Order order) {
+                orderBook.addOrder(order);
+            }
+
+            @Override
+            public void onCancelOrder(long orderId) {
+                orderBook.cancelOrder(orderId);
+            }
+
+            @Override
+            public void onAmendOrder(long orderId, int newSize, double newPrice) {
+                orderBook.amendOrder(orderId, newSize, newPrice);
+            }
+        });
+    }
+
+    /**
+     * @return number of commands passed to the visitor
+     */
+    public long read(CommandVisitor visitor) throws IOException {
+        return read(0, visitor);
+    }
+
+    /**
+     * Reads the commands journaled behind {@code fromPosition}, which has to be a position right behind a command (see
+     * {@link CommandJournal#position()}) or 0 for the whole journal.
+     *
+     * @return number of commands passed to the visitor
+     */
+    public long read(long fromPosition, CommandVisitor visitor) throws IOException {
+        return read(fromPosition, visitor, null);
+    }
+
+    /**
+     * Reads the whole journal without allocating per command: the order passed to {@link CommandVisitor#onAddOrder} is
+     * overwritten by the next add, it must not be kept beyond the call.
+     *
+     * @return number of commands passed to the visitor
+     */
+    public long readInPlace(CommandVisitor visitor) throws IOException {
+        return read(0, visitor, new ReusedOrder());
+    }
+
+    /**
+     * @param reusedOrder order every add is decoded into, {@code null} for a new order per add
+     */
+    private long read(long fromPosition, CommandVisitor visitor, ReusedOrder reusedOrder) throws IOException {
+        long commands = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            MappedByteBuffer chunk = map(channel, 0, Math.min(fileSize, JournalFormat.HEADER_SIZE));
+            if (chunk.getInt() != JournalFormat.MAGIC || chunk.getInt() != JournalFormat.VERSION) {
+                throw new IOException(path + " is not a command journal");
+            }
+            chunkSize = chunk.getInt();
+
+            long chunkStart = fromPosition - fromPosition % chunkSize;
+            int position = (int) Math.max(fromPosition - chunkStart, chunkStart == 0 ? JournalFormat.HEADER_SIZE : 0);
+            while (chunkStart < fileSize) {
+                chunk = map(channel, chunkStart, Math.min(chunkSize, fileSize - chunkStart));
+                chunk.position(position);
+                while (true) {
+                    int recordStart = chunk.position();
+                    byte type = chunk.hasRemaining() ? chunk.get() : JournalFormat.END_OF_JOURNAL;
+                    VarHandle.acquireFence();
+                    if (type == JournalFormat.ADD_ORDER) {
+                        visitor.onAddOrder(reusedOrder == null ? readOrder(chunk) : reusedOrder.read(chunk));
+                    } else if (type == JournalFormat.CANCEL_ORDER) {
+                        visitor.onCancelOrder(chunk.getLong());
+                    } else if (type == JournalFormat.AMEND_ORDER) {
+                        visitor.onAmendOrder(chunk.getLong(), chunk.getInt(), chunk.getDouble());
+                    } else if (type == JournalFormat.END_OF_CHUNK) {
+                        break;
+                    } else if (type == JournalFormat.END_OF_JOURNAL) {
+                        endPosition = chunkStart + recordStart;
+                        return commands;
+                    } else {
+                        throw new IOException("Corrupted journal " + path + " at " + (chunkStart + recordStart) + ", unknown record type " + type);
+                    }
+                    commands++;
+                }
+                chunkStart += chunkSize;
+                position = 0;
+            }
+            endPosition = chunkStart;
+            return commands;
+        }
+    }
+
+    private static OrderBook.Order readOrder(MappedByteBuffer chunk) {
+        long orderId = chunk.getLong();
+        OrderBook.Side side = SIDES[chunk.get()];
+        OrderBook.OrderType orderType = ORDER_TYPES[chunk.get()];
+        long ts = JournalFormat.ts(chunk.getLong(), chunk.getInt());
+        double price = chunk.getDouble();
+        int size = chunk.getInt();
+        return new ImmutableOrder(orderId, side, orderType, ts, price, size);
+    }
+
+    /**
+     * Order decoded in place from an {@code ADD_ORDER} record.
+     */
+    private static final class ReusedOrder implements OrderBook.Order {
+        private long id;
+        private OrderBook.Side side;
+        private OrderBook.OrderType type;
+        private long ts;
+        private double price;
+        private int size;
+
+        ReusedOrder read(MappedByteBuffer chunk) {
+            id = chunk.getLong();
+            side = SIDES[chunk.get()];
+            type = ORDER_TYPES[chunk.get()];
+            ts = JournalFormat.ts(chunk.getLong(), chunk.getInt());
+            price = chunk.getDouble();
+            size = chunk.getInt();
+            return this;
+        }
+
+        @Override
+        public long id() {
+            return id;
+        }
+
+        @Override
+        public OrderBook.Side side() {
+            return side;
+        }
+
+        @Override
+        public OrderBook.OrderType type() {
+            return type;
+        }
+
+        @Override
+        public long ts() {
+            return ts;
+        }
+
+        @Override
+        public double price() {
+            return price;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public OrderBook.Order withNewSize(int size) {
+            return new ImmutableOrder(id, side, type, ts, price, size);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Chunk size of the journal, known after {@link #read(CommandVisitor)}.
+     */
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * File position right behind the last command read, known after {@link #read(CommandVisitor)}.
+     */
+    public long endPosition() {
+        return endPosition;
+    }
+}
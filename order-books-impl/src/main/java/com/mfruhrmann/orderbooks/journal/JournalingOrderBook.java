@@ -0,0 +1,107 @@
+package com.mfruhrmann.orderbooks.journal;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decorator writing every add, cancel and amend into a {@link CommandJournal} before it is executed by the wrapped book, so the
+ * book can be rebuilt with {@link JournalReader#replay(OrderBook)} after a crash. Journal and book are updated under the
+ * same monitor, the journal order is the execution order. Behind a {@link com.mfruhrmann.orderbooks.sequencer.SequencedOrderBook}
+ * only the matching thread ever takes it.
+ */
+public class JournalingOrderBook implements OrderBook {
+
+    private final OrderBook orderBook;
+    private final CommandJournal commandJournal;
+
+    public JournalingOrderBook(OrderBook orderBook, CommandJournal commandJournal) {
+        this.orderBook = orderBook;
+        this.commandJournal = commandJournal;
+    }
+
+    @Override
+    public synchronized long addOrder(Order order) {
+        commandJournal.appendAddOrder(order);
+        return orderBook.addOrder(order);
+    }
+
+    @Override
+    public synchronized void addOrders(Order[] orders, int count, long[] orderIds) {
+        for (int i = 0; i < count; i++) {
+            commandJournal.appendAddOrder(orders[i]);
+        }
+        orderBook.addOrders(orders, count, orderIds);
+    }
+
+    @Override
+    public synchronized CancelStatus cancelOrder(long id) {
+        commandJournal.appendCancelOrder(id);
+        return orderBook.cancelOrder(id);
+    }
+
+    @Override
+    public synchronized void cancelOrders(long[] ids, int count, CancelStatus[] cancelStatuses) {
+        for (int i = 0; i < count; i++) {
+            commandJournal.appendCancelOrder(ids[i]);
+        }
+        orderBook.cancelOrders(ids, count, cancelStatuses);
+    }
+
+    @Override
+    public synchronized AmendStatus amendOrder(long id, int newSize, double newPrice) {
+        commandJournal.appendAmendOrder(id, newSize, newPrice);
+        return orderBook.amendOrder(id, newSize, newPrice);
+    }
+
+    @Override
+    public void addTradeListener(OrderBookTradeListener orderBookTradeListener) {
+        orderBook.addTradeListener(orderBookTradeListener);
+    }
+
+    @Override
+    public void addTradeEventListener(TradeEventListener tradeEventListener) {
+        orderBook.addTradeEventListener(tradeEventListener);
+    }
+
+    @Override
+    public void addLevelUpdateListener(LevelUpdateListener levelUpdateListener) {
+        orderBook.addLevelUpdateListener(levelUpdateListener);
+    }
+
+    @Override
+    public Order getOrder(long id) {
+        return orderBook.getOrder(id);
+    }
+
+    @Override
+    public List<Order> getAllOrders() {
+        return orderBook.getAllOrders();
+    }
+
+    @Override
+    public int getDepth() {
+        return orderBook.getDepth();
+    }
+
+    @Override
+    public int snapshotTopLevels(int n, Side side, double[] prices, long[] quantities) {
+        return orderBook.snapshotTopLevels(n, side, prices, quantities);
+    }
+
+    @Override
+    public TopOrderBook getTopOrderBook() {
+        return orderBook.getTopOrderBook();
+    }
+
+    @Override
+    public Map<Double, Double> getAskLevels() {
+        return orderBook.getAskLevels();
+    }
+
+    @Override
+    public Map<Double, Double> getBidLevels() {
+        return orderBook.getBidLevels();
+    }
+}
@@ -0,0 +1,185 @@
+package com.mfruhrmann.orderbooks.journal;
+
+import com.mfruhrmann.orderbooks.api.SnapshotableOrderBook;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes {@link BookSnapshot}s at a fixed interval without touching the book that is matching. The snapshotter keeps its
+ * own shadow book, recovered like the live one on start and then following the journal: every run replays the commands
+ * journaled since the previous run into the shadow book and snapshots it on the background thread, so matching never
+ * waits for a snapshot. Snapshots are named after the journal position they cover, {@link #recover} loads the latest
+ * one and replays the journal behind it. Only the latest {@code retainedSnapshots} are kept, older ones are deleted after
+ * every new snapshot.
+ * <p>
+ * A scheduled run that fails, e.g. on a full disk, is counted in {@link #failedSnapshots()} and keeps its exception in
+ * {@link #lastFailure()}, the next run tries again.
+ */
+public class PeriodicSnapshotter implements AutoCloseable {
+
+    private static final String PREFIX = "book-";
+    private static final String SUFFIX = ".snapshot";
+
+    public static final int DEFAULT_RETAINED_SNAPSHOTS = 3;
+
+    private final JournalReader journalReader;
+    private final Path directory;
+    private final SnapshotableOrderBook shadowOrderBook;
+    private final int retainedSnapshots;
+    private final AtomicLong failedSnapshots = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "book-snapshotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long journalPosition;
+    private volatile Exception lastFailure;
+
+    public PeriodicSnapshotter(Path journalFile, Path directory, SnapshotableOrderBook shadowOrderBook, Duration interval) throws IOException {
+        this(journalFile, directory, shadowOrderBook, interval, DEFAULT_RETAINED_SNAPSHOTS);
+    }
+
+    /**
+     * @param shadowOrderBook   empty book of the same kind as the live one, owned by the snapshotter from now on
+     * @param retainedSnapshots snapshots kept in the directory, the older ones are deleted
+     */
+    public PeriodicSnapshotter(Path journalFile, Path directory, SnapshotableOrderBook shadowOrderBook, Duration interval,
+                               int retainedSnapshots) throws IOException {
+        if (retainedSnapshots <= 0) {
+            throw new IllegalArgumentException("retainedSnapshots has to be positive, got " + retainedSnapshots);
+        }
+        this.journalReader = new JournalReader(journalFile);
+        this.directory = directory;
+        this.shadowOrderBook = shadowOrderBook;
+        this.retainedSnapshots = retainedSnapshots;
+        this.journalPosition = restoreLatestSnapshot(directory, shadowOrderBook);
+        long intervalMillis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * An exception thrown out of a scheduled task cancels all its later runs, so a failed snapshot is only recorded.
+     */
+    private void scheduledSnapshot() {
+        try {
+            snapshotNow();
+        } catch (IOException | RuntimeException e) {
+            lastFailure = e;
+            failedSnapshots.incrementAndGet();
+        }
+    }
+
+    /**
+     * Catches up with the journal and writes a snapshot. Runs on the background thread, call it directly only when the
+     * snapshotter is not scheduled to run, e.g. in tests. The file is written under a temporary name and then renamed,
+     * a crash while writing never leaves a broken snapshot behind.
+     */
+    public synchronized Path snapshotNow() throws IOException {
+        journalReader.replay(shadowOrderBook, journalPosition);
+        journalPosition = journalReader.endPosition();
+        BookSnapshot snapshot = BookSnapshot.capture(shadowOrderBook, journalPosition);
+        Path file = directory.resolve(PREFIX + journalPosition + SUFFIX);
+        Path temporaryFile = directory.resolve(file.getFileName() + ".tmp");
+        try {
+            snapshot.writeTo(temporaryFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        deleteOldSnapshots();
+        return file;
+    }
+
+    public long failedSnapshots() {
+        return failedSnapshots.get();
+    }
+
+    /**
+     * @return exception of the latest failed scheduled run, null when none has failed
+     */
+    public Exception lastFailure() {
+        return lastFailure;
+    }
+
+    private void deleteOldSnapshots() throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        for (Path snapshot : snapshots.subList(0, Math.max(0, snapshots.size() - retainedSnapshots))) {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Rebuilds an empty book from the latest snapshot in the directory and the journal commands behind it, or from the
+     * whole journal when there is no snapshot yet.
+     *
+     * @return number of commands replayed from the journal
+     */
+    public static long recover(Path directory, Path journalFile, SnapshotableOrderBook orderBook) throws IOException {
+        long journalPosition = restoreLatestSnapshot(directory, orderBook);
+        return Files.exists(journalFile) ? new JournalReader(journalFile).replay(orderBook, journalPosition) : 0;
+    }
+
+    public static Optional<Path> latestSnapshot(Path directory) throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        return snapshots.isEmpty() ? Optional.empty() : Optional.of(snapshots.get(snapshots.size() - 1));
+    }
+
+    /**
+     * @return snapshots in the directory, oldest first
+     */
+    static List<Path> snapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(PREFIX) && file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparingLong(PeriodicSnapshotter::journalPosition))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return journal position covered by the restored snapshot, 0 without a snapshot
+     */
+    private static long restoreLatestSnapshot(Path directory, SnapshotableOrderBook orderBook) throws IOException {
+        Optional<Path> latestSnapshot = latestSnapshot(directory);
+        if (latestSnapshot.isEmpty()) {
+            return 0;
+        }
+        BookSnapshot snapshot = BookSnapshot.readFrom(latestSnapshot.get());
+        snapshot.restore(orderBook);
+        return snapshot.journalPosition();
+    }
+
+    private static long journalPosition(Path snapshotFile) {
+        String fileName = snapshotFile.getFileName().toString();
+        return Long.parseLong(fileName.substring(PREFIX.length(), fileName.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Stops taking snapshots and waits for a running one. Returns with the interrupt flag set when interrupted while
+     * waiting.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
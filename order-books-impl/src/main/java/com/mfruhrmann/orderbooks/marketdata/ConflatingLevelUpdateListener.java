@@ -0,0 +1,142 @@
+package com.mfruhrmann.orderbooks.marketdata;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.OrderBook.Side;
+import com.mfruhrmann.orderbooks.impl.collections.LongObjectHashMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conflation stage of the L2 feed. It keeps only the latest quantity of every level that changed since the last
+ * {@link #flush()} and publishes those to the downstream listener on flush, so a consumer gets at most one update per
+ * level and publish interval, however busy the level was. Created with a publish interval the stage flushes itself on a
+ * background thread until it is closed, otherwise the caller drives it by calling {@link #flush()}.
+ * <p>
+ * A conflated update carries the sequence of the last book update merged into it. Levels are published in the order they
+ * were first touched, so sequences inside one flush are not ordered, but the whole flush is consistent with the book as of
+ * the highest of them. Pending updates are recycled, in a steady state the stage does not allocate.
+ * <p>
+ * The book thread and the publishing thread may differ, both sides synchronize on the stage, so the downstream listener
+ * should be cheap: the book waits for it when it publishes while a flush is running.
+ */
+public class ConflatingLevelUpdateListener implements OrderBook.LevelUpdateListener, AutoCloseable {
+
+    private final OrderBook.LevelUpdateListener downstream;
+
+    private final LongObjectHashMap<PendingUpdate> pendingBids = new LongObjectHashMap<>(64);
+    private final LongObjectHashMap<PendingUpdate> pendingAsks = new LongObjectHashMap<>(64);
+    private final List<PendingUpdate> pendingInOrder = new ArrayList<>();
+    private final ArrayDeque<PendingUpdate> spareUpdates = new ArrayDeque<>();
+    private final ScheduledExecutorService publisher;
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    /**
+     * Publishes only when the caller calls {@link #flush()}.
+     */
+    public ConflatingLevelUpdateListener(OrderBook.LevelUpdateListener downstream) {
+        this.downstream = downstream;
+        this.publisher = null;
+    }
+
+    /**
+     * Flushes once per publish interval on a daemon thread. A flush failing in the downstream listener is counted and the
+     * next interval publishes again.
+     */
+    public ConflatingLevelUpdateListener(OrderBook.LevelUpdateListener downstream, long publishInterval, TimeUnit unit) {
+        if (publishInterval <= 0) {
+            throw new IllegalArgumentException("publishInterval has to be positive, got " + publishInterval);
+        }
+        this.downstream = downstream;
+        this.publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "level-update-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher.scheduleAtFixedRate(this::scheduledFlush, publishInterval, publishInterval, unit);
+    }
+
+    @Override
+    public synchronized void onLevelUpdate(long sequence, Side side, double price, long quantity) {
+        LongObjectHashMap<PendingUpdate> pending = side == Side.BUY ? pendingBids : pendingAsks;
+        long key = Double.doubleToLongBits(price);
+        PendingUpdate update = pending.get(key);
+        if (update == null) {
+            update = spareUpdates.isEmpty() ? new PendingUpdate() : spareUpdates.pop();
+            update.side = side;
+            update.price = price;
+            pending.put(key, update);
+            pendingInOrder.add(update);
+        }
+        update.sequence = sequence;
+        update.quantity = quantity;
+    }
+
+    /**
+     * Publishes the latest state of every level changed since the previous flush. When the downstream listener throws, the
+     * updates it has not taken yet stay pending for the next flush.
+     *
+     * @return number of updates published
+     */
+    public synchronized int flush() {
+        int published = 0;
+        try {
+            for (; published < pendingInOrder.size(); published++) {
+                PendingUpdate update = pendingInOrder.get(published);
+                downstream.onLevelUpdate(update.sequence, update.side, update.price, update.quantity);
+                (update.side == Side.BUY ? pendingBids : pendingAsks).remove(Double.doubleToLongBits(update.price));
+                spareUpdates.push(update);
+            }
+        } finally {
+            pendingInOrder.subList(0, published).clear();
+        }
+        return published;
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // an exception would cancel all later runs of the schedule
+            failedFlushes.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return scheduled flushes the downstream listener has failed
+     */
+    public long failedFlushes() {
+        return failedFlushes.get();
+    }
+
+    /**
+     * Stops the scheduled flushes and publishes what is still pending. Does nothing else for a stage flushed by the caller.
+     * Returns with the interrupt flag set and without publishing when interrupted while waiting for a running flush.
+     */
+    @Override
+    public void close() {
+        if (publisher == null) {
+            return;
+        }
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        flush();
+    }
+
+    private static final class PendingUpdate {
+        private long sequence;
+        private Side side;
+        private double price;
+        private long quantity;
+    }
+}
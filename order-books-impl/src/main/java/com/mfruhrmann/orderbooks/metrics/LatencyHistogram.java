@@ -0,0 +1,108 @@
+package com.mfruhrmann.orderbooks.metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Latency distribution in nanoseconds with the bucket layout of an HdrHistogram with two significant digits: values below
+ * 256 have a bucket each, above that every power of two is split into 128 buckets, so a recorded value is off by less than
+ * 1% and the histogram has a fixed size of 34 KB. Values above {@link #HIGHEST_TRACKABLE_VALUE} are counted as that value.
+ * <p>
+ * Recording computes the bucket index and bumps its count and the totals, nothing is allocated and nothing is locked.
+ * There has to be one recording thread at a time (the books record while holding their monitor). Counts are written
+ * with opaque stores, so readers like JMX see them without locking, they may just see the totals of a recording before
+ * its bucket.
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+
+    public static final long HIGHEST_TRACKABLE_VALUE = (1L << 40) - 1;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[bucketIndex(HIGHEST_TRACKABLE_VALUE) + 1];
+    // total count, sum and max of the recorded values
+    private final long[] totals = new long[3];
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, HIGHEST_TRACKABLE_VALUE));
+        int index = bucketIndex(value);
+        LONGS.setOpaque(counts, index, (long) LONGS.getOpaque(counts, index) + 1);
+        LONGS.setOpaque(totals, 0, (long) LONGS.getOpaque(totals, 0) + 1);
+        LONGS.setOpaque(totals, 1, (long) LONGS.getOpaque(totals, 1) + value);
+        if (value > (long) LONGS.getOpaque(totals, 2)) {
+            LONGS.setOpaque(totals, 2, value);
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return (long) LONGS.getOpaque(totals, 0);
+    }
+
+    @Override
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) (long) LONGS.getOpaque(totals, 1) / count;
+    }
+
+    @Override
+    public long getMax() {
+        return (long) LONGS.getOpaque(totals, 2);
+    }
+
+    @Override
+    public long get50thPercentile() {
+        return valueAtPercentile(50);
+    }
+
+    @Override
+    public long get99thPercentile() {
+        return valueAtPercentile(99);
+    }
+
+    @Override
+    public long get999thPercentile() {
+        return valueAtPercentile(99.9);
+    }
+
+    @Override
+    public long get9999thPercentile() {
+        return valueAtPercentile(99.99);
+    }
+
+    /**
+     * @return the highest value of the bucket the percentile falls into, 0 when nothing was recorded
+     */
+    public long valueAtPercentile(double percentile) {
+        long total = 0;
+        for (int index = 0; index < counts.length; index++) {
+            total += (long) LONGS.getOpaque(counts, index);
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long count = 0;
+        for (int index = 0; index < counts.length; index++) {
+            count += (long) LONGS.getOpaque(counts, index);
+            if (count >= countAtPercentile) {
+                return highestValueOfBucket(index);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Values below 256 map to themselves, a value of {@code m << e} with {@code 128 <= m < 256} to {@code e * 128 + m}.
+     */
+    static int bucketIndex(long value) {
+        int exponent = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return exponent * SUB_BUCKETS + (int) (value >>> exponent);
+    }
+
+    static long highestValueOfBucket(int index) {
+        int exponent = Math.max(0, (index >>> SUB_BUCKET_BITS) - 1);
+        long subBucket = index - (long) exponent * SUB_BUCKETS;
+        return ((subBucket + 1) << exponent) - 1;
+    }
+}
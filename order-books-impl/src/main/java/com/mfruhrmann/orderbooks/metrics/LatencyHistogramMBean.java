@@ -0,0 +1,21 @@
+package com.mfruhrmann.orderbooks.metrics;
+
+/**
+ * JMX view of a {@link LatencyHistogram}, all values in nanoseconds.
+ */
+public interface LatencyHistogramMBean {
+
+    long getCount();
+
+    double getMean();
+
+    long getMax();
+
+    long get50thPercentile();
+
+    long get99thPercentile();
+
+    long get999thPercentile();
+
+    long get9999thPercentile();
+}
@@ -0,0 +1,252 @@
+package com.mfruhrmann.orderbooks.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+
+/**
+ * Counters and latency histograms of one order book, handed to the book with {@code setMetrics} and published over JMX
+ * with {@link #register(String)}. Books without metrics use {@link #DISABLED}, on which every call is a single branch.
+ * <p>
+ * Latencies are taken with {@link System#nanoTime()} around the work done while the book holds its monitor:
+ * {@code add} for orders that rested without trading, {@code match} for orders that traded, {@code cancel} and
+ * {@code dispatch} for calling the trade and level update listeners. Counting and recording cost a few nanoseconds, the
+ * two clock reads of a timed operation usually cost more (20 to 50 ns each depending on the clock source), so a
+ * sampling interval can limit timing to every n-th operation while the counters still see every one. Adds, cancels and
+ * dispatches are sampled each on their own count, adds before it is known whether they trade, so both the add and the
+ * match histogram get every n-th order.
+ * <p>
+ * The book records while holding its monitor, so one instance must not be shared by several books.
+ */
+public final class OrderBookMetrics implements OrderBookMetricsMBean {
+
+    public static final OrderBookMetrics DISABLED = new OrderBookMetrics(false, 1);
+
+    /**
+     * Start time of an operation that is not timed.
+     */
+    public static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private static final String DOMAIN = "com.mfruhrmann.orderbooks";
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int ORDERS_ADDED = 0;
+    private static final int ORDERS_CANCELLED = 1;
+    private static final int TRADES = 2;
+    private static final int LEVELS_CREATED = 3;
+    private static final int LEVELS_REMOVED = 4;
+    private static final int BID_LEVELS = 5;
+    private static final int ASK_LEVELS = 6;
+    private static final int RESTING_ORDERS = 7;
+
+    private final boolean enabled;
+    private final int samplingMask;
+    private long adds;
+    private long cancels;
+    private long dispatches;
+    private final long[] counters = new long[8];
+    private final LatencyHistogram addLatency;
+    private final LatencyHistogram matchLatency;
+    private final LatencyHistogram cancelLatency;
+    private final LatencyHistogram dispatchLatency;
+
+    /**
+     * Times every operation.
+     */
+    public OrderBookMetrics() {
+        this(true, 1);
+    }
+
+    /**
+     * @param samplingInterval every how many operations one is timed, has to be a power of two
+     */
+    public OrderBookMetrics(int samplingInterval) {
+        this(true, samplingInterval);
+    }
+
+    private OrderBookMetrics(boolean enabled, int samplingInterval) {
+        if (samplingInterval <= 0 || Integer.bitCount(samplingInterval) != 1) {
+            throw new IllegalArgumentException("samplingInterval has to be a power of two, got " + samplingInterval);
+        }
+        this.enabled = enabled;
+        this.samplingMask = samplingInterval - 1;
+        this.addLatency = enabled ? new LatencyHistogram() : null;
+        this.matchLatency = enabled ? new LatencyHistogram() : null;
+        this.cancelLatency = enabled ? new LatencyHistogram() : null;
+        this.dispatchLatency = enabled ? new LatencyHistogram() : null;
+    }
+
+    /**
+     * @return the start time for {@link #recordAdd}, {@link #NOT_TIMED} when disabled or not sampled
+     */
+    public long startAdd() {
+        return enabled && (++adds & samplingMask) == 0 ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * @return the start time for {@link #recordCancel}, {@link #NOT_TIMED} when disabled or not sampled
+     */
+    public long startCancel() {
+        return enabled && (++cancels & samplingMask) == 0 ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * @return the start time for {@link #recordDispatch}, {@link #NOT_TIMED} when disabled or not sampled
+     */
+    public long startDispatch() {
+        return enabled && (++dispatches & samplingMask) == 0 ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * @param traded whether the order traded, it is timed as a match then
+     */
+    public void recordAdd(long startTime, boolean traded) {
+        if (enabled) {
+            increment(ORDERS_ADDED);
+            record(traded ? matchLatency : addLatency, startTime);
+        }
+    }
+
+    /**
+     * @param cancelled whether the order was found and cancelled
+     */
+    public void recordCancel(long startTime, boolean cancelled) {
+        if (enabled) {
+            if (cancelled) {
+                increment(ORDERS_CANCELLED);
+            }
+            record(cancelLatency, startTime);
+        }
+    }
+
+    public void recordDispatch(long startTime) {
+        if (enabled) {
+            record(dispatchLatency, startTime);
+        }
+    }
+
+    private static void record(LatencyHistogram latency, long startTime) {
+        if (startTime != NOT_TIMED) {
+            latency.record(System.nanoTime() - startTime);
+        }
+    }
+
+    public void onTrade() {
+        if (enabled) {
+            increment(TRADES);
+        }
+    }
+
+    public void onLevelCreated() {
+        if (enabled) {
+            increment(LEVELS_CREATED);
+        }
+    }
+
+    public void onLevelRemoved() {
+        if (enabled) {
+            increment(LEVELS_REMOVED);
+        }
+    }
+
+    public void updateDepth(int bidLevels, int askLevels, int restingOrders) {
+        if (enabled) {
+            LONGS.setOpaque(counters, BID_LEVELS, (long) bidLevels);
+            LONGS.setOpaque(counters, ASK_LEVELS, (long) askLevels);
+            LONGS.setOpaque(counters, RESTING_ORDERS, (long) restingOrders);
+        }
+    }
+
+    private void increment(int counter) {
+        LONGS.setOpaque(counters, counter, (long) LONGS.getOpaque(counters, counter) + 1);
+    }
+
+    private long counter(int counter) {
+        return (long) LONGS.getOpaque(counters, counter);
+    }
+
+    public LatencyHistogram addLatency() {
+        return addLatency;
+    }
+
+    public LatencyHistogram matchLatency() {
+        return matchLatency;
+    }
+
+    public LatencyHistogram cancelLatency() {
+        return cancelLatency;
+    }
+
+    public LatencyHistogram dispatchLatency() {
+        return dispatchLatency;
+    }
+
+    @Override
+    public long getOrdersAdded() {
+        return counter(ORDERS_ADDED);
+    }
+
+    @Override
+    public long getOrdersCancelled() {
+        return counter(ORDERS_CANCELLED);
+    }
+
+    @Override
+    public long getTrades() {
+        return counter(TRADES);
+    }
+
+    @Override
+    public long getLevelsCreated() {
+        return counter(LEVELS_CREATED);
+    }
+
+    @Override
+    public long getLevelsRemoved() {
+        return counter(LEVELS_REMOVED);
+    }
+
+    @Override
+    public long getBidLevels() {
+        return counter(BID_LEVELS);
+    }
+
+    @Override
+    public long getAskLevels() {
+        return counter(ASK_LEVELS);
+    }
+
+    @Override
+    public long getRestingOrders() {
+        return counter(RESTING_ORDERS);
+    }
+
+    /**
+     * Registers the counters as {@code com.mfruhrmann.orderbooks:type=OrderBook,name=<bookName>} and every histogram as
+     * the same name with a {@code latency} key, in the platform MBean server.
+     *
+     * @return the names registered, to unregister them again
+     */
+    public List<ObjectName> register(String bookName) throws JMException {
+        if (!enabled) {
+            throw new IllegalStateException("disabled metrics cannot be registered");
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        String name = DOMAIN + ":type=OrderBook,name=" + ObjectName.quote(bookName);
+        List<ObjectName> objectNames = List.of(
+                new ObjectName(name),
+                new ObjectName(name + ",latency=add"),
+                new ObjectName(name + ",latency=match"),
+                new ObjectName(name + ",latency=cancel"),
+                new ObjectName(name + ",latency=dispatch"));
+        List<Object> mBeans = List.of(this, addLatency, matchLatency, cancelLatency, dispatchLatency);
+        for (int i = 0; i < objectNames.size(); i++) {
+            mBeanServer.registerMBean(mBeans.get(i), objectNames.get(i));
+        }
+        return objectNames;
+    }
+}
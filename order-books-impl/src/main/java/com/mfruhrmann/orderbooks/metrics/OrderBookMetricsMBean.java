@@ -0,0 +1,23 @@
+package com.mfruhrmann.orderbooks.metrics;
+
+/**
+ * JMX view of the counters of an {@link OrderBookMetrics}, the depth values are the ones after the last call to the book.
+ */
+public interface OrderBookMetricsMBean {
+
+    long getOrdersAdded();
+
+    long getOrdersCancelled();
+
+    long getTrades();
+
+    long getLevelsCreated();
+
+    long getLevelsRemoved();
+
+    long getBidLevels();
+
+    long getAskLevels();
+
+    long getRestingOrders();
+}
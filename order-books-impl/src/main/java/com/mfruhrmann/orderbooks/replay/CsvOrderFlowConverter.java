@@ -0,0 +1,108 @@
+package com.mfruhrmann.orderbooks.replay;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+import com.mfruhrmann.orderbooks.journal.CommandJournal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Converts a captured order flow from CSV into the binary journal {@link OrderFlowReplay} replays. One command per line:
+ * <pre>
+ * ADD,&lt;id&gt;,&lt;BUY|SELL&gt;,&lt;LIMIT|MARKET|IMMEDIATE_OR_CANCEL|...&gt;,&lt;timestamp&gt;,&lt;price&gt;,&lt;size&gt;
+ * CANCEL,&lt;id&gt;
+ * AMEND,&lt;id&gt;,&lt;newSize&gt;[,&lt;newPrice&gt;]
+ * </pre>
+ * The timestamp is either an ISO-8601 instant or nanoseconds since the epoch, an amend without a new price keeps the
+ * price. Empty lines, lines starting with {@code #} and a header line starting with {@code command} are skipped. An
+ * existing journal file is replaced.
+ * <p>
+ * Usage: {@code CsvOrderFlowConverter <csv> <journal>}.
+ */
+public class CsvOrderFlowConverter {
+
+    private CsvOrderFlowConverter() {
+    }
+
+    /**
+     * @return number of commands written
+     * @throws IllegalArgumentException for a line that is not a command, naming the line
+     */
+    public static long convert(Path csvFile, Path journalFile) throws IOException {
+        long commands = 0;
+        int lineNumber = 0;
+        Files.deleteIfExists(journalFile);
+        try (BufferedReader reader = Files.newBufferedReader(csvFile);
+             CommandJournal commandJournal = new CommandJournal(journalFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#") || line.regionMatches(true, 0, "command", 0, 7)) {
+                    continue;
+                }
+                try {
+                    append(line.split(",", -1), commandJournal);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException(csvFile + ":" + lineNumber + " is not a command: " + line, e);
+                }
+                commands++;
+            }
+        }
+        return commands;
+    }
+
+    private static void append(String[] fields, CommandJournal commandJournal) {
+        long orderId = Long.parseLong(fields[1].strip());
+        switch (fields[0].strip().toUpperCase()) {
+            case "ADD" -> {
+                checkFields(fields, 7);
+                commandJournal.appendAddOrder(new ImmutableOrder(orderId,
+                        OrderBook.Side.valueOf(fields[2].strip().toUpperCase()),
+                        OrderBook.OrderType.valueOf(fields[3].strip().toUpperCase()),
+                        parseTimestamp(fields[4].strip()),
+                        Double.parseDouble(fields[5].strip()),
+                        Integer.parseInt(fields[6].strip())));
+            }
+            case "CANCEL" -> {
+                checkFields(fields, 2);
+                commandJournal.appendCancelOrder(orderId);
+            }
+            case "AMEND" -> {
+                if (fields.length != 3) {
+                    checkFields(fields, 4);
+                }
+                double newPrice = fields.length == 3 || fields[3].isBlank() ? Double.NaN : Double.parseDouble(fields[3].strip());
+                commandJournal.appendAmendOrder(orderId, Integer.parseInt(fields[2].strip()), newPrice);
+            }
+            default -> throw new IllegalArgumentException("unknown command " + fields[0]);
+        }
+    }
+
+    private static void checkFields(String[] fields, int expected) {
+        if (fields.length != expected) {
+            throw new IllegalArgumentException("expected " + expected + " fields, got " + fields.length);
+        }
+    }
+
+    private static long parseTimestamp(String timestamp) {
+        if (timestamp.indexOf('T') >= 0) {
+            Instant instant = Instant.parse(timestamp);
+            return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+        }
+        return Long.parseLong(timestamp);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: CsvOrderFlowConverter <csv> <journal>");
+            System.exit(1);
+        }
+        long commands = convert(Path.of(args[0]), Path.of(args[1]));
+        System.out.println(commands + " commands written to " + args[1]);
+    }
+}
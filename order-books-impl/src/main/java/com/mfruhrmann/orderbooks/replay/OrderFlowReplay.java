@@ -0,0 +1,132 @@
+package com.mfruhrmann.orderbooks.replay;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBookArrayDeque;
+import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+import com.mfruhrmann.orderbooks.impl.ListBasedOrderBook;
+import com.mfruhrmann.orderbooks.impl.OffHeapOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.journal.JournalReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * Streams a recorded order flow into an order book and reports how fast the book went through it and what it matched.
+ * The flow is a command journal (see {@link com.mfruhrmann.orderbooks.journal.CommandJournal}), e.g. written by
+ * {@link CsvOrderFlowConverter} from a capture, and is read with {@link JournalReader#readInPlace}: records are decoded
+ * straight from the mapping into one reused order, nothing is allocated per command on the reading side.
+ * <p>
+ * The baselines {@link BasicOrderBookArrayDeque} and {@link ListBasedOrderBook} rest the incoming order itself, for them
+ * every add is copied into an {@link ImmutableOrder} first, which is included in the measured time.
+ * <p>
+ * Usage: {@code OrderFlowReplay <journal> [basic|arrayDeque|listBased|tickLadder|offHeap] [priceStep] [iterations]},
+ * every iteration replays the whole file into a new book.
+ */
+public class OrderFlowReplay implements JournalReader.CommandVisitor, OrderBook.TradeEventListener {
+
+    private final OrderBook orderBook;
+    private final boolean copyOrders;
+
+    private long adds;
+    private long cancels;
+    private long amends;
+    private long cancelMisses;
+    private long amendMisses;
+    private long trades;
+    private long tradedVolume;
+
+    /**
+     * @param copyOrders whether the book keeps a reference to the added order instead of copying it
+     */
+    public OrderFlowReplay(OrderBook orderBook, boolean copyOrders) {
+        this.orderBook = orderBook;
+        this.copyOrders = copyOrders;
+        orderBook.addTradeEventListener(this);
+    }
+
+    public record Statistics(long commands, long adds, long cancels, long amends, long cancelMisses, long amendMisses,
+                             long trades, long tradedVolume, int restingOrders, int bidLevels, int askLevels,
+                             long elapsedNanos) {
+
+        public double commandsPerSecond() {
+            return elapsedNanos == 0 ? 0 : commands * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d commands in %,d ms (%,.0f commands/s): %,d adds, %,d cancels (%,d missed), "
+                            + "%,d amends (%,d missed), %,d trades, %,d traded, %,d resting orders on %,d bid and %,d ask levels",
+                    commands, elapsedNanos / 1_000_000, commandsPerSecond(), adds, cancels, cancelMisses, amends,
+                    amendMisses, trades, tradedVolume, restingOrders, bidLevels, askLevels);
+        }
+    }
+
+    /**
+     * Replays the whole file into the book, the statistics cover this replay only.
+     */
+    public Statistics replay(Path journalFile) throws IOException {
+        adds = cancels = amends = cancelMisses = amendMisses = trades = tradedVolume = 0;
+        long start = System.nanoTime();
+        long commands = new JournalReader(journalFile).readInPlace(this);
+        long elapsedNanos = System.nanoTime() - start;
+        return new Statistics(commands, adds, cancels, amends, cancelMisses, amendMisses, trades, tradedVolume,
+                orderBook.getAllOrders().size(), orderBook.getBidLevels().size(), orderBook.getAskLevels().size(),
+                elapsedNanos);
+    }
+
+    @Override
+    public void onAddOrder(OrderBook.Order order) {
+        adds++;
+        orderBook.addOrder(copyOrders ? new ImmutableOrder(order.id(), order.side(), order.type(), order.ts(), order.price(), order.size()) : order);
+    }
+
+    @Override
+    public void onCancelOrder(long orderId) {
+        cancels++;
+        if (orderBook.cancelOrder(orderId) == OrderBook.CancelStatus.NOT_EXISTS) {
+            cancelMisses++;
+        }
+    }
+
+    @Override
+    public void onAmendOrder(long orderId, int newSize, double newPrice) {
+        amends++;
+        if (orderBook.amendOrder(orderId, newSize, newPrice) == OrderBook.AmendStatus.NOT_EXISTS) {
+            amendMisses++;
+        }
+    }
+
+    @Override
+    public void onTrade(long tradeId, long aggressorOrderId, long passiveOrderId, double price, int size, long ts) {
+        trades++;
+        tradedVolume += size;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: OrderFlowReplay <journal> [basic|arrayDeque|listBased|tickLadder|offHeap] [priceStep] [iterations]");
+            System.exit(1);
+        }
+        Path journalFile = Path.of(args[0]);
+        String implementation = args.length > 1 ? args[1] : "basic";
+        double priceStep = args.length > 2 ? Double.parseDouble(args[2]) : 0.01;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        Supplier<OrderBook> orderBooks = switch (implementation) {
+            case "basic" -> () -> new BasicOrderBook(priceStep);
+            case "arrayDeque" -> BasicOrderBookArrayDeque::new;
+            case "listBased" -> () -> new ListBasedOrderBook(priceStep);
+            case "tickLadder" -> () -> new TickLadderOrderBook(priceStep, 1 << 16);
+            case "offHeap" -> () -> new OffHeapOrderBook(priceStep, 1 << 20);
+            default -> throw new IllegalArgumentException("unknown implementation " + implementation);
+        };
+        boolean copyOrders = implementation.equals("arrayDeque") || implementation.equals("listBased");
+        for (int iteration = 1; iteration <= iterations; iteration++) {
+            Statistics statistics = new OrderFlowReplay(orderBooks.get(), copyOrders).replay(journalFile);
+            System.out.println(implementation + " #" + iteration + ": " + statistics);
+        }
+    }
+}
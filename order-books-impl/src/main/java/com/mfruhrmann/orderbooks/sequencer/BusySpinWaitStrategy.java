@@ -0,0 +1,12 @@
+package com.mfruhrmann.orderbooks.sequencer;
+
+/**
+ * Lowest latency, burns a whole core per waiting thread. Only use it when there are more cores than busy threads.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public void idle(int attempt) {
+        Thread.onSpinWait();
+    }
+}
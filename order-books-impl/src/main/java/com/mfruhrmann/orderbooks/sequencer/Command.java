@@ -0,0 +1,209 @@
+package com.mfruhrmann.orderbooks.sequencer;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+
+/**
+ * Preallocated slot of the {@link CommandRing}. A producer fills in the request, the matching thread executes it and writes
+ * the result back into the same slot, so passing a command to the matching thread and back does not allocate.
+ * <p>
+ * The fields are plain, visibility is guaranteed by the volatile {@link #sequence} of the slot which is written after
+ * the request (by the producer) and after the result (by the matching thread).
+ */
+public final class Command {
+
+    public enum Type {
+        ADD_ORDER,
+        ADD_ORDERS,
+        CANCEL_ORDER,
+        CANCEL_ORDERS,
+        AMEND_ORDER,
+        GET_ORDER,
+        GET_ALL_ORDERS,
+        GET_DEPTH,
+        SNAPSHOT_TOP_LEVELS,
+        GET_ORDER_BOOK,
+        GET_ASK_LEVELS,
+        GET_BID_LEVELS,
+        ADD_TRADE_LISTENER,
+        ADD_TRADE_EVENT_LISTENER,
+        ADD_LEVEL_UPDATE_LISTENER,
+        TASK
+    }
+
+    /**
+     * Request that reports its result itself instead of through the slot, for commands published with
+     * {@link CommandRing#publish(Command)}. Both methods run on the matching thread.
+     */
+    public interface Task {
+        void executeOn(OrderBook orderBook);
+
+        /**
+         * Called instead of {@link #executeOn} when the command could not be executed, e.g. the book of the instrument
+         * could not be created, or with the exception {@link #executeOn} has thrown.
+         */
+        void fail(RuntimeException failure);
+    }
+
+    volatile long sequence;
+    long claimedSequence;
+    boolean detached;
+    boolean skipped;
+
+    private Type type;
+    private long instrumentId;
+    private long orderId;
+    private Object argument;
+    private int count;
+    private Object batchResults;
+    private int newSize;
+    private double newPrice;
+    private OrderBook.Side side;
+
+    private long longResult;
+    private Object result;
+    private RuntimeException failure;
+
+    Command(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Command addOrder(OrderBook.Order order) {
+        return request(Type.ADD_ORDER, 0, order);
+    }
+
+    public Command cancelOrder(long orderId) {
+        return request(Type.CANCEL_ORDER, orderId, null);
+    }
+
+    /**
+     * One command for the whole batch, the matching thread writes the order ids into {@code orderIds}.
+     */
+    public Command addOrders(OrderBook.Order[] orders, int count, long[] orderIds) {
+        return batch(Type.ADD_ORDERS, orders, count, orderIds);
+    }
+
+    public Command cancelOrders(long[] orderIds, int count, OrderBook.CancelStatus[] cancelStatuses) {
+        return batch(Type.CANCEL_ORDERS, orderIds, count, cancelStatuses);
+    }
+
+    public Command amendOrder(long orderId, int newSize, double newPrice) {
+        request(Type.AMEND_ORDER, orderId, null);
+        this.newSize = newSize;
+        this.newPrice = newPrice;
+        return this;
+    }
+
+    /**
+     * The matching thread copies the levels into the arrays of the caller and returns their number as {@link #longResult()}.
+     */
+    public Command snapshotTopLevels(int n, OrderBook.Side side, double[] prices, long[] quantities) {
+        batch(Type.SNAPSHOT_TOP_LEVELS, prices, n, quantities);
+        this.side = side;
+        return this;
+    }
+
+    public Command getOrder(long orderId) {
+        return request(Type.GET_ORDER, orderId, null);
+    }
+
+    public Command task(Task task) {
+        return request(Type.TASK, 0, task);
+    }
+
+    /**
+     * Fills in the request. It must not fail, a claimed slot has to be published, otherwise the matching thread stalls on it.
+     */
+    public Command request(Type type, long orderId, Object argument) {
+        this.type = type;
+        this.orderId = orderId;
+        this.argument = argument;
+        this.count = 0;
+        this.batchResults = null;
+        this.longResult = 0;
+        this.result = null;
+        this.failure = null;
+        return this;
+    }
+
+    private Command batch(Type type, Object items, int count, Object batchResults) {
+        request(type, 0, items);
+        this.count = count;
+        this.batchResults = batchResults;
+        return this;
+    }
+
+    /**
+     * Routing key for engines running many books, ignored by a single book sequencer.
+     */
+    public Command onInstrument(long instrumentId) {
+        this.instrumentId = instrumentId;
+        return this;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    public long instrumentId() {
+        return instrumentId;
+    }
+
+    public long orderId() {
+        return orderId;
+    }
+
+    public OrderBook.Order order() {
+        return (OrderBook.Order) argument;
+    }
+
+    public long longResult() {
+        return longResult;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T result() {
+        return (T) result;
+    }
+
+    /**
+     * Executes the request on the given book and stores the result in the slot. Runs on the matching thread.
+     */
+    public void executeOn(OrderBook orderBook) {
+        switch (type) {
+            case ADD_ORDER -> longResult = orderBook.addOrder((OrderBook.Order) argument);
+            case ADD_ORDERS -> orderBook.addOrders((OrderBook.Order[]) argument, count, (long[]) batchResults);
+            case CANCEL_ORDER -> result = orderBook.cancelOrder(orderId);
+            case CANCEL_ORDERS -> orderBook.cancelOrders((long[]) argument, count, (OrderBook.CancelStatus[]) batchResults);
+            case AMEND_ORDER -> result = orderBook.amendOrder(orderId, newSize, newPrice);
+            case GET_ORDER -> result = orderBook.getOrder(orderId);
+            case GET_ALL_ORDERS -> result = orderBook.getAllOrders();
+            case GET_DEPTH -> longResult = orderBook.getDepth();
+            case SNAPSHOT_TOP_LEVELS -> longResult = orderBook.snapshotTopLevels(count, side, (double[]) argument, (long[]) batchResults);
+            case GET_ORDER_BOOK -> result = orderBook;
+            case GET_ASK_LEVELS -> result = orderBook.getAskLevels();
+            case GET_BID_LEVELS -> result = orderBook.getBidLevels();
+            case ADD_TRADE_LISTENER -> orderBook.addTradeListener((OrderBook.OrderBookTradeListener) argument);
+            case ADD_TRADE_EVENT_LISTENER -> orderBook.addTradeEventListener((OrderBook.TradeEventListener) argument);
+            case ADD_LEVEL_UPDATE_LISTENER -> orderBook.addLevelUpdateListener((OrderBook.LevelUpdateListener) argument);
+            case TASK -> ((Task) argument).executeOn(orderBook);
+        }
+    }
+
+    public void fail(RuntimeException failure) {
+        this.failure = failure;
+        if (type == Type.TASK) {
+            ((Task) argument).fail(failure);
+        }
+    }
+
+    RuntimeException failure() {
+        return failure;
+    }
+
+    void clearReferences() {
+        this.argument = null;
+        this.batchResults = null;
+        this.result = null;
+        this.failure = null;
+    }
+}
@@ -0,0 +1,145 @@
+package com.mfruhrmann.orderbooks.sequencer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated ring of {@link Command} slots between many producer threads and a single consumer (matching) thread,
+ * in the style of the LMAX Disruptor.
+ * <p>
+ * Producers claim sequences with a single atomic increment, no locks are taken. Every slot carries its own sequence that
+ * moves through the states of a command:
+ * <ul>
+ *     <li>{@code claimed} - free for the producer that claimed this sequence</li>
+ *     <li>{@code claimed + 1} - published, the consumer may execute it</li>
+ *     <li>{@code claimed + 2} - executed, the result can be read by the producer</li>
+ *     <li>{@code claimed + ringSize} - released by the producer, free for the claim one lap later</li>
+ * </ul>
+ * The consumer executes commands strictly in the order of their sequences. A command published with {@link #publish}
+ * skips the executed state, the consumer releases its slot right away.
+ */
+public class CommandRing {
+
+    private final Command[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final AtomicLong claimSequence = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public CommandRing(int ringSize, WaitStrategy waitStrategy) {
+        if (ringSize < 4 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("ringSize has to be a power of two of at least 4, got " + ringSize);
+        }
+        this.slots = new Command[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            slots[i] = new Command(i);
+        }
+        this.mask = ringSize - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Claims the next slot, waiting until the producer of the previous lap has released it.
+     *
+     * @throws IllegalStateException when the ring has been halted
+     */
+    public Command claim() {
+        if (!running) {
+            throw new IllegalStateException("Command ring has been halted");
+        }
+        long sequence = claimSequence.getAndIncrement();
+        Command command = slots[(int) sequence & mask];
+        for (int attempt = 0; command.sequence != sequence; attempt++) {
+            waitStrategy.idle(attempt);
+        }
+        command.claimedSequence = sequence;
+        if (!running) {
+            // halted while claiming, the consumer may have seen the claim before the halt and waits for this sequence
+            command.skipped = true;
+            publish(command);
+            throw new IllegalStateException("Command ring has been halted");
+        }
+        return command;
+    }
+
+    /**
+     * Publishes the filled in command to the matching thread and waits for its result.
+     *
+     * @throws RuntimeException thrown by the matching thread while executing the command
+     */
+    public void publishAndAwait(Command command) {
+        long sequence = command.claimedSequence;
+        command.detached = false;
+        command.sequence = sequence + 1;
+        for (int attempt = 0; command.sequence != sequence + 2; attempt++) {
+            waitStrategy.idle(attempt);
+        }
+        if (command.failure() != null) {
+            throw command.failure();
+        }
+    }
+
+    /**
+     * Publishes the filled in {@link Command.Task} to the matching thread without waiting, the matching thread releases
+     * the slot once it has executed the task.
+     */
+    public void publish(Command command) {
+        command.detached = true;
+        command.sequence = command.claimedSequence + 1;
+    }
+
+    /**
+     * Hands the slot back to the ring once the producer has read the result.
+     */
+    public void release(Command command) {
+        command.clearReferences();
+        command.sequence = command.claimedSequence + slots.length;
+    }
+
+    /**
+     * Runs the consumer loop on the calling thread until {@link #halt()} is called.
+     */
+    public void process(CommandHandler commandHandler) {
+        long next = 0;
+        int attempt = 0;
+        while (true) {
+            Command command = slots[(int) next & mask];
+            if (command.sequence != next + 1) {
+                // a claim that has not been published yet is still executed
+                if (!running && next == claimSequence.get()) {
+                    return;
+                }
+                waitStrategy.idle(attempt++);
+                continue;
+            }
+            attempt = 0;
+            if (command.skipped) {
+                command.skipped = false;
+            } else {
+                try {
+                    commandHandler.onCommand(command);
+                } catch (RuntimeException e) {
+                    command.fail(e);
+                }
+            }
+            if (command.detached) {
+                command.clearReferences();
+                command.sequence = next + slots.length;
+            } else {
+                command.sequence = next + 2;
+            }
+            next++;
+        }
+    }
+
+    /**
+     * Stops the consumer loop once it has executed every command claimed before. New claims are rejected.
+     */
+    public void halt() {
+        running = false;
+    }
+
+    public interface CommandHandler {
+        void onCommand(Command command);
+    }
+}
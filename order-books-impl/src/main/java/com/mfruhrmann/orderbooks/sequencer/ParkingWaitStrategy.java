@@ -0,0 +1,34 @@
+package com.mfruhrmann.orderbooks.sequencer;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins, then yields and finally parks the thread for a short time. Waiting threads cost almost no CPU, at the price of
+ * the park granularity being added to the latency of a command when the ring is idle.
+ */
+public class ParkingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+
+    private final long parkNanos;
+
+    public ParkingWaitStrategy() {
+        this(50_000);
+    }
+
+    public ParkingWaitStrategy(long parkNanos) {
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public void idle(int attempt) {
+        if (attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (attempt < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+        }
+    }
+}
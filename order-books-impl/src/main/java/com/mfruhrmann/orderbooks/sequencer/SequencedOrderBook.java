@@ -0,0 +1,169 @@
+package com.mfruhrmann.orderbooks.sequencer;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Front end that lets many threads use a single order book without taking its monitor. Every call is published into
+ * a {@link CommandRing} and executed by one dedicated matching thread, the caller waits for the result written back into
+ * the ring slot. The wrapped book is only ever touched by the matching thread, trade listeners are called on it as well.
+ * The top of book is the exception, it is read from the book on the calling thread without going through the ring.
+ * <p>
+ * The matching thread is started by the constructor and stopped by {@link #close()}. A sequenced book can also be a view
+ * of a single instrument on a ring that is processed by somebody else, e.g. a shard of the
+ * {@link com.mfruhrmann.orderbooks.engine.MatchingEngine}.
+ */
+public class SequencedOrderBook implements OrderBook, AutoCloseable {
+
+    private final CommandRing commandRing;
+    private final long instrumentId;
+    private final OrderBook orderBook;
+    private final Thread matchingThread;
+
+    public SequencedOrderBook(OrderBook orderBook, int ringSize, WaitStrategy waitStrategy) {
+        this.commandRing = new CommandRing(ringSize, waitStrategy);
+        this.instrumentId = 0;
+        this.orderBook = orderBook;
+        this.matchingThread = new Thread(() -> commandRing.process(command -> command.executeOn(orderBook)), "order-book-matching");
+        this.matchingThread.setDaemon(true);
+        this.matchingThread.start();
+    }
+
+    /**
+     * View of one instrument on a ring processed by another component, every command is tagged with the instrument id.
+     * Closing the view does not stop the ring.
+     *
+     * @param orderBook book of the instrument, only its top of book is read by the view
+     */
+    public SequencedOrderBook(CommandRing commandRing, long instrumentId, OrderBook orderBook) {
+        this.commandRing = commandRing;
+        this.instrumentId = instrumentId;
+        this.orderBook = orderBook;
+        this.matchingThread = null;
+    }
+
+    @Override
+    public long addOrder(Order order) {
+        Command command = claim().addOrder(order);
+        try {
+            commandRing.publishAndAwait(command);
+            return command.longResult();
+        } finally {
+            commandRing.release(command);
+        }
+    }
+
+    @Override
+    public void addOrders(Order[] orders, int count, long[] orderIds) {
+        call(claim().addOrders(orders, count, orderIds));
+    }
+
+    @Override
+    public CancelStatus cancelOrder(long id) {
+        return call(claim().cancelOrder(id));
+    }
+
+    @Override
+    public void cancelOrders(long[] ids, int count, CancelStatus[] cancelStatuses) {
+        call(claim().cancelOrders(ids, count, cancelStatuses));
+    }
+
+    @Override
+    public AmendStatus amendOrder(long id, int newSize, double newPrice) {
+        return call(claim().amendOrder(id, newSize, newPrice));
+    }
+
+    @Override
+    public Order getOrder(long id) {
+        return call(claim().getOrder(id));
+    }
+
+    @Override
+    public List<Order> getAllOrders() {
+        return call(claim().request(Command.Type.GET_ALL_ORDERS, 0, null));
+    }
+
+    @Override
+    public int getDepth() {
+        Command command = claim().request(Command.Type.GET_DEPTH, 0, null);
+        try {
+            commandRing.publishAndAwait(command);
+            return (int) command.longResult();
+        } finally {
+            commandRing.release(command);
+        }
+    }
+
+    @Override
+    public int snapshotTopLevels(int n, Side side, double[] prices, long[] quantities) {
+        Command command = claim().snapshotTopLevels(n, side, prices, quantities);
+        try {
+            commandRing.publishAndAwait(command);
+            return (int) command.longResult();
+        } finally {
+            commandRing.release(command);
+        }
+    }
+
+    @Override
+    public TopOrderBook getTopOrderBook() {
+        return orderBook.getTopOrderBook();
+    }
+
+    @Override
+    public Map<Double, Double> getAskLevels() {
+        return call(claim().request(Command.Type.GET_ASK_LEVELS, 0, null));
+    }
+
+    @Override
+    public Map<Double, Double> getBidLevels() {
+        return call(claim().request(Command.Type.GET_BID_LEVELS, 0, null));
+    }
+
+    @Override
+    public void addTradeListener(OrderBookTradeListener orderBookTradeListener) {
+        call(claim().request(Command.Type.ADD_TRADE_LISTENER, 0, orderBookTradeListener));
+    }
+
+    @Override
+    public void addTradeEventListener(TradeEventListener tradeEventListener) {
+        call(claim().request(Command.Type.ADD_TRADE_EVENT_LISTENER, 0, tradeEventListener));
+    }
+
+    @Override
+    public void addLevelUpdateListener(LevelUpdateListener levelUpdateListener) {
+        call(claim().request(Command.Type.ADD_LEVEL_UPDATE_LISTENER, 0, levelUpdateListener));
+    }
+
+    private Command claim() {
+        return commandRing.claim().onInstrument(instrumentId);
+    }
+
+    private <T> T call(Command command) {
+        try {
+            commandRing.publishAndAwait(command);
+            return command.result();
+        } finally {
+            commandRing.release(command);
+        }
+    }
+
+    /**
+     * Stops the matching thread after it has executed all published commands. Producers have to stop using the book
+     * before it is closed. Returns with the interrupt flag set when interrupted while waiting for the matching thread.
+     */
+    @Override
+    public void close() {
+        if (matchingThread == null) {
+            return;
+        }
+        commandRing.halt();
+        try {
+            matchingThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
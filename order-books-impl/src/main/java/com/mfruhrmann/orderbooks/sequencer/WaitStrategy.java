@@ -0,0 +1,15 @@
+package com.mfruhrmann.orderbooks.sequencer;
+
+/**
+ * Decides what a thread does while it waits on the {@link CommandRing}, both the matching thread waiting for new commands
+ * and producers waiting for a free slot or for the result of their command.
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called in a loop until the awaited slot state is reached.
+     *
+     * @param attempt number of unsuccessful checks so far, reset once the wait is over
+     */
+    void idle(int attempt);
+}
@@ -0,0 +1,18 @@
+package com.mfruhrmann.orderbooks.sequencer;
+
+/**
+ * Spins for a while and then yields the CPU to other threads, a good compromise when threads share cores.
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public void idle(int attempt) {
+        if (attempt < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.mfruhrmann.orderbooks.tape;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Binary layout of the trade tape, all fixed size numbers are little endian.
+ * <p>
+ * A tape is a directory of segment files {@code 00000000.tape}, {@code 00000001.tape}, ... of fixed size, zero filled
+ * and mapped as a whole. Every segment starts with a header followed by blocks of up to a few thousand trades, a block
+ * never spans two segments:
+ * <pre>
+ * segment header  magic(4) version(4) priceStep(8) minTs(8) maxTs(8)
+ * block header    length(4) trades(4) minTs(8) maxTs(8) volume(8) notional(8)
+ * block body      ts[] tradeId[] aggressorOrderId[] passiveOrderId[] priceTick[] size[]
+ * </pre>
+ * {@code length} is the size of the body in bytes and is written last, {@code 0} marks the end of the segment. Before a
+ * block is published the length slot behind it is cleared, so the bytes of a block that was being written when the
+ * process died are never taken for a block once the tape is continued. Every column is stored as zigzag varints, all but
+ * {@code size} as the difference to the previous trade of the block, so ts and ids that grow slowly and prices that stay
+ * within a few ticks take a byte or two per trade.
+ * <p>
+ * The segment header keeps the time range of all blocks of the segment, the block header the time range and the totals
+ * of the block. A reader skips segments and blocks outside the range it looks at and aggregates blocks inside it without
+ * decoding them.
+ */
+final class TapeFormat {
+
+    static final int MAGIC = 0x45504154;
+    static final int VERSION = 2;
+    static final int FILE_HEADER_SIZE = 32;
+    static final int PRICE_STEP = 8;
+    static final int SEGMENT_MIN_TS = 16;
+    static final int SEGMENT_MAX_TS = 24;
+
+    static final int BLOCK_HEADER_SIZE = 40;
+    static final int LENGTH = 0;
+    static final int TRADES = 4;
+    static final int MIN_TS = 8;
+    static final int MAX_TS = 16;
+    static final int VOLUME = 24;
+    static final int NOTIONAL = 32;
+
+    private static final int MAX_LONG_VARINT_SIZE = 10;
+    private static final int MAX_INT_VARINT_SIZE = 5;
+
+    private TapeFormat() {
+    }
+
+    static Path segment(Path directory, int index) {
+        return directory.resolve(String.format("%08d.tape", index));
+    }
+
+    /**
+     * @return bytes a block of {@code trades} trades takes at most, header included
+     */
+    static int maxBlockSize(int trades) {
+        return BLOCK_HEADER_SIZE + trades * (5 * MAX_LONG_VARINT_SIZE + MAX_INT_VARINT_SIZE);
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put((byte) zigzag);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    static void putDeltas(ByteBuffer buffer, long[] column, int count) {
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            putVarLong(buffer, column[i] - previous);
+            previous = column[i];
+        }
+    }
+
+    static void getDeltas(ByteBuffer buffer, long[] column, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value += getVarLong(buffer);
+            column[i] = value;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.mfruhrmann.orderbooks.tape;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.PriceTicks;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the trades of a book in compressed columnar segments on disk, see {@link TapeFormat}. Register it as a
+ * {@link OrderBook.TradeEventListener}: a trade is stored into the columns of the current block, which costs a few array
+ * stores on the matching thread, and every {@code blockTrades} trades the block is encoded into the mapped segment. Read
+ * the tape with a {@link TradeTapeReader}, also while it is written, it sees the blocks encoded so far.
+ * <p>
+ * Prices are stored as ticks of the price step of the tape, use the step of the book. Opening an existing tape continues
+ * behind its last block. The tape is not thread-safe, it is meant to be called by the book while it holds its monitor
+ * (or by an {@link com.mfruhrmann.orderbooks.dispatch.AsyncTradeListener} in front of it). Trades not yet in a block are
+ * lost unless the tape is flushed or closed.
+ * <p>
+ * The calling thread never waits for the disk: a full segment is forced to the disk on a background thread, the last
+ * one when the tape is closed. A failure to force is thrown by {@link #close()}.
+ */
+public class TradeTape implements OrderBook.TradeEventListener, AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_BLOCK_TRADES = 4096;
+
+    private final Path directory;
+    private final double priceStep;
+    private final PriceTicks priceTicks;
+    private final int segmentSize;
+
+    private final long[] timestamps;
+    private final long[] tradeIds;
+    private final long[] aggressorOrderIds;
+    private final long[] passiveOrderIds;
+    private final long[] priceTickColumn;
+    private final long[] sizes;
+    private int count;
+
+    private int segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    private final ExecutorService segmentForcer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "trade-tape-forcer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile UncheckedIOException forceFailure;
+
+    public TradeTape(Path directory, double priceStep) throws IOException {
+        this(directory, priceStep, DEFAULT_SEGMENT_SIZE, DEFAULT_BLOCK_TRADES);
+    }
+
+    /**
+     * @param segmentSize size of a segment file, has to hold at least one full block
+     * @param blockTrades number of trades encoded together, more compress better and are skipped in larger steps
+     */
+    public TradeTape(Path directory, double priceStep, int segmentSize, int blockTrades) throws IOException {
+        if (blockTrades <= 0) {
+            throw new IllegalArgumentException("blockTrades has to be positive, got " + blockTrades);
+        }
+        if (segmentSize < TapeFormat.FILE_HEADER_SIZE + TapeFormat.maxBlockSize(blockTrades)) {
+            throw new IllegalArgumentException("segmentSize is too small for a block of " + blockTrades + " trades, got " + segmentSize);
+        }
+        this.directory = directory;
+        this.priceStep = priceStep;
+        this.priceTicks = new PriceTicks(priceStep);
+        this.segmentSize = segmentSize;
+        this.timestamps = new long[blockTrades];
+        this.tradeIds = new long[blockTrades];
+        this.aggressorOrderIds = new long[blockTrades];
+        this.passiveOrderIds = new long[blockTrades];
+        this.priceTickColumn = new long[blockTrades];
+        this.sizes = new long[blockTrades];
+
+        Files.createDirectories(directory);
+        int lastSegment = TradeTapeReader.segmentCount(directory) - 1;
+        if (lastSegment >= 0) {
+            openSegment(lastSegment, false);
+            segment.position(TradeTapeReader.endOfBlocks(segment));
+        } else {
+            openSegment(0, true);
+        }
+    }
+
+    @Override
+    public void onTrade(long tradeId, long aggressorOrderId, long passiveOrderId, double price, int size, long ts) {
+        timestamps[count] = ts;
+        tradeIds[count] = tradeId;
+        aggressorOrderIds[count] = aggressorOrderId;
+        passiveOrderIds[count] = passiveOrderId;
+        priceTickColumn[count] = priceTicks.toTick(price);
+        sizes[count] = size;
+        if (++count == timestamps.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Encodes the trades collected so far as a block, readers see them from now on.
+     */
+    public void flush() {
+        if (count == 0) {
+            return;
+        }
+        if (segment.remaining() < TapeFormat.maxBlockSize(count)) {
+            try {
+                openSegment(segmentIndex + 1, true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        long minTs = Long.MAX_VALUE;
+        long maxTs = Long.MIN_VALUE;
+        long volume = 0;
+        double notional = 0;
+        for (int i = 0; i < count; i++) {
+            minTs = Math.min(minTs, timestamps[i]);
+            maxTs = Math.max(maxTs, timestamps[i]);
+            volume += sizes[i];
+            notional += priceTicks.toPrice(priceTickColumn[i]) * sizes[i];
+        }
+        int blockStart = segment.position();
+        segment.position(blockStart + TapeFormat.BLOCK_HEADER_SIZE);
+        TapeFormat.putDeltas(segment, timestamps, count);
+        TapeFormat.putDeltas(segment, tradeIds, count);
+        TapeFormat.putDeltas(segment, aggressorOrderIds, count);
+        TapeFormat.putDeltas(segment, passiveOrderIds, count);
+        TapeFormat.putDeltas(segment, priceTickColumn, count);
+        for (int i = 0; i < count; i++) {
+            TapeFormat.putVarLong(segment, sizes[i]);
+        }
+        int length = segment.position() - blockStart - TapeFormat.BLOCK_HEADER_SIZE;
+        segment.putInt(blockStart + TapeFormat.TRADES, count)
+                .putLong(blockStart + TapeFormat.MIN_TS, minTs)
+                .putLong(blockStart + TapeFormat.MAX_TS, maxTs)
+                .putLong(blockStart + TapeFormat.VOLUME, volume)
+                .putDouble(blockStart + TapeFormat.NOTIONAL, notional);
+        if (segment.remaining() >= Integer.BYTES) {
+            // the next length slot can hold the body of a block that was being written when the process died
+            segment.putInt(segment.position() + TapeFormat.LENGTH, 0);
+        }
+        if (minTs < segment.getLong(TapeFormat.SEGMENT_MIN_TS)) {
+            segment.putLong(TapeFormat.SEGMENT_MIN_TS, minTs);
+        }
+        if (maxTs > segment.getLong(TapeFormat.SEGMENT_MAX_TS)) {
+            segment.putLong(TapeFormat.SEGMENT_MAX_TS, maxTs);
+        }
+        // the length is written last, a reader sees either the end of the segment or a complete block
+        VarHandle.releaseFence();
+        segment.putInt(blockStart + TapeFormat.LENGTH, length);
+        count = 0;
+    }
+
+    /**
+     * Flushes the pending trades and forces the segment to the disk, after the full segments still being forced.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            segment.force();
+            channel.close();
+        } finally {
+            segmentForcer.shutdown();
+        }
+        try {
+            segmentForcer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while forcing the segments of " + directory);
+        }
+        if (forceFailure != null) {
+            throw forceFailure.getCause();
+        }
+    }
+
+    private void openSegment(int index, boolean create) throws IOException {
+        if (channel != null) {
+            // a mapping stays valid after its channel is closed
+            MappedByteBuffer fullSegment = segment;
+            channel.close();
+            segmentForcer.execute(() -> {
+                try {
+                    fullSegment.force();
+                } catch (UncheckedIOException e) {
+                    forceFailure = e;
+                }
+            });
+        }
+        Path path = TapeFormat.segment(directory, index);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // an existing segment keeps its size
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, create ? segmentSize : channel.size());
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segmentIndex = index;
+        if (create) {
+            segment.putInt(TapeFormat.MAGIC).putInt(TapeFormat.VERSION).putDouble(priceStep)
+                    .putLong(Long.MAX_VALUE).putLong(Long.MIN_VALUE);
+        } else {
+            TradeTapeReader.checkHeader(segment, path);
+            if (segment.getDouble() != priceStep) {
+                throw new IllegalArgumentException(path + " was written with another price step than " + priceStep);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.mfruhrmann.orderbooks.tape;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.PriceTicks;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Time range queries over a tape written by {@link TradeTape}, through read only mappings of its segments. Segments and
+ * blocks outside the range are skipped by their header, {@link #aggregate(long, long)} takes the totals of blocks lying
+ * completely inside the range from their header as well, only blocks crossing a boundary of the range are decoded.
+ * Decoding goes into reused columns, a scan does not allocate per trade.
+ * <p>
+ * The writer only ever appends to the last segment, so the reader remembers the time ranges of the segments before it
+ * and a query only opens the segments that overlap its range.
+ * <p>
+ * Ranges are half open, {@code fromTs <= ts < toTs}, in the unit of the trade timestamps: nanoseconds since the epoch
+ * unless the book was given another time source. Not thread-safe, use one reader per thread.
+ */
+public class TradeTapeReader {
+
+    private final Path directory;
+
+    private long[] segmentMinTs = new long[0];
+    private long[] segmentMaxTs = new long[0];
+    private int fullSegments;
+
+    private long[] timestamps = new long[0];
+    private long[] tradeIds = new long[0];
+    private long[] aggressorOrderIds = new long[0];
+    private long[] passiveOrderIds = new long[0];
+    private long[] priceTickColumn = new long[0];
+    private long[] sizes = new long[0];
+
+    private long trades;
+    private long volume;
+    private double notional;
+
+    public TradeTapeReader(Path directory) {
+        this.directory = directory;
+    }
+
+    public record Statistics(long trades, long volume, double notional) {
+
+        /**
+         * @return volume weighted average price, {@code NaN} without trades
+         */
+        public double vwap() {
+            return volume == 0 ? Double.NaN : notional / volume;
+        }
+    }
+
+    /**
+     * Passes the trades of the range to the visitor in tape order.
+     *
+     * @return number of trades passed to the visitor
+     */
+    public long scan(long fromTs, long toTs, OrderBook.TradeEventListener visitor) throws IOException {
+        read(fromTs, toTs, visitor);
+        return trades;
+    }
+
+    public Statistics aggregate(long fromTs, long toTs) throws IOException {
+        read(fromTs, toTs, null);
+        return new Statistics(trades, volume, notional);
+    }
+
+    /**
+     * @param visitor {@code null} to only sum up the trades
+     */
+    private void read(long fromTs, long toTs, OrderBook.TradeEventListener visitor) throws IOException {
+        trades = 0;
+        volume = 0;
+        notional = 0;
+        int segments = segmentCount(directory);
+        rememberFullSegments(segments - 1);
+        for (int index = 0; index < segments; index++) {
+            if (index < fullSegments && (segmentMaxTs[index] < fromTs || segmentMinTs[index] >= toTs)) {
+                continue;
+            }
+            Path path = TapeFormat.segment(directory, index);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                segment.order(ByteOrder.LITTLE_ENDIAN);
+                if (index == segments - 1 && (segment.limit() < TapeFormat.FILE_HEADER_SIZE || segment.getInt(0) == 0)) {
+                    // the writer has just created the segment
+                    break;
+                }
+                checkHeader(segment, path);
+                PriceTicks priceTicks = new PriceTicks(segment.getDouble());
+                int position = TapeFormat.FILE_HEADER_SIZE;
+                while (position + TapeFormat.BLOCK_HEADER_SIZE <= segment.limit()) {
+                    int length = blockLength(segment, position);
+                    if (length == 0) {
+                        break;
+                    }
+                    VarHandle.acquireFence();
+                    int blockTrades = segment.getInt(position + TapeFormat.TRADES);
+                    long minTs = segment.getLong(position + TapeFormat.MIN_TS);
+                    long maxTs = segment.getLong(position + TapeFormat.MAX_TS);
+                    int body = position + TapeFormat.BLOCK_HEADER_SIZE;
+                    if (visitor == null && minTs >= fromTs && maxTs < toTs) {
+                        trades += blockTrades;
+                        volume += segment.getLong(position + TapeFormat.VOLUME);
+                        notional += segment.getDouble(position + TapeFormat.NOTIONAL);
+                    } else if (maxTs >= fromTs && minTs < toTs) {
+                        decode(segment.position(body), blockTrades);
+                        visit(fromTs, toTs, visitor, priceTicks, blockTrades);
+                    }
+                    position = body + length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the time ranges of the segments before the one the writer appends to, once per segment.
+     */
+    private void rememberFullSegments(int segments) throws IOException {
+        if (segments <= fullSegments) {
+            return;
+        }
+        segmentMinTs = Arrays.copyOf(segmentMinTs, segments);
+        segmentMaxTs = Arrays.copyOf(segmentMaxTs, segments);
+        ByteBuffer header = ByteBuffer.allocate(TapeFormat.FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int index = fullSegments; index < segments; index++) {
+            Path path = TapeFormat.segment(directory, index);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                channel.read(header.clear(), 0);
+            }
+            checkHeader(header.flip(), path);
+            segmentMinTs[index] = header.getLong(TapeFormat.SEGMENT_MIN_TS);
+            segmentMaxTs[index] = header.getLong(TapeFormat.SEGMENT_MAX_TS);
+        }
+        fullSegments = segments;
+    }
+
+    private void decode(ByteBuffer segment, int blockTrades) {
+        if (timestamps.length < blockTrades) {
+            timestamps = new long[blockTrades];
+            tradeIds = new long[blockTrades];
+            aggressorOrderIds = new long[blockTrades];
+            passiveOrderIds = new long[blockTrades];
+            priceTickColumn = new long[blockTrades];
+            sizes = new long[blockTrades];
+        }
+        TapeFormat.getDeltas(segment, timestamps, blockTrades);
+        TapeFormat.getDeltas(segment, tradeIds, blockTrades);
+        TapeFormat.getDeltas(segment, aggressorOrderIds, blockTrades);
+        TapeFormat.getDeltas(segment, passiveOrderIds, blockTrades);
+        TapeFormat.getDeltas(segment, priceTickColumn, blockTrades);
+        for (int i = 0; i < blockTrades; i++) {
+            sizes[i] = TapeFormat.getVarLong(segment);
+        }
+    }
+
+    private void visit(long fromTs, long toTs, OrderBook.TradeEventListener visitor, PriceTicks priceTicks, int blockTrades) {
+        for (int i = 0; i < blockTrades; i++) {
+            long ts = timestamps[i];
+            if (ts < fromTs || ts >= toTs) {
+                continue;
+            }
+            double price = priceTicks.toPrice(priceTickColumn[i]);
+            int size = (int) sizes[i];
+            trades++;
+            volume += size;
+            notional += price * size;
+            if (visitor != null) {
+                visitor.onTrade(tradeIds[i], aggressorOrderIds[i], passiveOrderIds[i], price, size, ts);
+            }
+        }
+    }
+
+    /**
+     * @return number of segments, the segment files are numbered from 0 without gaps
+     */
+    static int segmentCount(Path directory) {
+        int segments = 0;
+        while (Files.exists(TapeFormat.segment(directory, segments))) {
+            segments++;
+        }
+        return segments;
+    }
+
+    /**
+     * Checks magic and version and leaves the segment positioned at the price step.
+     */
+    static void checkHeader(ByteBuffer segment, Path path) throws IOException {
+        if (segment.limit() < TapeFormat.FILE_HEADER_SIZE
+                || segment.getInt(0) != TapeFormat.MAGIC || segment.getInt(4) != TapeFormat.VERSION) {
+            throw new IOException(path + " is not a trade tape segment");
+        }
+        segment.position(TapeFormat.PRICE_STEP);
+    }
+
+    /**
+     * @return position behind the last complete block of the segment
+     */
+    static int endOfBlocks(ByteBuffer segment) {
+        int position = TapeFormat.FILE_HEADER_SIZE;
+        while (position + TapeFormat.BLOCK_HEADER_SIZE <= segment.limit()) {
+            int length = blockLength(segment, position);
+            if (length == 0) {
+                break;
+            }
+            position += TapeFormat.BLOCK_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    /**
+     * @return length of the body of the block at the position, 0 at the end of the blocks or for a length that does not
+     * fit into the segment
+     */
+    private static int blockLength(ByteBuffer segment, int position) {
+        int length = segment.getInt(position + TapeFormat.LENGTH);
+        return length > 0 && length <= segment.limit() - position - TapeFormat.BLOCK_HEADER_SIZE ? length : 0;
+    }
+}
@@ -1,16 +1,30 @@
 package com.mfruhrmann.orderbooks.utils;
 
 import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.time.TimeSource;
 import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+import com.mfruhrmann.orderbooks.impl.time.SystemEpochNanosTimeSource;
 
-import java.time.Instant;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class OrderManager {
 
     private final AtomicLong atomicLong = new AtomicLong(1);
+    private final TimeSource timeSource;
+
+    public OrderManager() {
+        this(SystemEpochNanosTimeSource.INSTANCE);
+    }
+
+    /**
+     * @param timeSource clock the orders are stamped with, in nanoseconds since the epoch, e.g. a
+     *                   {@link com.mfruhrmann.orderbooks.impl.time.CachedClockTimeSource} when creating many orders
+     */
+    public OrderManager(TimeSource timeSource) {
+        this.timeSource = timeSource;
+    }
 
     public OrderBook.Order createOrder(OrderBook.Side side, OrderBook.OrderType type, double price, int size) {
-        return new ImmutableOrder(String.valueOf(atomicLong.incrementAndGet()), side, type, Instant.now(), price, size);
+        return new ImmutableOrder(atomicLong.incrementAndGet(), side, type, timeSource.getCurrentTime(), price, size);
     }
 }
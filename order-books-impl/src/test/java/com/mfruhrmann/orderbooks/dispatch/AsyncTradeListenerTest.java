@@ -0,0 +1,172 @@
+package com.mfruhrmann.orderbooks.dispatch;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.OffHeapOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.sequencer.ParkingWaitStrategy;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncTradeListenerTest {
+
+    private final OrderManager orderManager = new OrderManager();
+
+    public static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                Arguments.of(new BasicOrderBook()),
+                Arguments.of(new TickLadderOrderBook(1, 64)),
+                Arguments.of(new OffHeapOrderBook(1, 16)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldDeliverAllTradesInOrderWithBackpressure(OrderBook orderBook) throws Exception {
+        List<Long> passiveOrderIds = new ArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        AsyncTradeListener asyncTradeListener = new AsyncTradeListener(new AsyncTradeListener.BatchListener() {
+            @Override
+            public void onTrade(long tradeId, long aggressorOrderId, long passiveOrderId, double price, int size, long ts) {
+                passiveOrderIds.add(passiveOrderId);
+            }
+
+            @Override
+            public void onEndOfBatch(int trades) {
+                batchSizes.add(trades);
+            }
+        }, 4, 3, AsyncTradeListener.OverflowPolicy.BLOCK, new ParkingWaitStrategy(10_000));
+        orderBook.addTradeEventListener(asyncTradeListener);
+        List<Long> restingOrderIds = new ArrayList<>();
+
+        //Given
+        for (int i = 0; i < 100; i++) {
+            restingOrderIds.add(orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0 + i % 5, 1)));
+        }
+
+        //when - a single order sweeps all of them, through a ring of 4 trades
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 104.0, 100));
+        asyncTradeListener.close();
+
+        //Then
+        List<Long> expectedOrderIds = new ArrayList<>();
+        for (int level = 0; level < 5; level++) {
+            for (int i = level; i < 100; i += 5) {
+                expectedOrderIds.add(restingOrderIds.get(i));
+            }
+        }
+        assertThat(passiveOrderIds).containsExactlyElementsOf(expectedOrderIds);
+        assertThat(batchSizes).allSatisfy(trades -> assertThat(trades).isBetween(1, 3));
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(100);
+        assertThat(asyncTradeListener.getPublished()).isEqualTo(100);
+        assertThat(asyncTradeListener.getDelivered()).isEqualTo(100);
+        assertThat(asyncTradeListener.getLag()).isZero();
+        assertThat(asyncTradeListener.getMaxLag()).isBetween(1L, 4L);
+        assertThat(asyncTradeListener.getDropped()).isZero();
+        assertThat(asyncTradeListener.getBatches()).isEqualTo(batchSizes.size());
+    }
+
+    @Test
+    void shouldDropTradesWhenTheListenerFallsBehind() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<OrderBook.Trade> trades = new ArrayList<>();
+        AsyncTradeListener asyncTradeListener = new AsyncTradeListener(AsyncTradeListener.tradeListener(trade -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            trades.add(trade);
+        }), 8, 16, AsyncTradeListener.OverflowPolicy.DROP, new ParkingWaitStrategy(10_000));
+        OrderBook orderBook = new TickLadderOrderBook(1, 64);
+        orderBook.addTradeEventListener(asyncTradeListener);
+
+        //Given
+        OrderBook.Order first = orderManager.createOrder(SELL, LIMIT, 100.0, 1);
+        orderBook.addOrder(first);
+        for (int i = 1; i < 20; i++) {
+            orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+        }
+
+        //when - the listener is stuck on the first trade while the book trades 20 times
+        long aggressorOrderId = orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 20));
+        long dropped = asyncTradeListener.getDropped();
+        release.countDown();
+        asyncTradeListener.close();
+
+        //Then - slots are handed back after the whole batch, so the ring stays full with the first 8 trades
+        assertThat(dropped).isEqualTo(12);
+        assertThat(asyncTradeListener.getDelivered() + dropped).isEqualTo(20);
+        assertThat(trades).hasSize((int) asyncTradeListener.getDelivered());
+        assertThat(trades.get(0).orderIds()).isEqualTo(Set.of(first.id(), aggressorOrderId));
+        assertThat(trades.get(0).id()).isEqualTo("1");
+        assertThat(asyncTradeListener.getMaxLag()).isEqualTo(8);
+        assertThat(asyncTradeListener.getProducerWaits()).isZero();
+    }
+
+    @Test
+    void shouldKeepDeliveringAfterAFailingListener() throws Exception {
+        List<Long> tradeIds = new ArrayList<>();
+        AsyncTradeListener asyncTradeListener = new AsyncTradeListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> {
+            if (tradeId == 1) {
+                throw new IllegalStateException("listener failed");
+            }
+            tradeIds.add(tradeId);
+        }, 16, 16, AsyncTradeListener.OverflowPolicy.BLOCK, new ParkingWaitStrategy(10_000));
+        OrderBook orderBook = new BasicOrderBook();
+        orderBook.addTradeEventListener(asyncTradeListener);
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 101.0, 1));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 101.0, 2));
+        asyncTradeListener.close();
+
+        //Then
+        assertThat(tradeIds).containsExactly(2L);
+        assertThat(asyncTradeListener.getFailedDeliveries()).isEqualTo(1);
+        assertThat(asyncTradeListener.getDelivered()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldExposeCountersAndBatchLatencyOverJmx() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        AsyncTradeListener asyncTradeListener = new AsyncTradeListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> {
+        }, 8, 4, AsyncTradeListener.OverflowPolicy.BLOCK, new ParkingWaitStrategy(10_000));
+        OrderBook orderBook = new TickLadderOrderBook(1, 64);
+        orderBook.addTradeEventListener(asyncTradeListener);
+
+        //Given
+        List<ObjectName> objectNames = asyncTradeListener.register("BTC/USD trades");
+        try {
+            orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+            orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+            asyncTradeListener.close();
+
+            //Then
+            assertThat(objectNames).hasSize(2);
+            assertThat(mBeanServer.getAttribute(objectNames.get(0), "Published")).isEqualTo(1L);
+            assertThat(mBeanServer.getAttribute(objectNames.get(1), "Count")).isEqualTo(1L);
+        } finally {
+            for (ObjectName objectName : objectNames) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.mfruhrmann.orderbooks.engine;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.sequencer.Command;
+import com.mfruhrmann.orderbooks.sequencer.YieldingWaitStrategy;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MatchingEngineTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final Set<String> bookThreads = ConcurrentHashMap.newKeySet();
+    private final MatchingEngine matchingEngine = new MatchingEngine(3, 64, new YieldingWaitStrategy(), instrumentId -> {
+        bookThreads.add(instrumentId + "@" + Thread.currentThread().getName());
+        return new TickLadderOrderBook(1, 1024);
+    });
+
+    @AfterEach
+    void tearDown() {
+        matchingEngine.close();
+    }
+
+    @Test
+    void shouldKeepBooksOfInstrumentsSeparate() {
+        OrderBook firstInstrument = matchingEngine.orderBook(1);
+        OrderBook secondInstrument = matchingEngine.orderBook(2);
+        OrderBook sameShardAsFirst = matchingEngine.orderBook(4);
+
+        //when
+        firstInstrument.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+        secondInstrument.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+        sameShardAsFirst.addOrder(orderManager.createOrder(SELL, LIMIT, 99.0, 2));
+
+        //Then
+        assertThat(firstInstrument.getAllOrders()).hasSize(1);
+        assertThat(firstInstrument.getTopOrderBook().bid()).isEqualTo(100.0);
+        assertThat(secondInstrument.getTopOrderBook().ask()).isEqualTo(100.0);
+        assertThat(sameShardAsFirst.getTopOrderBook().ask()).isEqualTo(99.0);
+        assertThat(bookThreads).containsOnly("1@matching-shard-1", "2@matching-shard-2", "4@matching-shard-1");
+    }
+
+    @Test
+    void shouldRouteOrdersOfManyProducersToTheirInstruments() throws Exception {
+        int instruments = 12;
+        int ordersPerInstrument = 5_000;
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when
+        for (int instrumentId = 0; instrumentId < instruments; instrumentId++) {
+            OrderBook orderBook = matchingEngine.orderBook(instrumentId);
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < ordersPerInstrument; i++) {
+                    orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        //Then
+        for (int instrumentId = 0; instrumentId < instruments; instrumentId++) {
+            assertThat(matchingEngine.orderBook(instrumentId).getTopOrderBook().bidSize()).isEqualTo(ordersPerInstrument);
+        }
+    }
+
+    @Test
+    void shouldCreateViewOfBookOnItsOwnMatchingThread() {
+        matchingEngine.orderBook(1).addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+        CompletableFuture<OrderBook.TopOrderBook> top = new CompletableFuture<>();
+
+        //when
+        matchingEngine.submit(4, new Command.Task() {
+            @Override
+            public void executeOn(OrderBook orderBook) {
+                top.complete(matchingEngine.orderBook(1).getTopOrderBook());
+            }
+
+            @Override
+            public void fail(RuntimeException failure) {
+                top.completeExceptionally(failure);
+            }
+        });
+
+        //Then
+        assertThat(top.join().bid()).isEqualTo(100.0);
+    }
+}
@@ -0,0 +1,158 @@
+package com.mfruhrmann.orderbooks.gateway;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ClientGatewayTest {
+
+    private static final long BROKEN_INSTRUMENT = 13;
+
+    private final OrderManager orderManager = new OrderManager();
+    private final Set<String> requestThreads = ConcurrentHashMap.newKeySet();
+    private final ClientGateway clientGateway = new ClientGateway(instrumentId -> {
+        if (instrumentId == BROKEN_INSTRUMENT) {
+            throw new IllegalArgumentException("Unknown instrument " + instrumentId);
+        }
+        return new TickLadderOrderBook(1, 1024);
+    }, 4, 64);
+
+    @AfterEach
+    void tearDown() {
+        clientGateway.close();
+    }
+
+    @Test
+    void shouldExecuteRequestsOfManySessionsOnTheMatchingThreadOfTheirShard() {
+        int sessions = 400;
+        int instruments = 4;
+        int ordersPerSession = 50;
+        List<CompletableFuture<Void>> sessionEnds = new ArrayList<>();
+
+        //when
+        for (int session = 0; session < sessions; session++) {
+            long instrumentId = session % instruments;
+            sessionEnds.add(clientGateway.startSession(gateway -> {
+                for (int i = 0; i < ordersPerSession; i++) {
+                    gateway.submit(instrumentId, orderBook -> {
+                        requestThreads.add(instrumentId + "@" + Thread.currentThread().getName());
+                        return orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+                    }).join();
+                }
+            }));
+        }
+        sessionEnds.forEach(CompletableFuture::join);
+
+        //Then
+        assertThat(clientGateway.activeSessions()).isZero();
+        assertThat(requestThreads).containsOnly("0@matching-shard-0", "1@matching-shard-1", "2@matching-shard-2", "3@matching-shard-3");
+        for (int instrumentId = 0; instrumentId < instruments; instrumentId++) {
+            assertThat(clientGateway.getTopOrderBook(instrumentId).join().bidSize())
+                    .isEqualTo((double) sessions / instruments * ordersPerSession);
+        }
+    }
+
+    @Test
+    void shouldCompleteResponsesAsynchronously() {
+        //Given
+        OrderBook.Order sell = orderManager.createOrder(SELL, LIMIT, 101.0, 5);
+
+        //when
+        CompletableFuture<Long> added = clientGateway.addOrder(1, sell);
+        CompletableFuture<OrderBook.AmendStatus> amended = clientGateway.amendOrder(1, sell.id(), 3, 101.0);
+        // the top of book is read right away, not behind the queued requests
+        amended.join();
+        OrderBook.TopOrderBook top = clientGateway.getTopOrderBook(1).join();
+        CompletableFuture<OrderBook.CancelStatus> cancelled = clientGateway.cancelOrder(1, sell.id());
+        CompletableFuture<OrderBook.CancelStatus> cancelledAgain = clientGateway.cancelOrder(1, sell.id());
+
+        //Then
+        assertThat(added.join()).isEqualTo(sell.id());
+        assertThat(amended.join()).isEqualTo(OrderBook.AmendStatus.AMENDED);
+        assertThat(top.askSize()).isEqualTo(3.0);
+        assertThat(cancelled.join()).isEqualTo(OrderBook.CancelStatus.CANCELED);
+        assertThat(cancelledAgain.join()).isEqualTo(OrderBook.CancelStatus.NOT_EXISTS);
+    }
+
+    @Test
+    void shouldFailResponsesOfFailingRequestsAndSessions() {
+        //when
+        CompletableFuture<Object> failingRequest = clientGateway.submit(1, orderBook -> {
+            throw new IllegalStateException("request failed");
+        });
+        CompletableFuture<OrderBook.TopOrderBook> brokenInstrument = clientGateway.getTopOrderBook(BROKEN_INSTRUMENT);
+        CompletableFuture<Void> failingSession = clientGateway.startSession(gateway -> {
+            throw new Exception("session failed");
+        });
+
+        //Then
+        assertThatThrownBy(failingRequest::join).isInstanceOf(CompletionException.class).hasMessageContaining("request failed");
+        assertThatThrownBy(brokenInstrument::join).isInstanceOf(CompletionException.class).hasMessageContaining("Unknown instrument 13");
+        assertThatThrownBy(failingSession::join).isInstanceOf(CompletionException.class).hasMessageContaining("session failed");
+        assertThat(clientGateway.getTopOrderBook(1).join().bidSize()).isZero();
+    }
+
+    @Test
+    void shouldExecuteQueuedRequestsBeforeClosing() {
+        //Given
+        List<CompletableFuture<Long>> added = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            added.add(clientGateway.addOrder(2, orderManager.createOrder(BUY, LIMIT, 99.0, 1)));
+        }
+
+        //when
+        clientGateway.close();
+
+        //Then
+        assertThat(added).allMatch(response -> response.isDone() && !response.isCompletedExceptionally());
+        assertThatThrownBy(() -> clientGateway.getTopOrderBook(2)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldCompleteEveryAcceptedRequestWhenClosedWhileSessionsSubmit() throws InterruptedException {
+        //Given
+        int sessions = 8;
+        Queue<CompletableFuture<Long>> accepted = new ConcurrentLinkedQueue<>();
+        CountDownLatch submitting = new CountDownLatch(sessions);
+        List<CompletableFuture<Void>> sessionEnds = new ArrayList<>();
+        for (int session = 0; session < sessions; session++) {
+            long instrumentId = session;
+            sessionEnds.add(clientGateway.startSession(gateway -> {
+                while (true) {
+                    try {
+                        accepted.add(gateway.addOrder(instrumentId, orderManager.createOrder(BUY, LIMIT, 99.0, 1)));
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                    submitting.countDown();
+                }
+            }));
+        }
+        submitting.await();
+
+        //when
+        clientGateway.close();
+
+        //Then
+        sessionEnds.forEach(CompletableFuture::join);
+        assertThat(accepted).isNotEmpty().allMatch(response -> response.isDone() && !response.isCompletedExceptionally());
+    }
+}
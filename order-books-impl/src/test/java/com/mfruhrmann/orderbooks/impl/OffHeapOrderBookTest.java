@@ -0,0 +1,91 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.SnapshotableOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class OffHeapOrderBookTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final List<OrderBook.Trade> trades = new ArrayList<>();
+
+    @Test
+    void shouldGrowBeyondExpectedOrdersAndKeepTimePriority() {
+        OrderBook orderBook = new OffHeapOrderBook(1, 16);
+        orderBook.addTradeListener(trades::add);
+
+        //Given - more orders than the first chunk of slots and the first index table hold
+        List<OrderBook.Order> orders = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            OrderBook.Order order = orderManager.createOrder(SELL, LIMIT, 100.0 + i % 10, 1);
+            orders.add(order);
+            orderBook.addOrder(order);
+        }
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 3));
+
+        //Then
+        assertThat(trades)
+                .extracting(trade -> trade.orderIds().contains(orders.get(0).id()), trade -> trade.orderIds().contains(orders.get(10).id()))
+                .containsExactly(tuple(true, false), tuple(false, true), tuple(false, false));
+        assertThat(orderBook.getOrder(orders.get(999).id())).isEqualTo(orders.get(999));
+        assertThat(orderBook.getAllOrders()).hasSize(997);
+        assertThat(orderBook.getAskLevels()).containsEntry(100.0, 97.0).containsEntry(109.0, 100.0);
+    }
+
+    @Test
+    void shouldReuseSlotsOfCancelledAndFilledOrders() {
+        SnapshotableOrderBook orderBook = new OffHeapOrderBook(1, 16);
+
+        //Given
+        for (int round = 0; round < 100; round++) {
+            List<OrderBook.Order> orders = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                OrderBook.Order order = orderManager.createOrder(BUY, LIMIT, 90.0 + i % 5, 1);
+                orders.add(order);
+                orderBook.addOrder(order);
+            }
+            //when - half of the orders are cancelled, the other half is filled
+            for (int i = 0; i < 25; i++) {
+                assertThat(orderBook.cancelOrder(orders.get(i).id())).isEqualTo(OrderBook.CancelStatus.CANCELED);
+            }
+            orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 90.0, 25));
+        }
+
+        //Then
+        assertThat(orderBook.restingOrderCount()).isZero();
+        assertThat(orderBook.getAllOrders()).isEmpty();
+        assertThat(orderBook.getBidLevels()).isEmpty();
+        assertThat(orderBook.lastTradeId()).isEqualTo(2_500);
+    }
+
+    @Test
+    void shouldKeepOrderFieldsOffHeap() {
+        OrderBook orderBook = new OffHeapOrderBook(0.01, 16);
+
+        //Given
+        OrderBook.Order order = new ImmutableOrder(Long.MAX_VALUE, SELL, LIMIT, 1_700_000_000_123_456_789L, 101.37, 7);
+        OrderBook.Order beforeEpoch = new ImmutableOrder(-5, BUY, LIMIT, Long.MIN_VALUE, 99.99, Integer.MAX_VALUE);
+
+        //when
+        orderBook.addOrder(order);
+        orderBook.addOrder(beforeEpoch);
+
+        //Then
+        assertThat(orderBook.getOrder(order.id())).isEqualTo(order);
+        assertThat(orderBook.getOrder(beforeEpoch.id())).isEqualTo(beforeEpoch);
+        assertThat(orderBook.getBidLevels()).containsOnly(entry(99.99, (double) Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,170 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.SnapshotableOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.AmendStatus.AMENDED;
+import static com.mfruhrmann.orderbooks.api.OrderBook.AmendStatus.NOT_EXISTS;
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class OrderBookAmendOrderTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final List<OrderBook.Trade> trades = new ArrayList<>();
+
+    public static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                        new BasicOrderBook(),
+                        new TickLadderOrderBook(1, 1024),
+                        new OffHeapOrderBook(1, 1024))
+                .map(Arguments::of);
+    }
+
+    public static Stream<Arguments> orderNodeBooks() {
+        return Stream.of(
+                        new BasicOrderBook(),
+                        new TickLadderOrderBook(1, 1024))
+                .map(Arguments::of);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldKeepQueuePositionWhenSizeIsReduced(OrderBook orderBook) {
+        orderBook.addTradeListener(trades::add);
+
+        //Given
+        OrderBook.Order sellOrder1 = orderManager.createOrder(SELL, LIMIT, 100.0, 5);
+        OrderBook.Order sellOrder2 = orderManager.createOrder(SELL, LIMIT, 100.0, 2);
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 3);
+        orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder2);
+
+        //when
+        OrderBook.AmendStatus amendStatus = orderBook.amendOrder(sellOrder1.id(), 3);
+        orderBook.addOrder(buyOrder);
+
+        //Then
+        assertThat(amendStatus).isEqualTo(AMENDED);
+        assertThat(trades)
+                .extracting(OrderBook.Trade::size, OrderBook.Trade::orderIds)
+                .containsExactly(tuple(3, Set.of(sellOrder1.id(), buyOrder.id())));
+        assertThat(orderBook.getOrder(sellOrder1.id())).isNull();
+        assertThat(orderBook.getAskLevels()).containsOnly(entry(100.0, 2.0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldMoveOrderToTheBackOfTheQueueWhenSizeIsIncreased(OrderBook orderBook) {
+        orderBook.addTradeListener(trades::add);
+
+        //Given
+        OrderBook.Order sellOrder1 = orderManager.createOrder(SELL, LIMIT, 100.0, 1);
+        OrderBook.Order sellOrder2 = orderManager.createOrder(SELL, LIMIT, 100.0, 2);
+        orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder2);
+
+        //when
+        orderBook.amendOrder(sellOrder1.id(), 4);
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 2));
+
+        //Then
+        assertThat(trades).hasSize(1);
+        assertThat(trades.get(0).orderIds()).contains(sellOrder2.id());
+        assertThat(orderBook.getOrder(sellOrder1.id()).size()).isEqualTo(4);
+        assertThat(orderBook.getTopOrderBook().askSize()).isEqualTo(4);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldMoveOrderToNewPriceLevel(OrderBook orderBook) {
+
+        //Given
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 99.0, 2);
+        orderBook.addOrder(buyOrder);
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 98.0, 1));
+
+        //when
+        OrderBook.AmendStatus amendStatus = orderBook.amendOrder(buyOrder.id(), 3, 97.0);
+
+        //Then
+        assertThat(amendStatus).isEqualTo(AMENDED);
+        assertThat(orderBook.getOrder(buyOrder.id()))
+                .extracting(OrderBook.Order::price, OrderBook.Order::size, OrderBook.Order::ts)
+                .containsExactly(97.0, 3, buyOrder.ts());
+        assertThat(orderBook.getBidLevels()).containsOnly(entry(98.0, 1.0), entry(97.0, 3.0));
+        assertThat(orderBook.getTopOrderBook().bid()).isEqualTo(98.0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldMatchOrderWhenNewPriceCrosses(OrderBook orderBook) {
+        orderBook.addTradeListener(trades::add);
+
+        //Given
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 99.0, 3);
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, LIMIT, 101.0, 2);
+        orderBook.addOrder(buyOrder);
+        orderBook.addOrder(sellOrder);
+
+        //when
+        orderBook.amendOrder(buyOrder.id(), 3, 101.0);
+
+        //Then - the remainder rests on the new level
+        assertThat(trades)
+                .extracting(OrderBook.Trade::price, OrderBook.Trade::size, OrderBook.Trade::orderIds)
+                .containsExactly(tuple(101.0, 2, Set.of(buyOrder.id(), sellOrder.id())));
+        assertThat(orderBook.getAskLevels()).isEmpty();
+        assertThat(orderBook.getBidLevels()).containsOnly(entry(101.0, 1.0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldCancelOrderAmendedToZeroAndReportUnknownOrders(OrderBook orderBook) {
+
+        //Given
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 99.0, 3);
+        orderBook.addOrder(buyOrder);
+
+        //when - then
+        assertThat(orderBook.amendOrder(buyOrder.id(), 0)).isEqualTo(AMENDED);
+        assertThat(orderBook.getAllOrders()).isEmpty();
+        assertThat(orderBook.getBidLevels()).isEmpty();
+        assertThat(orderBook.amendOrder(buyOrder.id(), 1)).isEqualTo(NOT_EXISTS);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderNodeBooks")
+    void shouldRestTheRemainderOfAnAmendedOrderInTheSameNode(SnapshotableOrderBook orderBook) {
+        List<OrderBook.Order> restingOrders = new ArrayList<>();
+
+        //Given
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 101.0, 2));
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 99.0, 5);
+        orderBook.addOrder(buyOrder);
+        orderBook.forEachRestingOrder(restingOrders::add);
+
+        //when - the buy order crosses the ask at its new price and rests the remainder
+        orderBook.amendOrder(buyOrder.id(), 5, 101.0);
+        orderBook.forEachRestingOrder(restingOrders::add);
+
+        //Then
+        assertThat(restingOrders).hasSize(3);
+        assertThat(restingOrders.get(2)).isSameAs(restingOrders.get(0));
+        assertThat(restingOrders.get(2).price()).isEqualTo(101.0);
+        assertThat(restingOrders.get(2).size()).isEqualTo(3);
+    }
+}
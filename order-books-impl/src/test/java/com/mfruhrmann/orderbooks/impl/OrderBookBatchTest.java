@@ -0,0 +1,90 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.CANCELED;
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.NOT_EXISTS;
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderBookBatchTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final List<OrderBook.Trade> trades = new ArrayList<>();
+
+    /**
+     * The list and deque baselines are left out of matching across levels, see {@link OrderBookTestAddOrderTest}.
+     */
+    public static Stream<Arguments> matchingOrderBooks() {
+        return Stream.of(
+                        new BasicOrderBook(),
+                        new TickLadderOrderBook(1, 1024),
+                        new OffHeapOrderBook(1, 1024))
+                .map(Arguments::of);
+    }
+
+    public static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                        new BasicOrderBook(),
+                        new BasicOrderBookArrayDeque(),
+                        new ListBasedOrderBook(1),
+                        new TickLadderOrderBook(1, 1024),
+                        new OffHeapOrderBook(1, 1024))
+                .map(Arguments::of);
+    }
+
+    @ParameterizedTest
+    @MethodSource("matchingOrderBooks")
+    void shouldAddBatchLikeSingleOrders(OrderBook orderBook) {
+        orderBook.addTradeListener(trades::add);
+
+        //Given - the last order of the batch trades against the first two
+        OrderBook.Order[] orders = {
+                orderManager.createOrder(SELL, LIMIT, 100.0, 1),
+                orderManager.createOrder(SELL, LIMIT, 101.0, 2),
+                orderManager.createOrder(BUY, LIMIT, 99.0, 4),
+                orderManager.createOrder(BUY, LIMIT, 101.0, 2),
+                null};
+        long[] orderIds = new long[orders.length];
+
+        //when
+        orderBook.addOrders(orders, 4, orderIds);
+
+        //Then
+        assertThat(orderIds).containsExactly(orders[0].id(), orders[1].id(), orders[2].id(), orders[3].id(), 0);
+        assertThat(trades).extracting(OrderBook.Trade::price).containsExactly(100.0, 101.0);
+        assertThat(orderBook.getTopOrderBook().ask()).isEqualTo(101.0);
+        assertThat(orderBook.getTopOrderBook().askSize()).isEqualTo(1);
+        assertThat(orderBook.getTopOrderBook().bid()).isEqualTo(99.0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldCancelBatch(OrderBook orderBook) {
+
+        //Given
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 1);
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, LIMIT, 101.0, 1);
+        orderBook.addOrder(buyOrder);
+        orderBook.addOrder(sellOrder);
+        OrderBook.CancelStatus[] cancelStatuses = new OrderBook.CancelStatus[3];
+
+        //when
+        orderBook.cancelOrders(new long[]{buyOrder.id(), -1, buyOrder.id()}, 3, cancelStatuses);
+
+        //Then
+        assertThat(cancelStatuses).containsExactly(CANCELED, NOT_EXISTS, NOT_EXISTS);
+        assertThat(orderBook.getAllOrders()).containsOnly(sellOrder);
+        assertThat(orderBook.getTopOrderBook().bid()).isNull();
+    }
+}
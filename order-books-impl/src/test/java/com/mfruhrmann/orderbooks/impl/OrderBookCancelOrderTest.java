@@ -0,0 +1,161 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.CANCELED;
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.NOT_EXISTS;
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class OrderBookCancelOrderTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final List<OrderBook.Trade> trades = new ArrayList<>();
+
+    public static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                        new BasicOrderBook(),
+                        new BasicOrderBookArrayDeque(),
+                        new ListBasedOrderBook(1),
+                        new TickLadderOrderBook(1, 1024),
+                        new OffHeapOrderBook(1, 1024))
+                .map(Arguments::of);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldRemoveCanceledOrderAndItsLevel(OrderBook orderBook) {
+
+        //Given
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 1);
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, LIMIT, 101.0, 1);
+        orderBook.addOrder(buyOrder);
+        orderBook.addOrder(sellOrder);
+
+        //when
+        OrderBook.CancelStatus cancelStatus = orderBook.cancelOrder(buyOrder.id());
+
+        //Then
+        assertThat(cancelStatus).isEqualTo(CANCELED);
+        assertThat(orderBook.getOrder(buyOrder.id())).isNull();
+        assertThat(orderBook.getAllOrders()).containsOnly(sellOrder);
+        assertThat(orderBook.getBidLevels()).isEmpty();
+        assertThat(orderBook.getTopOrderBook().bid()).isNull();
+        assertThat(orderBook.getTopOrderBook().ask()).isEqualTo(101.0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldReportOrdersThatAreNotInTheBook(OrderBook orderBook) {
+
+        //Given
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 1);
+        orderBook.addOrder(buyOrder);
+        orderBook.cancelOrder(buyOrder.id());
+
+        //when - then
+        assertThat(orderBook.cancelOrder(buyOrder.id())).isEqualTo(NOT_EXISTS);
+        assertThat(orderBook.cancelOrder(-1)).isEqualTo(NOT_EXISTS);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldKeepTimePriorityOfRemainingOrdersAfterCancel(OrderBook orderBook) {
+        orderBook.addTradeListener(trades::add);
+
+        //Given
+        OrderBook.Order sellOrder1 = orderManager.createOrder(SELL, LIMIT, 100.0, 1);
+        OrderBook.Order sellOrder2 = orderManager.createOrder(SELL, LIMIT, 100.0, 2);
+        OrderBook.Order sellOrder3 = orderManager.createOrder(SELL, LIMIT, 100.0, 4);
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 5);
+        orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder2);
+        orderBook.addOrder(sellOrder3);
+
+        //when
+        orderBook.cancelOrder(sellOrder2.id());
+        orderBook.addOrder(buyOrder);
+
+        //Then
+        assertThat(trades)
+                .extracting(OrderBook.Trade::size, OrderBook.Trade::orderIds)
+                .containsExactly(
+                        tuple(1, Set.of(sellOrder1.id(), buyOrder.id())),
+                        tuple(4, Set.of(sellOrder3.id(), buyOrder.id())));
+        assertThat(orderBook.getAllOrders()).isEmpty();
+        assertThat(orderBook.getAskLevels()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldCancelPartiallyFilledOrder(OrderBook orderBook) {
+
+        //Given
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, LIMIT, 100.0, 5);
+        orderBook.addOrder(sellOrder);
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 2));
+
+        //when
+        OrderBook.CancelStatus cancelStatus = orderBook.cancelOrder(sellOrder.id());
+
+        //Then
+        assertThat(cancelStatus).isEqualTo(CANCELED);
+        assertThat(orderBook.getAllOrders()).isEmpty();
+        assertThat(orderBook.getTopOrderBook().ask()).isNull();
+        assertThat(orderBook.getTopOrderBook().askSize()).isEqualTo(0);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldCancelOrderPartiallyFilledByAnOrderWithAHigherLimit(OrderBook orderBook) {
+
+        //Given
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, LIMIT, 100.0, 10);
+        orderBook.addOrder(sellOrder);
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 101.0, 4));
+
+        //when
+        OrderBook.CancelStatus cancelStatus = orderBook.cancelOrder(sellOrder.id());
+
+        //Then
+        assertThat(cancelStatus).isEqualTo(CANCELED);
+        assertThat(orderBook.getAllOrders()).isEmpty();
+        assertThat(orderBook.getAskLevels()).isEmpty();
+        assertThat(orderBook.getTopOrderBook().ask()).isNull();
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldKeepLevelVolumeUpToDateAfterFillsAndCancels(OrderBook orderBook) {
+
+        //Given
+        OrderBook.Order sellOrder1 = orderManager.createOrder(SELL, LIMIT, 100.0, 5);
+        OrderBook.Order sellOrder2 = orderManager.createOrder(SELL, LIMIT, 100.0, 3);
+        OrderBook.Order sellOrder3 = orderManager.createOrder(SELL, LIMIT, 100.0, 2);
+        orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder2);
+        orderBook.addOrder(sellOrder3);
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 6));
+        orderBook.cancelOrder(sellOrder3.id());
+
+        //Then
+        assertThat(orderBook.getTopOrderBook().ask()).isEqualTo(100.0);
+        assertThat(orderBook.getTopOrderBook().askSize()).isEqualTo(2);
+        assertThat(orderBook.getAskLevels()).containsOnlyKeys(100.0);
+        assertThat(orderBook.getAskLevels().get(100.0)).isEqualTo(2);
+    }
+}
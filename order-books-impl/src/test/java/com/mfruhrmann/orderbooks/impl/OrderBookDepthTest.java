@@ -0,0 +1,110 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderBookDepthTest {
+
+    private final OrderManager orderManager = new OrderManager();
+
+    /**
+     * The small ladder keeps most of the levels in its overflow.
+     */
+    public static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                        new BasicOrderBook(),
+                        new BasicOrderBookArrayDeque(),
+                        new TickLadderOrderBook(1, 1024),
+                        new TickLadderOrderBook(1, 2),
+                        new OffHeapOrderBook(1, 16))
+                .map(Arguments::of);
+    }
+
+    private void withLevels(OrderBook orderBook) {
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 99.0, 1));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 97.0, 2));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 99.0, 3));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 104.0, 5));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 101.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 102.0, 2));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 107.0, 4));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldReportNumberOfLevelsOfTheDeeperSide(OrderBook orderBook) {
+        assertThat(orderBook.getDepth()).isEqualTo(0);
+
+        //when
+        withLevels(orderBook);
+
+        //Then
+        assertThat(orderBook.getDepth()).isEqualTo(4);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldCopyTopLevelsInPriceOrder(OrderBook orderBook) {
+        double[] prices = new double[3];
+        long[] quantities = new long[3];
+
+        //Given
+        withLevels(orderBook);
+
+        //when - then
+        assertThat(orderBook.snapshotTopLevels(3, SELL, prices, quantities)).isEqualTo(3);
+        assertThat(prices).containsExactly(101.0, 102.0, 104.0);
+        assertThat(quantities).containsExactly(1, 2, 5);
+
+        assertThat(orderBook.snapshotTopLevels(3, BUY, prices, quantities)).isEqualTo(2);
+        assertThat(prices).startsWith(99.0, 97.0);
+        assertThat(quantities).startsWith(4, 2);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldCopyNothingFromEmptySide(OrderBook orderBook) {
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 101.0, 1));
+
+        //when - then
+        assertThat(orderBook.snapshotTopLevels(10, BUY, new double[10], new long[10])).isEqualTo(0);
+        assertThat(orderBook.snapshotTopLevels(0, SELL, new double[0], new long[0])).isEqualTo(0);
+    }
+
+    /**
+     * The list based book keeps a level for every price step below the top, the steps without orders are skipped.
+     */
+    @Test
+    void shouldCopyTopLevelsOfListBasedOrderBookSkippingEmptySteps() {
+        OrderBook orderBook = new ListBasedOrderBook(1);
+        double[] prices = new double[3];
+        long[] quantities = new long[3];
+
+        //Given
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 99.0, 1));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 96.0, 2));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 99.0, 3));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 95.0, 6));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 101.0, 5));
+
+        //when - then
+        assertThat(orderBook.snapshotTopLevels(3, BUY, prices, quantities)).isEqualTo(3);
+        assertThat(prices).containsExactly(99.0, 96.0, 95.0);
+        assertThat(quantities).containsExactly(4, 2, 6);
+
+        assertThat(orderBook.snapshotTopLevels(3, SELL, prices, quantities)).isEqualTo(1);
+        assertThat(prices).startsWith(101.0);
+        assertThat(quantities).startsWith(5);
+    }
+}
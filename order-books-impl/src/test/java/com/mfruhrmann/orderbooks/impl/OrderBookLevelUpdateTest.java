@@ -0,0 +1,105 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class OrderBookLevelUpdateTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final List<Tuple> levelUpdates = new ArrayList<>();
+
+    public static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                        new BasicOrderBook(),
+                        new BasicOrderBookArrayDeque(),
+                        new TickLadderOrderBook(1, 1024),
+                        new OffHeapOrderBook(1, 1024))
+                .map(Arguments::of);
+    }
+
+    /**
+     * The list based book only copes with flows that stay at the top of the book.
+     */
+    public static Stream<Arguments> allOrderBooks() {
+        return Stream.concat(orderBooks(), Stream.of(Arguments.of(new ListBasedOrderBook(1))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldPublishLevelUpdatesOfAddMatchAndCancel(OrderBook orderBook) {
+        orderBook.addLevelUpdateListener((sequence, side, price, quantity) -> levelUpdates.add(tuple(sequence, side, price, quantity)));
+
+        //Given
+        OrderBook.Order sellOrder1 = orderManager.createOrder(SELL, LIMIT, 100.0, 2);
+        OrderBook.Order sellOrder2 = orderManager.createOrder(SELL, LIMIT, 101.0, 3);
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 99.0, 1);
+
+        //when
+        orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder2);
+        orderBook.addOrder(buyOrder);
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 101.0, 4));
+        orderBook.cancelOrder(buyOrder.id());
+
+        //Then - the aggressor sweeps 100, takes 2 from 101 and nothing of it rests
+        assertThat(levelUpdates).containsExactly(
+                tuple(1L, SELL, 100.0, 2L),
+                tuple(2L, SELL, 101.0, 3L),
+                tuple(3L, BUY, 99.0, 1L),
+                tuple(4L, SELL, 100.0, 0L),
+                tuple(5L, SELL, 101.0, 1L),
+                tuple(6L, BUY, 99.0, 0L));
+    }
+
+    @ParameterizedTest
+    @MethodSource("allOrderBooks")
+    void shouldPublishRestingRemainderOfAggressor(OrderBook orderBook) {
+        orderBook.addLevelUpdateListener((sequence, side, price, quantity) -> levelUpdates.add(tuple(sequence, side, price, quantity)));
+
+        //Given
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 2));
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 5));
+
+        //Then
+        assertThat(levelUpdates).containsExactly(
+                tuple(1L, SELL, 100.0, 2L),
+                tuple(2L, SELL, 100.0, 0L),
+                tuple(3L, BUY, 100.0, 3L));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldPublishEmptyLevelWhenPartiallyFilledOrderIsCancelled(OrderBook orderBook) {
+        orderBook.addLevelUpdateListener((sequence, side, price, quantity) -> levelUpdates.add(tuple(sequence, side, price, quantity)));
+
+        //Given
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, LIMIT, 100.0, 10);
+        orderBook.addOrder(sellOrder);
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 101.0, 4));
+        orderBook.cancelOrder(sellOrder.id());
+
+        //Then
+        assertThat(levelUpdates).containsExactly(
+                tuple(1L, SELL, 100.0, 10L),
+                tuple(2L, SELL, 100.0, 6L),
+                tuple(3L, SELL, 100.0, 0L));
+    }
+}
@@ -0,0 +1,149 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.FILL_OR_KILL;
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.IMMEDIATE_OR_CANCEL;
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.MARKET;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class OrderBookOrderTypesTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final List<OrderBook.Trade> trades = new ArrayList<>();
+
+    /**
+     * The small ladder parks the 103 level in the overflow, so the fill or kill check also has to look there.
+     */
+    public static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                        new BasicOrderBook(),
+                        new TickLadderOrderBook(1, 1024),
+                        new TickLadderOrderBook(1, 2),
+                        new OffHeapOrderBook(1, 16))
+                .map(Arguments::of);
+    }
+
+    public static Stream<Arguments> limitOnlyOrderBooks() {
+        return Stream.of(MARKET, IMMEDIATE_OR_CANCEL, FILL_OR_KILL)
+                .flatMap(orderType -> Stream.of(
+                        Arguments.of(new BasicOrderBookArrayDeque(), orderType),
+                        Arguments.of(new ListBasedOrderBook(1), orderType)));
+    }
+
+    private void withAsks(OrderBook orderBook) {
+        orderBook.addTradeListener(trades::add);
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 2));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 101.0, 3));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 103.0, 4));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldSweepAllLevelsWithMarketOrderAndDropTheRemainder(OrderBook orderBook) {
+
+        //Given
+        withAsks(orderBook);
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, MARKET, 0.0, 12);
+
+        //when
+        orderBook.addOrder(buyOrder);
+
+        //Then
+        assertThat(trades)
+                .extracting(OrderBook.Trade::price, OrderBook.Trade::size)
+                .containsExactly(tuple(100.0, 2), tuple(100.0, 1), tuple(101.0, 3), tuple(103.0, 4));
+        assertThat(orderBook.getAllOrders()).isEmpty();
+        assertThat(orderBook.getTopOrderBook().bid()).isNull();
+        assertThat(orderBook.getTopOrderBook().ask()).isNull();
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldStopImmediateOrCancelOrderAtItsLimitAndNotRestTheRemainder(OrderBook orderBook) {
+
+        //Given
+        withAsks(orderBook);
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, IMMEDIATE_OR_CANCEL, 101.0, 8);
+
+        //when
+        orderBook.addOrder(buyOrder);
+
+        //Then
+        assertThat(trades).extracting(OrderBook.Trade::size).containsExactly(2, 1, 3);
+        assertThat(orderBook.getOrder(buyOrder.id())).isNull();
+        assertThat(orderBook.getBidLevels()).isEmpty();
+        assertThat(orderBook.getAskLevels()).containsOnly(entry(103.0, 4.0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldRejectFillOrKillOrderWithoutTouchingTheBook(OrderBook orderBook) {
+
+        //Given
+        withAsks(orderBook);
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, FILL_OR_KILL, 101.0, 7);
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, FILL_OR_KILL, 99.0, 1);
+
+        //when
+        orderBook.addOrder(buyOrder);
+        orderBook.addOrder(sellOrder);
+
+        //Then
+        assertThat(trades).isEmpty();
+        assertThat(orderBook.getAllOrders()).hasSize(4);
+        assertThat(orderBook.getAskLevels()).containsOnly(entry(100.0, 3.0), entry(101.0, 3.0), entry(103.0, 4.0));
+        assertThat(orderBook.getBidLevels()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldFillFillOrKillOrderAcrossLevels(OrderBook orderBook) {
+
+        //Given
+        withAsks(orderBook);
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, FILL_OR_KILL, 103.0, 8);
+
+        //when
+        orderBook.addOrder(buyOrder);
+
+        //Then
+        assertThat(trades)
+                .extracting(OrderBook.Trade::price, OrderBook.Trade::size)
+                .containsExactly(tuple(100.0, 2), tuple(100.0, 1), tuple(101.0, 3), tuple(103.0, 2));
+        assertThat(orderBook.getOrder(buyOrder.id())).isNull();
+        assertThat(orderBook.getAskLevels()).containsOnly(entry(103.0, 2.0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("limitOnlyOrderBooks")
+    void shouldRejectOtherThanLimitOrdersInBaselines(OrderBook orderBook, OrderBook.OrderType orderType) {
+
+        //Given
+        orderBook.addTradeListener(trades::add);
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 2));
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, orderType, 100.0, 1);
+
+        //when - then
+        assertThatThrownBy(() -> orderBook.addOrder(buyOrder))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(orderType.name());
+        assertThat(trades).isEmpty();
+        assertThat(orderBook.getAskLevels()).containsExactly(entry(100.0, 2.0));
+    }
+}
@@ -0,0 +1,65 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class OrderBookPriceTicksTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final List<OrderBook.Trade> trades = new ArrayList<>();
+
+    public static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                        new BasicOrderBook(0.01),
+                        new BasicOrderBook(),
+                        new TickLadderOrderBook(0.01, 1024),
+                        new OffHeapOrderBook(0.01, 1024))
+                .map(Arguments::of);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldMatchPricesThatDifferOnlyByFloatingPointError(OrderBook orderBook) {
+        orderBook.addTradeListener(trades::add);
+
+        //Given - 0.1 + 0.2 is 0.30000000000000004
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 0.3, 2));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 0.3, 1));
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 0.1 + 0.2, 2));
+
+        //Then
+        assertThat(trades).extracting(OrderBook.Trade::size).containsExactly(2);
+        assertThat(orderBook.getAskLevels()).containsOnly(entry(0.3, 1.0));
+        assertThat(orderBook.getBidLevels()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldHandOutDecimalPricesOfTheLevels(OrderBook orderBook) {
+
+        //Given
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 99.99, 1));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 0.07, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.03, 1));
+
+        //when - then
+        assertThat(orderBook.getBidLevels()).containsOnlyKeys(99.99, 0.07);
+        assertThat(orderBook.getTopOrderBook().bid()).isEqualTo(99.99);
+        assertThat(orderBook.getTopOrderBook().ask()).isEqualTo(100.03);
+    }
+}
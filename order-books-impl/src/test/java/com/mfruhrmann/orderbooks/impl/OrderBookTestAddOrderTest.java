@@ -27,7 +27,9 @@ public class OrderBookTestAddOrderTest {
         return Stream.of(
 //                        new BasicOrderBook(),
 //                        new BasicOrderBookArrayDeque(),
-                        new ListBasedOrderBook(1))
+                        new ListBasedOrderBook(1),
+                        new TickLadderOrderBook(1, 1024),
+                        new OffHeapOrderBook(1, 1024))
                 .map(Arguments::of);
     }
 
@@ -40,12 +42,12 @@ public class OrderBookTestAddOrderTest {
         OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 1);
 
         //when
-        String orderId = orderBook.addOrder(buyOrder);
+        long orderId = orderBook.addOrder(buyOrder);
 
         //Then
         assertThat(orderBook.getAllOrders()).hasSize(1);
         assertThat(orderBook.getTopOrderBook().bid()).isEqualTo(100.0);
-        assertThat(orderId).isNotNull();
+        assertThat(orderId).isEqualTo(buyOrder.id());
         assertThat(orderBook.getOrder(orderId)).isEqualTo(buyOrder);
     }
 
@@ -254,6 +256,33 @@ public class OrderBookTestAddOrderTest {
                 );
     }
 
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldPublishTradeEventsWithAggressorAndPassiveOrder(OrderBook orderBook) {
+        List<String> tradeEvents = new ArrayList<>();
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) ->
+                tradeEvents.add(tradeId + ":" + aggressorOrderId + ":" + passiveOrderId + ":" + price + ":" + size));
+        orderBook.addTradeListener(tradeRecorder);
+
+        //Given
+        OrderBook.Order buyOrder1 = orderManager.createOrder(BUY, LIMIT, 102.0, 1);
+        OrderBook.Order buyOrder2 = orderManager.createOrder(BUY, LIMIT, 101.0, 2);
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, LIMIT, 101.0, 3);
+
+        //when
+        orderBook.addOrder(buyOrder1);
+        orderBook.addOrder(buyOrder2);
+        orderBook.addOrder(sellOrder);
+
+        //Then
+        assertThat(tradeEvents).containsExactly(
+                "1:" + sellOrder.id() + ":" + buyOrder1.id() + ":102.0:1",
+                "2:" + sellOrder.id() + ":" + buyOrder2.id() + ":101.0:2");
+        assertThat(tradeRecorder.getTrades())
+                .extracting(OrderBook.Trade::id)
+                .containsExactly("1", "2");
+    }
+
     static class TradeRecorder implements OrderBook.OrderBookTradeListener {
         private final List<OrderBook.Trade> trades = new ArrayList<>();
 
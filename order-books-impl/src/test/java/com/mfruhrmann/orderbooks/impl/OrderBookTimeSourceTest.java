@@ -0,0 +1,109 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.time.TimeSource;
+import com.mfruhrmann.orderbooks.impl.time.SystemEpochNanosTimeSource;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class OrderBookTimeSourceTest {
+
+    private static final AtomicLong TIME = new AtomicLong(1_000);
+    private static final TimeSource TIME_SOURCE = TIME::incrementAndGet;
+
+    private final OrderManager orderManager = new OrderManager(() -> 1_700_000_000_000_000_000L);
+
+    public static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                Arguments.of(new BasicOrderBook(1, TIME_SOURCE)),
+                Arguments.of(new BasicOrderBookArrayDeque(TIME_SOURCE)),
+                Arguments.of(new ListBasedOrderBook(1, TIME_SOURCE)),
+                Arguments.of(new TickLadderOrderBook(1, 64, 16, TIME_SOURCE)),
+                Arguments.of(new OffHeapOrderBook(1, 16, TIME_SOURCE))
+        );
+    }
+
+    public static Stream<Arguments> defaultOrderBooks() {
+        return Stream.of(
+                Arguments.of(new BasicOrderBook()),
+                Arguments.of(new BasicOrderBookArrayDeque()),
+                Arguments.of(new ListBasedOrderBook(1)),
+                Arguments.of(new TickLadderOrderBook(1, 64)),
+                Arguments.of(new OffHeapOrderBook(1, 16))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldStampTradesWithTheTimeSource(OrderBook orderBook) {
+        List<Long> timestamps = new ArrayList<>();
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> timestamps.add(ts));
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, LIMIT, 100.0, 2);
+
+        //Given
+        orderBook.addOrder(sellOrder);
+
+        //when
+        long before = TIME.get();
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+        long after = TIME.get();
+
+        //Then
+        assertThat(timestamps).hasSize(1);
+        assertThat(timestamps.get(0)).isGreaterThan(before).isLessThanOrEqualTo(after);
+        assertThat(orderBook.getOrder(sellOrder.id()).ts()).isEqualTo(1_700_000_000_000_000_000L);
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldStampAllTradesOfABatchWithOneTime(OrderBook orderBook) {
+        List<Long> timestamps = new ArrayList<>();
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> timestamps.add(ts));
+
+        //Given
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 2));
+        OrderBook.Order[] buyOrders = {
+                orderManager.createOrder(BUY, LIMIT, 100.0, 2),
+                orderManager.createOrder(BUY, LIMIT, 100.0, 1)};
+
+        //when
+        orderBook.addOrders(buyOrders, buyOrders.length, new long[buyOrders.length]);
+
+        //Then
+        assertThat(timestamps).hasSize(3);
+        assertThat(timestamps).containsOnly(timestamps.get(0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("defaultOrderBooks")
+    void shouldStampTradesInEpochNanosByDefault(OrderBook orderBook) {
+        List<Long> timestamps = new ArrayList<>();
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> timestamps.add(ts));
+        OrderManager orderManager = new OrderManager();
+
+        //Given
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 2));
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+
+        //Then - the same unit as the timestamps of the orders
+        assertThat(timestamps).hasSize(1);
+        assertThat(timestamps.get(0)).isCloseTo(SystemEpochNanosTimeSource.INSTANCE.getCurrentTime(), within(TimeUnit.SECONDS.toNanos(10)));
+    }
+}
@@ -0,0 +1,140 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class TickLadderOrderBookTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final List<OrderBook.Trade> trades = new ArrayList<>();
+
+    @Test
+    void shouldKeepLevelsFarFromTopOfTheBookOutsideOfTheLadder() {
+        OrderBook orderBook = new TickLadderOrderBook(1, 4);
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 110.0, 2));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 103.0, 3));
+
+        //Then
+        assertThat(orderBook.getTopOrderBook().ask()).isEqualTo(100.0);
+        assertThat(orderBook.getAskLevels()).containsOnly(entry(100.0, 1.0), entry(103.0, 3.0), entry(110.0, 2.0));
+    }
+
+    @Test
+    void shouldRecentreWhenBetterPriceArrives() {
+        OrderBook orderBook = new TickLadderOrderBook(1, 4);
+
+        //Given
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 98.0, 2));
+
+        //when - both existing levels end up more than 4 ticks away from the new top
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 105.0, 3));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 102.0, 4));
+
+        //Then
+        assertThat(orderBook.getTopOrderBook().bid()).isEqualTo(105.0);
+        assertThat(orderBook.getTopOrderBook().bidSize()).isEqualTo(3);
+        assertThat(orderBook.getBidLevels()).containsOnly(entry(105.0, 3.0), entry(102.0, 4.0), entry(100.0, 1.0), entry(98.0, 2.0));
+    }
+
+    @Test
+    void shouldMatchThroughLevelsPulledBackFromOverflow() {
+        OrderBook orderBook = new TickLadderOrderBook(1, 4);
+        orderBook.addTradeListener(trades::add);
+
+        //Given
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 102.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 107.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 120.0, 1));
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 110.0, 5));
+
+        //Then
+        assertThat(trades)
+                .extracting(OrderBook.Trade::price, OrderBook.Trade::size)
+                .containsExactly(tuple(100.0, 1), tuple(102.0, 1), tuple(107.0, 1));
+        assertThat(orderBook.getTopOrderBook().bid()).isEqualTo(110.0);
+        assertThat(orderBook.getTopOrderBook().bidSize()).isEqualTo(2);
+        assertThat(orderBook.getTopOrderBook().ask()).isEqualTo(120.0);
+        assertThat(orderBook.getAllOrders()).hasSize(2);
+    }
+
+    @Test
+    void shouldKeepPartiallyFilledOrderAtTheFrontOfTheLevel() {
+        OrderBook orderBook = new TickLadderOrderBook(1, 4);
+        orderBook.addTradeListener(trades::add);
+
+        //Given
+        OrderBook.Order first = orderManager.createOrder(SELL, LIMIT, 100.0, 5);
+        OrderBook.Order second = orderManager.createOrder(SELL, LIMIT, 100.0, 5);
+        orderBook.addOrder(first);
+        orderBook.addOrder(second);
+
+        //when
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 3));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 3));
+
+        //Then
+        assertThat(trades)
+                .extracting(trade -> trade.orderIds().contains(first.id()), OrderBook.Trade::size)
+                .containsExactly(tuple(true, 3), tuple(true, 2), tuple(false, 1));
+        assertThat(orderBook.getOrder(first.id())).isNull();
+        assertThat(orderBook.getOrder(second.id()).size()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldMoveTopOfBookSequenceOnlyWhenTheTopChanges() {
+        OrderBook orderBook = new TickLadderOrderBook(1, 4);
+
+        //Given
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 1);
+        orderBook.addOrder(buyOrder);
+        long sequence = orderBook.getTopOrderBook().sequence();
+
+        //when - a level behind the top does not change it, cancelling the best bid does
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 99.0, 1));
+        long sequenceAfterDeeperOrder = orderBook.getTopOrderBook().sequence();
+        orderBook.cancelOrder(buyOrder.id());
+
+        //Then
+        assertThat(sequence).isEqualTo(1);
+        assertThat(sequenceAfterDeeperOrder).isEqualTo(sequence);
+        assertThat(orderBook.getTopOrderBook()).isEqualTo(new OrderBook.TopOrderBook(99.0, 1, null, 0, 2));
+    }
+
+    @Test
+    void shouldStampAllTradesOfBatchWithOneTimestamp() {
+        OrderBook orderBook = new TickLadderOrderBook(1, 4);
+        List<Long> tradeTimestamps = new ArrayList<>();
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> tradeTimestamps.add(ts));
+
+        //Given
+        OrderBook.Order[] orders = new OrderBook.Order[1_000];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = orderManager.createOrder(i % 2 == 0 ? SELL : BUY, LIMIT, 100.0, 1);
+        }
+
+        //when
+        orderBook.addOrders(orders, orders.length, new long[orders.length]);
+
+        //Then
+        assertThat(tradeTimestamps).hasSize(500);
+        assertThat(tradeTimestamps).containsOnly(tradeTimestamps.get(0));
+    }
+}
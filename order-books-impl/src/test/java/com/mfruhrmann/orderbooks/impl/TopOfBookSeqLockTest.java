@@ -0,0 +1,58 @@
+package com.mfruhrmann.orderbooks.impl;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TopOfBookSeqLockTest {
+
+    private final TopOfBookSeqLock topOfBook = new TopOfBookSeqLock();
+
+    @Test
+    void shouldReadEmptyTopOfBookBeforeFirstPublish() {
+        assertThat(topOfBook.read()).isEqualTo(new OrderBook.TopOrderBook(null, 0, null, 0, 0));
+    }
+
+    @Test
+    void shouldNeverReadTornSnapshotWhileWriterPublishes() throws Exception {
+        int updates = 1_000_000;
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        //when - every published snapshot keeps bidSize == bid, ask == bid + 1 and askSize == 2 * bid
+        Future<?> writer = executorService.submit(() -> {
+            for (int i = 1; i <= updates; i++) {
+                topOfBook.publish(i, i, i + 1, 2L * i);
+            }
+        });
+        Future<Long> reader = executorService.submit(() -> {
+            long reads = 0;
+            long lastSequence = 0;
+            OrderBook.TopOrderBook top;
+            do {
+                top = topOfBook.read();
+                assertThat(top.sequence()).isGreaterThanOrEqualTo(lastSequence);
+                if (top.bid() != null) {
+                    assertThat(top.bidSize()).isEqualTo(top.bid());
+                    assertThat(top.ask()).isEqualTo(top.bid() + 1);
+                    assertThat(top.askSize()).isEqualTo(2 * top.bid());
+                    assertThat(top.sequence()).isEqualTo(top.bid().longValue());
+                }
+                lastSequence = top.sequence();
+                reads++;
+            } while (top.sequence() < updates);
+            return reads;
+        });
+        writer.get();
+        long reads = reader.get();
+        executorService.shutdown();
+
+        //Then
+        assertThat(reads).isPositive();
+        assertThat(topOfBook.read().sequence()).isEqualTo(updates);
+    }
+}
@@ -0,0 +1,62 @@
+package com.mfruhrmann.orderbooks.impl.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongObjectHashMapTest {
+
+    @Test
+    void shouldPutGetAndRemoveValues() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+
+        //when
+        map.put(1, "one");
+        map.put(0, "zero");
+        map.put(-5, "minus five");
+        String previous = map.put(1, "uno");
+
+        //Then
+        assertThat(previous).isEqualTo("one");
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get(1)).isEqualTo("uno");
+        assertThat(map.get(0)).isEqualTo("zero");
+        assertThat(map.get(-5)).isEqualTo("minus five");
+        assertThat(map.get(2)).isNull();
+
+        assertThat(map.remove(0)).isEqualTo("zero");
+        assertThat(map.remove(0)).isNull();
+        assertThat(map.get(0)).isNull();
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomPutsAndRemovals() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(16);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        //when - small key range forces long probe chains, growth and shifting back on removal
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else {
+                assertThat(map.put(key, (long) i)).isEqualTo(expected.put(key, (long) i));
+            }
+        }
+
+        //Then
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+        List<Long> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        assertThat(values).containsExactlyInAnyOrderElementsOf(expected.values());
+    }
+}
@@ -0,0 +1,69 @@
+package com.mfruhrmann.orderbooks.impl.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongObjectSortedMapTest {
+
+    @Test
+    void shouldKeepEntriesInMapOrder() {
+        LongObjectSortedMap<String> asks = new LongObjectSortedMap<>(false);
+        LongObjectSortedMap<String> bids = new LongObjectSortedMap<>(true);
+
+        //when
+        for (long key : new long[]{101, 99, 105, 100}) {
+            asks.put(key, "ask " + key);
+            bids.put(key, "bid " + key);
+        }
+        asks.removeAt(0);
+        bids.remove(100);
+
+        //Then
+        assertThat(asks.size()).isEqualTo(3);
+        assertThat(new long[]{asks.keyAt(0), asks.keyAt(1), asks.keyAt(2)}).containsExactly(100, 101, 105);
+        assertThat(asks.valueAt(0)).isEqualTo("ask 100");
+        assertThat(asks.get(99)).isNull();
+        assertThat(new long[]{bids.keyAt(0), bids.keyAt(1), bids.keyAt(2)}).containsExactly(105, 101, 99);
+        List<String> values = new ArrayList<>();
+        bids.forEachValue(values::add);
+        assertThat(values).containsExactly("bid 105", "bid 101", "bid 99");
+    }
+
+    @Test
+    void shouldBehaveLikeTreeMapUnderRandomPutsAndRemovals() {
+        LongObjectSortedMap<Long> map = new LongObjectSortedMap<>(true, 4);
+        TreeMap<Long, Long> expected = new TreeMap<>(Comparator.reverseOrder());
+        Random random = new Random(42);
+
+        //when - removing the first entry is mixed in the same way a book removes its best level
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(2_000) - 1_000;
+            int action = random.nextInt(4);
+            if (action == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            } else if (action == 1 && !expected.isEmpty()) {
+                assertThat(map.keyAt(0)).isEqualTo(expected.firstKey());
+                map.removeAt(0);
+                expected.pollFirstEntry();
+            } else {
+                assertThat(map.put(key, (long) i)).isEqualTo(expected.put(key, (long) i));
+            }
+        }
+
+        //Then
+        assertThat(map.size()).isEqualTo(expected.size());
+        int rank = 0;
+        for (var entry : expected.entrySet()) {
+            assertThat(map.keyAt(rank)).isEqualTo(entry.getKey());
+            assertThat(map.valueAt(rank++)).isEqualTo(entry.getValue());
+            assertThat(map.get(entry.getKey())).isEqualTo(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.mfruhrmann.orderbooks.impl.time;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class CachedClockTimeSourceTest {
+
+    @Test
+    void shouldFollowTheClockOncePerTick() throws Exception {
+        AtomicLong clock = new AtomicLong(100);
+
+        //Given
+        try (CachedClockTimeSource timeSource = new CachedClockTimeSource(clock::get, 1, TimeUnit.MILLISECONDS)) {
+            assertThat(timeSource.getCurrentTime()).isEqualTo(100);
+
+            //when
+            clock.set(200);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (timeSource.getCurrentTime() != 200 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+
+            //Then
+            assertThat(timeSource.getCurrentTime()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void shouldTickEpochNanosByDefault() throws Exception {
+        //when
+        try (CachedClockTimeSource timeSource = new CachedClockTimeSource(100, TimeUnit.MICROSECONDS)) {
+
+            //Then
+            assertThat(timeSource.getCurrentTime())
+                    .isCloseTo(SystemEpochNanosTimeSource.INSTANCE.getCurrentTime(), within(TimeUnit.SECONDS.toNanos(1)));
+        }
+    }
+}
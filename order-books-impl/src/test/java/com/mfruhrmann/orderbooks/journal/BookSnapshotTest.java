@@ -0,0 +1,154 @@
+package com.mfruhrmann.orderbooks.journal;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.api.SnapshotableOrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class BookSnapshotTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final List<OrderBook.Trade> trades = new ArrayList<>();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRestoreQueuesAndTradeIdFromSnapshotFile() throws Exception {
+        SnapshotableOrderBook orderBook = new TickLadderOrderBook(1, 4);
+
+        //Given - two orders queued on one level, one level far outside of the ladder and a trade
+        OrderBook.Order first = orderManager.createOrder(SELL, LIMIT, 100.0, 2);
+        OrderBook.Order second = orderManager.createOrder(SELL, LIMIT, 100.0, 3);
+        orderBook.addOrder(first);
+        orderBook.addOrder(second);
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 120.0, 1));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 98.0, 4));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+        Path file = tempDir.resolve("book.snapshot");
+
+        //when
+        BookSnapshot.capture(orderBook, 42).writeTo(file);
+        BookSnapshot snapshot = BookSnapshot.readFrom(file);
+        SnapshotableOrderBook restoredOrderBook = new BasicOrderBook();
+        snapshot.restore(restoredOrderBook);
+        restoredOrderBook.addTradeListener(trades::add);
+        restoredOrderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 2));
+
+        //Then - the partially filled first order keeps its priority
+        assertThat(snapshot.journalPosition()).isEqualTo(42);
+        assertThat(snapshot.orderCount()).isEqualTo(4);
+        assertThat(trades)
+                .extracting(OrderBook.Trade::id, trade -> trade.orderIds().contains(first.id()), OrderBook.Trade::size)
+                .containsExactly(
+                        tuple("2", true, 1),
+                        tuple("3", false, 1));
+        assertThat(restoredOrderBook.getAskLevels()).containsOnlyKeys(100.0, 120.0);
+        assertThat(restoredOrderBook.getBidLevels()).isEqualTo(orderBook.getBidLevels());
+    }
+
+    @Test
+    void shouldRecoverFromLatestSnapshotAndJournalTail() throws Exception {
+        Path journalFile = tempDir.resolve("orders.journal");
+        TickLadderOrderBook orderBook = new TickLadderOrderBook(1, 64);
+        OrderBook.Order cancelledAfterSnapshot = orderManager.createOrder(BUY, LIMIT, 99.0, 1);
+
+        //Given
+        try (CommandJournal commandJournal = new CommandJournal(journalFile, 4096, 0);
+             PeriodicSnapshotter snapshotter = new PeriodicSnapshotter(journalFile, tempDir, new TickLadderOrderBook(1, 64), Duration.ofHours(1))) {
+            JournalingOrderBook journalingOrderBook = new JournalingOrderBook(orderBook, commandJournal);
+            journalingOrderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 5));
+            journalingOrderBook.addOrder(cancelledAfterSnapshot);
+            snapshotter.snapshotNow();
+            journalingOrderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 2));
+            snapshotter.snapshotNow();
+            journalingOrderBook.cancelOrder(cancelledAfterSnapshot.id());
+            journalingOrderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 103.0, 1));
+        }
+
+        //when
+        TickLadderOrderBook recoveredOrderBook = new TickLadderOrderBook(1, 64);
+        long replayedCommands = PeriodicSnapshotter.recover(tempDir, journalFile, recoveredOrderBook);
+
+        //Then
+        assertThat(replayedCommands).isEqualTo(2);
+        assertThat(recoveredOrderBook.getAllOrders()).containsExactlyInAnyOrderElementsOf(orderBook.getAllOrders());
+        assertThat(recoveredOrderBook.lastTradeId()).isEqualTo(orderBook.lastTradeId()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepOnlyTheLatestSnapshots() throws Exception {
+        Path journalFile = tempDir.resolve("orders.journal");
+
+        //Given
+        try (CommandJournal commandJournal = new CommandJournal(journalFile, 4096, 0);
+             PeriodicSnapshotter snapshotter = new PeriodicSnapshotter(journalFile, tempDir, new TickLadderOrderBook(1, 64), Duration.ofHours(1), 2)) {
+            JournalingOrderBook journalingOrderBook = new JournalingOrderBook(new TickLadderOrderBook(1, 64), commandJournal);
+            List<Path> written = new ArrayList<>();
+
+            //when
+            for (int i = 0; i < 4; i++) {
+                journalingOrderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0 - i, 1));
+                written.add(snapshotter.snapshotNow());
+            }
+
+            //Then
+            assertThat(PeriodicSnapshotter.snapshots(tempDir)).containsExactlyElementsOf(written.subList(2, 4));
+            assertThat(PeriodicSnapshotter.latestSnapshot(tempDir)).contains(written.get(3));
+        }
+    }
+
+    @Test
+    void shouldKeepSnapshottingAfterAFailedRun() throws Exception {
+        Path journalFile = tempDir.resolve("orders.journal");
+        AtomicInteger walks = new AtomicInteger();
+        TickLadderOrderBook failingOnceOrderBook = new TickLadderOrderBook(1, 64) {
+            @Override
+            public synchronized void forEachRestingOrder(RestingOrderVisitor visitor) {
+                if (walks.getAndIncrement() == 0) {
+                    throw new IllegalStateException("disk full");
+                }
+                super.forEachRestingOrder(visitor);
+            }
+        };
+
+        //Given
+        try (CommandJournal commandJournal = new CommandJournal(journalFile, 4096, 0)) {
+            new JournalingOrderBook(new TickLadderOrderBook(1, 64), commandJournal)
+                    .addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+
+            //when
+            try (PeriodicSnapshotter snapshotter = new PeriodicSnapshotter(journalFile, tempDir, failingOnceOrderBook, Duration.ofMillis(10))) {
+                long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+                while (PeriodicSnapshotter.latestSnapshot(tempDir).isEmpty() && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+
+                //Then
+                assertThat(snapshotter.failedSnapshots()).isEqualTo(1);
+                assertThat(snapshotter.lastFailure()).hasMessage("disk full");
+            }
+        }
+        assertThat(PeriodicSnapshotter.latestSnapshot(tempDir)).isPresent();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).noneMatch(file -> file.toString().endsWith(".tmp"));
+        }
+    }
+}
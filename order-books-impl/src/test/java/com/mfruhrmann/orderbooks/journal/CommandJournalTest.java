@@ -0,0 +1,87 @@
+package com.mfruhrmann.orderbooks.journal;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommandJournalTest {
+
+    private final OrderManager orderManager = new OrderManager();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldReplayJournalIntoAnotherImplementation() throws Exception {
+        Path journalFile = tempDir.resolve("orders.journal");
+        OrderBook orderBook = new TickLadderOrderBook(1, 64);
+        Random random = new Random(7);
+        List<Long> orderIds = new ArrayList<>();
+
+        //Given - chunks of 4 kB force many chunk switches
+        try (CommandJournal commandJournal = new CommandJournal(journalFile, 4096, 100)) {
+            OrderBook journalingOrderBook = new JournalingOrderBook(orderBook, commandJournal);
+            for (int i = 0; i < 5_000; i++) {
+                int action = random.nextInt(8);
+                if (!orderIds.isEmpty() && action < 2) {
+                    journalingOrderBook.cancelOrder(orderIds.remove(random.nextInt(orderIds.size())));
+                } else if (!orderIds.isEmpty() && action == 2) {
+                    journalingOrderBook.amendOrder(orderIds.get(random.nextInt(orderIds.size())), 1 + random.nextInt(5));
+                } else if (!orderIds.isEmpty() && action == 3) {
+                    journalingOrderBook.amendOrder(orderIds.get(random.nextInt(orderIds.size())), 1 + random.nextInt(5), 95 + random.nextInt(10));
+                } else {
+                    OrderBook.Order order = orderManager.createOrder(random.nextBoolean() ? BUY : SELL, LIMIT, 95 + random.nextInt(10), 1 + random.nextInt(5));
+                    orderIds.add(journalingOrderBook.addOrder(order));
+                }
+            }
+        }
+
+        //when
+        OrderBook replayedOrderBook = new BasicOrderBook();
+        long replayedCommands = new JournalReader(journalFile).replay(replayedOrderBook);
+
+        //Then
+        assertThat(replayedCommands).isEqualTo(5_000);
+        assertThat(replayedOrderBook.getAllOrders()).containsExactlyInAnyOrderElementsOf(orderBook.getAllOrders());
+        assertThat(replayedOrderBook.getBidLevels()).isEqualTo(orderBook.getBidLevels());
+        assertThat(replayedOrderBook.getAskLevels()).isEqualTo(orderBook.getAskLevels());
+    }
+
+    @Test
+    void shouldContinueExistingJournal() throws Exception {
+        Path journalFile = tempDir.resolve("orders.journal");
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 2);
+        OrderBook.Order otherBuyOrder = orderManager.createOrder(BUY, LIMIT, 99.0, 1);
+        OrderBook.Order sellOrder = orderManager.createOrder(SELL, LIMIT, 101.0, 3);
+
+        //Given
+        try (CommandJournal commandJournal = new CommandJournal(journalFile, 4096, 0)) {
+            commandJournal.appendAddOrder(buyOrder);
+            commandJournal.appendAddOrder(otherBuyOrder);
+        }
+
+        //when
+        try (CommandJournal commandJournal = new CommandJournal(journalFile)) {
+            commandJournal.appendAddOrder(sellOrder);
+            commandJournal.appendCancelOrder(otherBuyOrder.id());
+        }
+
+        //Then
+        OrderBook replayedOrderBook = new BasicOrderBook();
+        assertThat(new JournalReader(journalFile).replay(replayedOrderBook)).isEqualTo(4);
+        assertThat(replayedOrderBook.getAllOrders()).containsExactlyInAnyOrder(buyOrder, sellOrder);
+    }
+}
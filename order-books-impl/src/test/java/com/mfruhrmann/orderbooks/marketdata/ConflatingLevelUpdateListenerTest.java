@@ -0,0 +1,96 @@
+package com.mfruhrmann.orderbooks.marketdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class ConflatingLevelUpdateListenerTest {
+
+    private final List<Object[]> published = new ArrayList<>();
+    private final ConflatingLevelUpdateListener conflatingListener = new ConflatingLevelUpdateListener(
+            (sequence, side, price, quantity) -> published.add(new Object[]{sequence, side, price, quantity}));
+
+    @Test
+    void shouldPublishOnlyTheLatestQuantityOfEachLevel() {
+
+        //Given
+        conflatingListener.onLevelUpdate(1, BUY, 100.0, 5);
+        conflatingListener.onLevelUpdate(2, SELL, 100.0, 3);
+        conflatingListener.onLevelUpdate(3, BUY, 100.0, 7);
+        conflatingListener.onLevelUpdate(4, BUY, 99.0, 1);
+        conflatingListener.onLevelUpdate(5, BUY, 100.0, 0);
+
+        //when
+        int publishedCount = conflatingListener.flush();
+
+        //Then
+        assertThat(publishedCount).isEqualTo(3);
+        assertThat(published)
+                .extracting(update -> tuple(update[0], update[1], update[2], update[3]))
+                .containsExactly(
+                        tuple(5L, BUY, 100.0, 0L),
+                        tuple(2L, SELL, 100.0, 3L),
+                        tuple(4L, BUY, 99.0, 1L));
+    }
+
+    @Test
+    void shouldStartOverAfterFlush() {
+
+        //Given
+        conflatingListener.onLevelUpdate(1, BUY, 100.0, 5);
+        conflatingListener.flush();
+        published.clear();
+
+        //when
+        int emptyFlush = conflatingListener.flush();
+        conflatingListener.onLevelUpdate(2, BUY, 100.0, 6);
+        conflatingListener.flush();
+
+        //Then
+        assertThat(emptyFlush).isZero();
+        assertThat(published)
+                .extracting(update -> tuple(update[0], update[1], update[2], update[3]))
+                .containsExactly(tuple(2L, BUY, 100.0, 6L));
+    }
+
+    @Test
+    void shouldFlushOncePerPublishIntervalAndKeepFlushingAfterAFailure() throws Exception {
+        List<Object[]> scheduledPublished = new CopyOnWriteArrayList<>();
+        AtomicBoolean failNext = new AtomicBoolean(true);
+
+        //Given
+        try (ConflatingLevelUpdateListener scheduledListener = new ConflatingLevelUpdateListener((sequence, side, price, quantity) -> {
+            if (failNext.getAndSet(false)) {
+                throw new IllegalStateException("downstream failed");
+            }
+            scheduledPublished.add(new Object[]{sequence, side, price, quantity});
+        }, 5, TimeUnit.MILLISECONDS)) {
+
+            //when
+            scheduledListener.onLevelUpdate(1, BUY, 100.0, 5);
+            scheduledListener.onLevelUpdate(2, BUY, 100.0, 4);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (scheduledPublished.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            scheduledListener.onLevelUpdate(3, SELL, 101.0, 2);
+
+            //Then
+            assertThat(scheduledListener.failedFlushes()).isEqualTo(1);
+        }
+        assertThat(scheduledPublished)
+                .extracting(update -> tuple(update[0], update[1], update[2], update[3]))
+                .containsExactly(
+                        tuple(2L, BUY, 100.0, 4L),
+                        tuple(3L, SELL, 101.0, 2L));
+    }
+}
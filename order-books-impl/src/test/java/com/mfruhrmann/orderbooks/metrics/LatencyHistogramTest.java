@@ -0,0 +1,46 @@
+package com.mfruhrmann.orderbooks.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void shouldMapEveryValueIntoBucketCoveringIt() {
+        for (long value = 0; value < LatencyHistogram.HIGHEST_TRACKABLE_VALUE; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.bucketIndex(value);
+
+            assertThat(LatencyHistogram.highestValueOfBucket(index)).isGreaterThanOrEqualTo(value);
+            assertThat(index == 0 ? -1 : LatencyHistogram.highestValueOfBucket(index - 1)).isLessThan(value);
+        }
+    }
+
+    @Test
+    void shouldReportPercentilesWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //when
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        histogram.record(Long.MAX_VALUE);
+
+        //Then
+        assertThat(histogram.getCount()).isEqualTo(100_001);
+        assertThat(histogram.get50thPercentile()).isCloseTo(50_000L, within(500L));
+        assertThat(histogram.get99thPercentile()).isCloseTo(99_000L, within(990L));
+        assertThat(histogram.get999thPercentile()).isCloseTo(99_900L, within(999L));
+        assertThat(histogram.getMax()).isEqualTo(LatencyHistogram.HIGHEST_TRACKABLE_VALUE);
+    }
+
+    @Test
+    void shouldReportZeroWhenNothingWasRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //Then
+        assertThat(histogram.get99thPercentile()).isZero();
+        assertThat(histogram.getMean()).isZero();
+    }
+}
@@ -0,0 +1,204 @@
+package com.mfruhrmann.orderbooks.metrics;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBookArrayDeque;
+import com.mfruhrmann.orderbooks.impl.ListBasedOrderBook;
+import com.mfruhrmann.orderbooks.impl.OffHeapOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderBookMetricsTest {
+
+    private final OrderManager orderManager = new OrderManager();
+
+    public static Stream<Arguments> orderBooks() {
+        OrderBookMetrics basicMetrics = new OrderBookMetrics();
+        BasicOrderBook basicOrderBook = new BasicOrderBook();
+        basicOrderBook.setMetrics(basicMetrics);
+        OrderBookMetrics arrayDequeMetrics = new OrderBookMetrics();
+        BasicOrderBookArrayDeque arrayDequeOrderBook = new BasicOrderBookArrayDeque();
+        arrayDequeOrderBook.setMetrics(arrayDequeMetrics);
+        OrderBookMetrics tickLadderMetrics = new OrderBookMetrics();
+        TickLadderOrderBook tickLadderOrderBook = new TickLadderOrderBook(1, 4);
+        tickLadderOrderBook.setMetrics(tickLadderMetrics);
+        OrderBookMetrics offHeapMetrics = new OrderBookMetrics();
+        OffHeapOrderBook offHeapOrderBook = new OffHeapOrderBook(1, 16);
+        offHeapOrderBook.setMetrics(offHeapMetrics);
+        return Stream.of(
+                Arguments.of(basicOrderBook, basicMetrics),
+                Arguments.of(arrayDequeOrderBook, arrayDequeMetrics),
+                Arguments.of(tickLadderOrderBook, tickLadderMetrics),
+                Arguments.of(offHeapOrderBook, offHeapMetrics));
+    }
+
+    /**
+     * The list based book only copes with flows that stay at the top of the book.
+     */
+    public static Stream<Arguments> allOrderBooks() {
+        OrderBookMetrics listBasedMetrics = new OrderBookMetrics();
+        ListBasedOrderBook listBasedOrderBook = new ListBasedOrderBook(1);
+        listBasedOrderBook.setMetrics(listBasedMetrics);
+        return Stream.concat(orderBooks(), Stream.of(Arguments.of(listBasedOrderBook, listBasedMetrics)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldCountOrdersTradesAndLevels(OrderBook orderBook, OrderBookMetrics metrics) {
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> {
+        });
+
+        //Given
+        OrderBook.Order cancelled = orderManager.createOrder(BUY, LIMIT, 98.0, 1);
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 101.0, 1));
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 120.0, 1));
+        orderBook.addOrder(cancelled);
+
+        //when - the buy order sweeps two levels and rests its remainder on a new level
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 101.0, 3));
+        orderBook.cancelOrder(cancelled.id());
+        orderBook.cancelOrder(cancelled.id());
+
+        //Then
+        assertThat(metrics.getOrdersAdded()).isEqualTo(5);
+        assertThat(metrics.getOrdersCancelled()).isEqualTo(1);
+        assertThat(metrics.getTrades()).isEqualTo(2);
+        assertThat(metrics.getLevelsCreated()).isEqualTo(5);
+        assertThat(metrics.getLevelsRemoved()).isEqualTo(3);
+        assertThat(metrics.getBidLevels()).isEqualTo(1);
+        assertThat(metrics.getAskLevels()).isEqualTo(1);
+        assertThat(metrics.getRestingOrders()).isEqualTo(2);
+        assertThat(metrics.addLatency().getCount()).isEqualTo(4);
+        assertThat(metrics.matchLatency().getCount()).isEqualTo(1);
+        assertThat(metrics.cancelLatency().getCount()).isEqualTo(2);
+        assertThat(metrics.dispatchLatency().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCountOrdersTradesAndLevelsOfListBasedBook() {
+        OrderBookMetrics metrics = new OrderBookMetrics();
+        ListBasedOrderBook orderBook = new ListBasedOrderBook(1);
+        orderBook.setMetrics(metrics);
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> {
+        });
+
+        //Given
+        OrderBook.Order cancelled = orderManager.createOrder(BUY, LIMIT, 98.0, 1);
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 2));
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 99.0, 1));
+        orderBook.addOrder(cancelled);
+
+        //when - the buy order takes the whole ask level, the cancel leaves an empty step behind the best bid
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 2));
+        orderBook.cancelOrder(cancelled.id());
+        orderBook.cancelOrder(cancelled.id());
+
+        //Then
+        assertThat(metrics.getOrdersAdded()).isEqualTo(4);
+        assertThat(metrics.getOrdersCancelled()).isEqualTo(1);
+        assertThat(metrics.getTrades()).isEqualTo(1);
+        assertThat(metrics.getLevelsCreated()).isEqualTo(3);
+        assertThat(metrics.getLevelsRemoved()).isEqualTo(2);
+        assertThat(metrics.getBidLevels()).isEqualTo(1);
+        assertThat(metrics.getAskLevels()).isEqualTo(0);
+        assertThat(metrics.getRestingOrders()).isEqualTo(1);
+        assertThat(metrics.addLatency().getCount()).isEqualTo(3);
+        assertThat(metrics.matchLatency().getCount()).isEqualTo(1);
+        assertThat(metrics.cancelLatency().getCount()).isEqualTo(2);
+        assertThat(metrics.dispatchLatency().getCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @MethodSource("allOrderBooks")
+    void shouldRecordEveryOrderOfBatch(OrderBook orderBook, OrderBookMetrics metrics) {
+        OrderBook.Order[] orders = new OrderBook.Order[10];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = orderManager.createOrder(i % 2 == 0 ? SELL : BUY, LIMIT, 100.0, 1);
+        }
+
+        //when
+        orderBook.addOrders(orders, orders.length, new long[orders.length]);
+
+        //Then
+        assertThat(metrics.addLatency().getCount()).isEqualTo(5);
+        assertThat(metrics.matchLatency().getCount()).isEqualTo(5);
+        assertThat(metrics.getTrades()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldTimeEveryNthOperationButCountAll() {
+        OrderBookMetrics metrics = new OrderBookMetrics(4);
+        TickLadderOrderBook orderBook = new TickLadderOrderBook(1, 1024);
+        orderBook.setMetrics(metrics);
+
+        //when
+        for (int i = 0; i < 100; i++) {
+            orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 90.0 + i % 10, 1));
+        }
+
+        //Then
+        assertThat(metrics.getOrdersAdded()).isEqualTo(100);
+        assertThat(metrics.addLatency().getCount()).isEqualTo(25);
+    }
+
+    @Test
+    void shouldSampleEveryKindOfOperationOnItsOwnCount() {
+        OrderBookMetrics metrics = new OrderBookMetrics(2);
+        TickLadderOrderBook orderBook = new TickLadderOrderBook(1, 1024);
+        orderBook.setMetrics(metrics);
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> {
+        });
+
+        //Given
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 4));
+
+        //when - every order dispatches a trade while it is timed
+        for (int i = 0; i < 4; i++) {
+            orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 1));
+        }
+
+        //Then
+        assertThat(metrics.addLatency().getCount() + metrics.matchLatency().getCount()).isEqualTo(2);
+        assertThat(metrics.dispatchLatency().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldExposeCountersAndHistogramsOverJmx() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        OrderBookMetrics metrics = new OrderBookMetrics();
+        BasicOrderBook orderBook = new BasicOrderBook();
+        orderBook.setMetrics(metrics);
+
+        //Given
+        List<ObjectName> objectNames = metrics.register("BTC/USD");
+        try {
+            orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 1));
+
+            //Then
+            assertThat(mBeanServer.getAttribute(new ObjectName("com.mfruhrmann.orderbooks:type=OrderBook,name=\"BTC/USD\""), "OrdersAdded"))
+                    .isEqualTo(1L);
+            assertThat(mBeanServer.getAttribute(new ObjectName("com.mfruhrmann.orderbooks:type=OrderBook,name=\"BTC/USD\",latency=add"), "Count"))
+                    .isEqualTo(1L);
+        } finally {
+            for (ObjectName objectName : objectNames) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        }
+    }
+}
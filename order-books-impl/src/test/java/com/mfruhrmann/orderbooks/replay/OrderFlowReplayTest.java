@@ -0,0 +1,93 @@
+package com.mfruhrmann.orderbooks.replay;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.impl.ImmutableOrder;
+import com.mfruhrmann.orderbooks.impl.OffHeapOrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OrderFlowReplayTest {
+
+    private static final String CSV = """
+            command,id,side,orderType,timestamp,price,size
+            ADD,1,BUY,LIMIT,2024-03-01T09:00:00.000000001Z,99.5,10
+            ADD,2,BUY,LIMIT,1709283600000000002,99.0,5
+            ADD,3,SELL,LIMIT,1709283600000000003,100.5,7
+            # the aggressor takes 4 of order 3
+            ADD,4,BUY,LIMIT,1709283600000000004,100.5,4
+            AMEND,2,8
+            AMEND,1,6,99.25
+            CANCEL,9
+            ADD,5,SELL,IMMEDIATE_OR_CANCEL,1709283600000000005,99.0,8
+            CANCEL,2
+            AMEND,5,1
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private static Stream<Arguments> orderBooks() {
+        return Stream.of(
+                Arguments.of(new BasicOrderBook(0.25), false),
+                Arguments.of(new BasicOrderBook(0.25), true),
+                Arguments.of(new TickLadderOrderBook(0.25, 64), false),
+                Arguments.of(new OffHeapOrderBook(0.25, 16), false)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("orderBooks")
+    void shouldReplayConvertedCsv(OrderBook orderBook, boolean copyOrders) throws Exception {
+        Path csvFile = Files.writeString(tempDir.resolve("flow.csv"), CSV);
+        Path journalFile = tempDir.resolve("flow.journal");
+
+        //Given
+        long convertedCommands = CsvOrderFlowConverter.convert(csvFile, journalFile);
+
+        //when
+        OrderFlowReplay.Statistics statistics = new OrderFlowReplay(orderBook, copyOrders).replay(journalFile);
+
+        //Then - the IOC order takes order 1 (6 after the amend) and 2 of order 2 (8 after the amend)
+        assertThat(convertedCommands).isEqualTo(10);
+        assertThat(statistics.commands()).isEqualTo(10);
+        assertThat(statistics.adds()).isEqualTo(5);
+        assertThat(statistics.cancels()).isEqualTo(2);
+        assertThat(statistics.cancelMisses()).isEqualTo(1);
+        assertThat(statistics.amends()).isEqualTo(3);
+        assertThat(statistics.amendMisses()).isEqualTo(1);
+        assertThat(statistics.trades()).isEqualTo(3);
+        assertThat(statistics.tradedVolume()).isEqualTo(12);
+        assertThat(statistics.restingOrders()).isEqualTo(1);
+        assertThat(statistics.bidLevels()).isZero();
+        assertThat(statistics.askLevels()).isEqualTo(1);
+        assertThat(orderBook.getAllOrders()).containsExactly(
+                new ImmutableOrder(3, SELL, LIMIT, 1709283600000000003L, 100.5, 3));
+        assertThat(orderBook.getAskLevels()).isEqualTo(Map.of(100.5, 3.0));
+    }
+
+    @Test
+    void shouldNameTheLineThatIsNotACommand() throws Exception {
+        Path csvFile = Files.writeString(tempDir.resolve("flow.csv"), "ADD,1,BUY,LIMIT,0,99.5,10\nADD,2,BUY,LIMIT,0,99.5\n");
+
+        //when //Then
+        assertThatThrownBy(() -> CsvOrderFlowConverter.convert(csvFile, tempDir.resolve("flow.journal")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("flow.csv:2");
+    }
+}
@@ -0,0 +1,133 @@
+package com.mfruhrmann.orderbooks.sequencer;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.TickLadderOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.CANCELED;
+import static com.mfruhrmann.orderbooks.api.OrderBook.CancelStatus.NOT_EXISTS;
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SequencedOrderBookTest {
+
+    private final OrderManager orderManager = new OrderManager();
+    private final SequencedOrderBook orderBook = new SequencedOrderBook(new TickLadderOrderBook(1, 1024), 16, new YieldingWaitStrategy());
+
+    @AfterEach
+    void tearDown() {
+        orderBook.close();
+    }
+
+    @Test
+    void shouldExecuteCommandsOnTheMatchingThread() {
+        AtomicLong tradedSize = new AtomicLong();
+        orderBook.addTradeEventListener((tradeId, aggressorOrderId, passiveOrderId, price, size, ts) -> tradedSize.addAndGet(size));
+
+        //Given
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 5);
+        OrderBook.Order otherBuyOrder = orderManager.createOrder(BUY, LIMIT, 99.0, 1);
+
+        //when
+        long orderId = orderBook.addOrder(buyOrder);
+        orderBook.addOrder(otherBuyOrder);
+        orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 2));
+
+        //Then
+        assertThat(orderId).isEqualTo(buyOrder.id());
+        assertThat(tradedSize).hasValue(2);
+        assertThat(orderBook.getOrder(buyOrder.id()).size()).isEqualTo(3);
+        assertThat(orderBook.getTopOrderBook().bidSize()).isEqualTo(3);
+        assertThat(orderBook.getBidLevels()).containsOnlyKeys(100.0, 99.0);
+        assertThat(orderBook.amendOrder(buyOrder.id(), 1)).isEqualTo(OrderBook.AmendStatus.AMENDED);
+        assertThat(orderBook.getTopOrderBook().bidSize()).isEqualTo(1);
+        assertThat(orderBook.cancelOrder(otherBuyOrder.id())).isEqualTo(CANCELED);
+        assertThat(orderBook.cancelOrder(otherBuyOrder.id())).isEqualTo(NOT_EXISTS);
+        assertThat(orderBook.getAllOrders()).hasSize(1);
+    }
+
+    @Test
+    void shouldReadTopOfBookWithoutGoingThroughTheRing() {
+        //Given
+        orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.0, 2));
+
+        //when
+        orderBook.close();
+
+        //Then - the matching thread has stopped, the book is read directly
+        assertThat(orderBook.getTopOrderBook().bid()).isEqualTo(100.0);
+        assertThat(orderBook.getTopOrderBook().bidSize()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldPropagateFailureOfTheBookToTheCaller() {
+        assertThatThrownBy(() -> orderBook.addOrder(null)).isInstanceOf(NullPointerException.class);
+
+        // the ring keeps working after a failed command
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 1);
+        assertThat(orderBook.addOrder(buyOrder)).isEqualTo(buyOrder.id());
+    }
+
+    @Test
+    void shouldSequenceOrdersOfManyProducers() throws Exception {
+        int producers = 4;
+        int ordersPerProducer = 10_000;
+        ExecutorService executorService = Executors.newFixedThreadPool(producers);
+        List<Future<?>> futures = new ArrayList<>();
+
+        //when - every producer rests orders on its own bid level, wrapping the 16 slot ring many times
+        for (int producer = 0; producer < producers; producer++) {
+            double price = 100.0 - producer;
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < ordersPerProducer; i++) {
+                    orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, price, 1));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        //Then
+        assertThat(orderBook.getAllOrders()).hasSize(producers * ordersPerProducer);
+        assertThat(orderBook.getBidLevels()).containsOnlyKeys(100.0, 99.0, 98.0, 97.0);
+        assertThat(orderBook.getBidLevels().values()).containsOnly((double) ordersPerProducer);
+    }
+
+    @Test
+    void shouldExecuteCommandsClaimedBeforeTheRingWasHalted() throws InterruptedException {
+        CommandRing commandRing = new CommandRing(4, new YieldingWaitStrategy());
+        TickLadderOrderBook tickLadderOrderBook = new TickLadderOrderBook(1, 1024);
+        OrderBook.Order buyOrder = orderManager.createOrder(BUY, LIMIT, 100.0, 1);
+
+        //Given - the producer has claimed its slot but not yet published it when the ring is halted
+        Command command = commandRing.claim().addOrder(buyOrder);
+        commandRing.halt();
+        Thread matchingThread = new Thread(() -> commandRing.process(claimed -> claimed.executeOn(tickLadderOrderBook)));
+        matchingThread.start();
+        matchingThread.join(100);
+
+        //when
+        assertThat(matchingThread.isAlive()).isTrue();
+        commandRing.publishAndAwait(command);
+        commandRing.release(command);
+        matchingThread.join();
+
+        //Then
+        assertThat(tickLadderOrderBook.getOrder(buyOrder.id())).isNotNull();
+        assertThatThrownBy(commandRing::claim).isInstanceOf(IllegalStateException.class);
+    }
+}
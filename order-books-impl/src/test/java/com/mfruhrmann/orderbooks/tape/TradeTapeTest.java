@@ -0,0 +1,174 @@
+package com.mfruhrmann.orderbooks.tape;
+
+import com.mfruhrmann.orderbooks.api.OrderBook;
+import com.mfruhrmann.orderbooks.impl.BasicOrderBook;
+import com.mfruhrmann.orderbooks.utils.OrderManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.mfruhrmann.orderbooks.api.OrderBook.OrderType.LIMIT;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.BUY;
+import static com.mfruhrmann.orderbooks.api.OrderBook.Side.SELL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TradeTapeTest {
+
+    @TempDir
+    Path tempDir;
+
+    record StoredTrade(long tradeId, long aggressorOrderId, long passiveOrderId, double price, int size, long ts) {
+    }
+
+    @Test
+    void shouldScanAndAggregateTimeRangesAcrossBlocksAndSegments() throws Exception {
+        Random random = new Random(11);
+        List<StoredTrade> trades = new ArrayList<>();
+
+        //Given - blocks of 100 trades, a segment holds a few of them
+        try (TradeTape tradeTape = new TradeTape(tempDir, 0.01, 16 * 1024, 100)) {
+            for (int i = 0; i < 10_000; i++) {
+                StoredTrade trade = new StoredTrade(i + 1, 1_000_000 + random.nextInt(1_000_000), random.nextInt(1_000_000),
+                        Math.round((100 + random.nextGaussian()) * 100) / 100.0, 1 + random.nextInt(500), 1_700_000_000_000L + i * 10L);
+                trades.add(trade);
+                tradeTape.onTrade(trade.tradeId(), trade.aggressorOrderId(), trade.passiveOrderId(), trade.price(), trade.size(), trade.ts());
+            }
+        }
+
+        //when
+        long fromTs = 1_700_000_000_000L + 20_005;
+        long toTs = 1_700_000_000_000L + 60_005;
+        List<StoredTrade> scanned = new ArrayList<>();
+        TradeTapeReader tradeTapeReader = new TradeTapeReader(tempDir);
+        long scannedTrades = tradeTapeReader.scan(fromTs, toTs, (tradeId, aggressorOrderId, passiveOrderId, price, size, ts) ->
+                scanned.add(new StoredTrade(tradeId, aggressorOrderId, passiveOrderId, price, size, ts)));
+        TradeTapeReader.Statistics statistics = tradeTapeReader.aggregate(fromTs, toTs);
+
+        //Then
+        List<StoredTrade> expected = trades.subList(2_001, 6_001);
+        assertThat(TradeTapeReader.segmentCount(tempDir)).isGreaterThan(1);
+        assertThat(scannedTrades).isEqualTo(4_000);
+        assertThat(scanned).containsExactlyElementsOf(expected);
+        assertThat(statistics.trades()).isEqualTo(4_000);
+        assertThat(statistics.volume()).isEqualTo(expected.stream().mapToLong(StoredTrade::size).sum());
+        assertThat(statistics.notional()).isCloseTo(expected.stream().mapToDouble(trade -> trade.price() * trade.size()).sum(), within(1e-6));
+        assertThat(tradeTapeReader.aggregate(0, fromTs - 20_010).trades()).isZero();
+    }
+
+    @Test
+    void shouldContinueExistingTapeAndRecordTradesOfABook() throws Exception {
+        AtomicLong time = new AtomicLong(1_000);
+        OrderManager orderManager = new OrderManager();
+        OrderBook orderBook = new BasicOrderBook(0.5, time::get);
+
+        //Given
+        try (TradeTape tradeTape = new TradeTape(tempDir, 0.5)) {
+            orderBook.addTradeEventListener(tradeTape);
+            orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.0, 2));
+            orderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 100.5, 2));
+            orderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 100.5, 3));
+        }
+
+        //when
+        try (TradeTape tradeTape = new TradeTape(tempDir, 0.5)) {
+            time.set(2_000);
+            OrderBook continuedOrderBook = new BasicOrderBook(0.5, time::get);
+            continuedOrderBook.addTradeEventListener(tradeTape);
+            continuedOrderBook.addOrder(orderManager.createOrder(BUY, LIMIT, 101.0, 4));
+            continuedOrderBook.addOrder(orderManager.createOrder(SELL, LIMIT, 101.0, 1));
+        }
+
+        //Then
+        TradeTapeReader tradeTapeReader = new TradeTapeReader(tempDir);
+        TradeTapeReader.Statistics all = tradeTapeReader.aggregate(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertThat(all.trades()).isEqualTo(3);
+        assertThat(all.volume()).isEqualTo(4);
+        assertThat(all.vwap()).isEqualTo((100.0 * 2 + 100.5 + 101.0) / 4);
+        assertThat(tradeTapeReader.aggregate(1_000, 2_000).vwap()).isEqualTo((100.0 * 2 + 100.5) / 3);
+        assertThat(tradeTapeReader.aggregate(3_000, 4_000).vwap()).isNaN();
+    }
+
+    @Test
+    void shouldIgnoreTheBlockBeingWrittenWhenTheProcessDied() throws Exception {
+        Path cleanTape = tempDir.resolve("clean");
+        Path crashedTape = tempDir.resolve("crashed");
+
+        //Given - the continued tape ends its next block where the crashed one has left a block header without a body
+        writeBlockAndContinue(cleanTape);
+        int endOfContinuedBlock;
+        try (FileChannel channel = FileChannel.open(TapeFormat.segment(cleanTape, 0), StandardOpenOption.READ)) {
+            endOfContinuedBlock = TradeTapeReader.endOfBlocks(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        try (TradeTape tradeTape = new TradeTape(crashedTape, 1, 16 * 1024, 4)) {
+            for (int i = 0; i < 4; i++) {
+                tradeTape.onTrade(i + 1, 100 + i, 200 + i, 100, 1, 1_000 + i);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(TapeFormat.segment(crashedTape, 0), StandardOpenOption.WRITE)) {
+            ByteBuffer leftover = ByteBuffer.allocate(TapeFormat.BLOCK_HEADER_SIZE + 8).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(8).putInt(1).putLong(1_500).putLong(1_500).putLong(1).putDouble(100);
+            channel.write(leftover.clear(), endOfContinuedBlock);
+        }
+
+        //when
+        writeBlockAndContinue(crashedTape);
+
+        //Then
+        List<StoredTrade> scanned = new ArrayList<>();
+        new TradeTapeReader(crashedTape).scan(Long.MIN_VALUE, Long.MAX_VALUE, (tradeId, aggressorOrderId, passiveOrderId, price, size, ts) ->
+                scanned.add(new StoredTrade(tradeId, aggressorOrderId, passiveOrderId, price, size, ts)));
+        assertThat(scanned).extracting(StoredTrade::tradeId).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    /**
+     * Continues the tape with a block of a single trade, on a new tape writes a block of four trades first.
+     */
+    private static void writeBlockAndContinue(Path directory) throws Exception {
+        if (TradeTapeReader.segmentCount(directory) == 0) {
+            try (TradeTape tradeTape = new TradeTape(directory, 1, 16 * 1024, 4)) {
+                for (int i = 0; i < 4; i++) {
+                    tradeTape.onTrade(i + 1, 100 + i, 200 + i, 100, 1, 1_000 + i);
+                }
+            }
+        }
+        try (TradeTape tradeTape = new TradeTape(directory, 1, 16 * 1024, 4)) {
+            tradeTape.onTrade(5, 104, 204, 101, 2, 2_000);
+        }
+    }
+
+    @Test
+    void shouldSkipSegmentsOutsideOfTheRange() throws Exception {
+        //Given
+        try (TradeTape tradeTape = new TradeTape(tempDir, 1, 4 * 1024, 50)) {
+            for (int i = 0; i < 2_000; i++) {
+                tradeTape.onTrade(i + 1, 100 + i, 200 + i, 100, 1, 1_000L * i);
+            }
+        }
+        int segments = TradeTapeReader.segmentCount(tempDir);
+        // the blocks of the first segment are unreadable, only its header is left intact
+        try (FileChannel channel = FileChannel.open(TapeFormat.segment(tempDir, 0), StandardOpenOption.WRITE)) {
+            byte[] garbage = new byte[1024];
+            Arrays.fill(garbage, (byte) 0x7F);
+            channel.write(ByteBuffer.wrap(garbage), TapeFormat.FILE_HEADER_SIZE);
+        }
+
+        //when
+        TradeTapeReader.Statistics lastTrades = new TradeTapeReader(tempDir).aggregate(1_000L * 1_990, Long.MAX_VALUE);
+
+        //Then
+        assertThat(segments).isGreaterThan(2);
+        assertThat(lastTrades.trades()).isEqualTo(10);
+        assertThat(lastTrades.volume()).isEqualTo(10);
+    }
+}